@@ -0,0 +1,69 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Obstacle;
+import me.nabdev.pathfinding.structures.Vertex;
+
+/**
+ * A reproducible set of start and target pairs for a field. Points are drawn
+ * from a seeded random generator and only kept if both are outside every
+ * obstacle and a path exists between them, so every benchmark can use
+ * PathfindSnapMode.NONE and never throws.
+ */
+public class BenchmarkCorpus {
+    /**
+     * The seed every corpus is drawn with
+     */
+    public static final long SEED = 3044;
+    /**
+     * The number of pairs in a corpus
+     */
+    public static final int SIZE = 64;
+
+    /**
+     * The start of each pair
+     */
+    public final Vertex[] starts = new Vertex[SIZE];
+    /**
+     * The target of each pair
+     */
+    public final Vertex[] targets = new Vertex[SIZE];
+
+    /**
+     * Draws a new corpus for a pathfinder's field
+     *
+     * @param pathfinder The pathfinder to draw pairs for
+     */
+    public BenchmarkCorpus(Pathfinder pathfinder) {
+        Random random = new Random(SEED);
+        ArrayList<Obstacle> obstacles = pathfinder.map.getObstacles();
+        int found = 0;
+        int attempts = 0;
+        while (found < SIZE) {
+            if (++attempts > SIZE * 100)
+                throw new IllegalStateException("Could not find enough valid start and target pairs");
+            Vertex start = randomPoint(random, pathfinder);
+            Vertex target = randomPoint(random, pathfinder);
+            if (!Obstacle.isRobotInObstacle(obstacles, start, true).isEmpty()
+                    || !Obstacle.isRobotInObstacle(obstacles, target, true).isEmpty())
+                continue;
+            try {
+                pathfinder.generatePath(start, target, PathfindSnapMode.NONE);
+            } catch (ImpossiblePathException e) {
+                continue;
+            }
+            starts[found] = start;
+            targets[found] = target;
+            found++;
+        }
+    }
+
+    private static Vertex randomPoint(Random random, Pathfinder pathfinder) {
+        return new Vertex(random.nextDouble() * pathfinder.map.fieldx, random.nextDouble() * pathfinder.map.fieldy);
+    }
+}
@@ -0,0 +1,40 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.PathfinderBuilder;
+import me.nabdev.pathfinding.utilities.FieldLoader.Field;
+
+/**
+ * Building a pathfinder from scratch, including loading the field, inflating
+ * the obstacles and generating the static visibility graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConstructionBenchmark {
+    /**
+     * The field to build
+     */
+    @Param({ "REEFSCAPE_2025", "CRESCENDO_2024", "CHARGED_UP_2023" })
+    public Field field;
+
+    /**
+     * Build a pathfinder
+     *
+     * @return The pathfinder
+     */
+    @Benchmark
+    public Pathfinder construct() {
+        return new PathfinderBuilder(field).build();
+    }
+}
@@ -0,0 +1,233 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.PathfinderBuilder;
+import me.nabdev.pathfinding.benchmarks.PathRequestLog.Request;
+import me.nabdev.pathfinding.benchmarks.ScriptedMatch.Phase;
+import me.nabdev.pathfinding.metrics.LatencyHistogram;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.PathTracker;
+import me.nabdev.pathfinding.structures.Vertex;
+import me.nabdev.pathfinding.utilities.DriverStationWrapper;
+import me.nabdev.pathfinding.utilities.FieldLoader.Field;
+
+/**
+ * Replays a full match against a pathfinder, one 20 ms robot loop at a time,
+ * and reports how many loops spent longer than the budget on pathfinding. Each
+ * loop calls {@link Pathfinder#periodic()} as robotPeriodic would, and replans
+ * from the robot's position if a request is being held, so the obstacle rebuilds
+ * at alliance assignment, the start of teleop and the start of endgame land in
+ * the loops they would on a real field.
+ *
+ * The match runs on a {@link ScriptedMatch} through
+ * {@link DriverStationWrapper}, with a clock that advances 20 ms per loop rather
+ * than in real time. The robot drives along each planned path at a fixed speed.
+ *
+ * Run with ./gradlew matchReplay, optionally with -PreplayField=field,
+ * -PreplayBudget=milliseconds and -PreplayLog=file. Without a log, one is
+ * generated from a fixed seed.
+ */
+public class MatchReplay {
+    /**
+     * The length of a robot loop (seconds)
+     */
+    public static final double LOOP_PERIOD = 0.02;
+    /**
+     * The default pathfinding budget of each loop (milliseconds)
+     */
+    public static final double DEFAULT_BUDGET = 10;
+    /**
+     * How fast the robot drives along planned paths (meters per second)
+     */
+    public static final double ROBOT_SPEED = 3.5;
+    /**
+     * How many of the slowest loops are listed
+     */
+    public static final int WORST_LOOPS = 10;
+
+    private volatile double time = 0;
+
+    private final Field field;
+    private final Pathfinder pathfinder;
+    private final ScriptedMatch match;
+    private final PathRequestLog log;
+    private final double budgetMs;
+
+    private final int loops;
+    private final LatencyHistogram[] phaseLatency = new LatencyHistogram[Phase.values().length];
+    private final int[] phaseLoops = new int[Phase.values().length];
+    private final int[] phaseOver = new int[Phase.values().length];
+    private final LatencyHistogram allLatency;
+    private int overBudget = 0;
+    private int plans = 0;
+    private int failedPlans = 0;
+    private int transitionLoops = 0;
+    private int transitionOver = 0;
+    private double transitionMaxMs = 0;
+    private final PriorityQueue<double[]> worst = new PriorityQueue<>((a, b) -> Double.compare(a[1], b[1]));
+
+    /**
+     * Creates a new replay on a bundled field. Sets the simulated match in
+     * {@link DriverStationWrapper} before building the pathfinder, so the
+     * pathfinder starts from the pre-match state.
+     *
+     * @param field    The field
+     * @param budgetMs The pathfinding budget of each loop (milliseconds)
+     * @param log      The requests to replay, or null to generate them
+     */
+    public MatchReplay(Field field, double budgetMs, PathRequestLog log) {
+        if (!Boolean.getBoolean("nohaljni"))
+            throw new IllegalStateException("Match replay needs -Dnohaljni=true to simulate the Driver Station");
+        this.field = field;
+        match = new ScriptedMatch(() -> time, Alliance.Blue);
+        DriverStationWrapper.setSimulatedMatch(match);
+        pathfinder = new PathfinderBuilder(field).build();
+        this.log = log != null ? log : PathRequestLog.generate(pathfinder, BenchmarkCorpus.SEED);
+        this.budgetMs = budgetMs;
+        loops = (int) Math.ceil((ScriptedMatch.MATCH_END + 1) / LOOP_PERIOD);
+        for (int i = 0; i < phaseLatency.length; i++) {
+            phaseLatency[i] = new LatencyHistogram(loops);
+        }
+        allLatency = new LatencyHistogram(loops);
+    }
+
+    /**
+     * Run the match from start to finish
+     */
+    public void run() {
+        int nextRequest = 0;
+        Request held = null;
+        Vertex robot = log.start;
+        Phase lastPhase = match.getPhase();
+        Optional<Alliance> lastAlliance = match.getAlliance();
+
+        for (int loop = 0; loop < loops; loop++) {
+            time = loop * LOOP_PERIOD;
+            Phase phase = match.getPhase();
+            Optional<Alliance> alliance = match.getAlliance();
+            boolean transition = phase != lastPhase || !alliance.equals(lastAlliance);
+            lastPhase = phase;
+            lastAlliance = alliance;
+
+            while (nextRequest < log.requests.size() && log.requests.get(nextRequest).time <= time) {
+                held = log.requests.get(nextRequest++);
+            }
+            if (held != null && time >= held.time + held.hold)
+                held = null;
+
+            long start = System.nanoTime();
+            pathfinder.periodic();
+            if (held != null) {
+                plans++;
+                try {
+                    Path path = pathfinder.generatePath(robot, held.target, PathfindSnapMode.SNAP_ALL);
+                    robot = drive(path, robot);
+                } catch (ImpossiblePathException e) {
+                    failedPlans++;
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            record(phase, transition, nanos);
+        }
+    }
+
+    private static Vertex drive(Path path, Vertex robot) {
+        PathTracker tracker = path.createTracker();
+        tracker.update(robot);
+        return tracker.getLookaheadPoint(ROBOT_SPEED * LOOP_PERIOD);
+    }
+
+    private void record(Phase phase, boolean transition, long nanos) {
+        double ms = nanos / 1e6;
+        boolean over = ms > budgetMs;
+        phaseLatency[phase.ordinal()].record(nanos);
+        allLatency.record(nanos);
+        phaseLoops[phase.ordinal()]++;
+        if (over) {
+            phaseOver[phase.ordinal()]++;
+            overBudget++;
+        }
+        if (transition) {
+            transitionLoops++;
+            if (over)
+                transitionOver++;
+            transitionMaxMs = Math.max(transitionMaxMs, ms);
+        }
+        worst.add(new double[] { time, ms, phase.ordinal(), transition ? 1 : 0 });
+        if (worst.size() > WORST_LOOPS)
+            worst.poll();
+    }
+
+    /**
+     * Get the fraction of loops that went over budget
+     *
+     * @return The percentage of loops over budget, from 0 to 100
+     */
+    public double getOverBudgetPercent() {
+        return 100.0 * overBudget / loops;
+    }
+
+    /**
+     * Print the results
+     */
+    public void report() {
+        System.out.printf(Locale.ROOT, "Match replay on %s, %d loops, %d requests, budget %.1f ms%n", field, loops,
+                log.requests.size(), budgetMs);
+        System.out.printf(Locale.ROOT, "%-10s %7s %7s %7s %10s %10s %10s%n", "phase", "loops", "over", "over_%",
+                "p50_ms", "p99_ms", "max_ms");
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            if (phaseLoops[i] == 0)
+                continue;
+            printRow(phase.name(), phaseLoops[i], phaseOver[i], phaseLatency[i]);
+        }
+        printRow("ALL", loops, overBudget, allLatency);
+        System.out.printf(Locale.ROOT, "Plans: %d, failed: %d%n", plans, failedPlans);
+        System.out.printf(Locale.ROOT, "Phase change loops: %d, over budget: %d, max %.3f ms%n", transitionLoops,
+                transitionOver, transitionMaxMs);
+
+        ArrayList<double[]> slowest = new ArrayList<>(worst);
+        slowest.sort((a, b) -> Double.compare(b[1], a[1]));
+        System.out.println("Slowest loops:");
+        for (double[] loop : slowest) {
+            System.out.printf(Locale.ROOT, "  t=%7.2f s %-10s %9.3f ms%s%n", loop[0],
+                    Phase.values()[(int) loop[2]].name(), loop[1], loop[3] == 1 ? "  (phase change)" : "");
+        }
+    }
+
+    private static void printRow(String name, int loops, int over, LatencyHistogram latency) {
+        System.out.printf(Locale.ROOT, "%-10s %7d %7d %7.2f %10.3f %10.3f %10.3f%n", name, loops, over,
+                100.0 * over / loops, latency.getPercentileMs(0.5), latency.getPercentileMs(0.99),
+                latency.getMaxMs());
+    }
+
+    /**
+     * Replay a match
+     *
+     * @param args The field, the budget (milliseconds) and a request log file, all
+     *             optional
+     * @throws IOException If the request log can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        Field field = args.length > 0 ? Field.valueOf(args[0]) : Field.REEFSCAPE_2025;
+        double budget = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_BUDGET;
+        File logFile = args.length > 2 && !args[2].isEmpty() ? new File(args[2]) : null;
+        try {
+            MatchReplay replay = new MatchReplay(field, budget, logFile != null ? PathRequestLog.read(logFile) : null);
+            replay.run();
+            replay.report();
+        } finally {
+            DriverStationWrapper.setSimulatedMatch(null);
+        }
+    }
+}
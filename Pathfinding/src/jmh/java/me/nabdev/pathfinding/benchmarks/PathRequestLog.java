@@ -0,0 +1,166 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.structures.Vertex;
+
+/**
+ * The path requests made during a match. Each request is a driver holding a
+ * button to drive to a target: while it is held, the robot replans from where it
+ * is every loop.
+ *
+ * Logs are stored as CSV, one request per line:
+ * {@code time,targetX,targetY,hold}, with times in seconds from the start of a
+ * {@link ScriptedMatch} and positions in meters. Lines starting with # are
+ * ignored.
+ */
+public class PathRequestLog {
+    /**
+     * One held request
+     */
+    public static class Request {
+        /**
+         * When the button is pressed (seconds)
+         */
+        public final double time;
+        /**
+         * Where the robot is asked to go
+         */
+        public final Vertex target;
+        /**
+         * How long the button is held (seconds)
+         */
+        public final double hold;
+
+        /**
+         * Creates a new request
+         *
+         * @param time   When the button is pressed (seconds)
+         * @param target Where the robot is asked to go
+         * @param hold   How long the button is held (seconds)
+         */
+        public Request(double time, Vertex target, double hold) {
+            if (hold <= 0)
+                throw new IllegalArgumentException("Hold time must be greater than 0");
+            this.time = time;
+            this.target = target;
+            this.hold = hold;
+        }
+    }
+
+    /**
+     * Where the robot starts the match
+     */
+    public final Vertex start;
+    /**
+     * The requests, in the order they are made
+     */
+    public final ArrayList<Request> requests = new ArrayList<>();
+
+    /**
+     * Creates a new, empty log
+     *
+     * @param start Where the robot starts the match
+     */
+    public PathRequestLog(Vertex start) {
+        this.start = start;
+    }
+
+    /**
+     * Generate a log that drives like a typical match: a chain of back to back
+     * drives in autonomous, then drives separated by a few seconds of manual
+     * driving through teleop and endgame. Targets are drawn from a
+     * {@link BenchmarkCorpus}, so every one of them is reachable.
+     *
+     * @param pathfinder The pathfinder the log will be replayed on
+     * @param seed       The random seed
+     * @return The log
+     */
+    public static PathRequestLog generate(Pathfinder pathfinder, long seed) {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(pathfinder);
+        Random random = new Random(seed);
+        PathRequestLog log = new PathRequestLog(corpus.starts[0]);
+
+        double time = ScriptedMatch.AUTO_START;
+        for (int i = 0; i < 4; i++) {
+            log.requests.add(new Request(time, randomTarget(random, corpus), 3.5));
+            time += 3.5;
+        }
+        time = ScriptedMatch.TELEOP_START;
+        while (true) {
+            time += 1 + random.nextDouble() * 3;
+            double hold = 1.5 + random.nextDouble() * 3.5;
+            if (time + hold > ScriptedMatch.MATCH_END)
+                break;
+            log.requests.add(new Request(time, randomTarget(random, corpus), hold));
+            time += hold;
+        }
+        return log;
+    }
+
+    private static Vertex randomTarget(Random random, BenchmarkCorpus corpus) {
+        int i = random.nextInt(BenchmarkCorpus.SIZE);
+        return random.nextBoolean() ? corpus.starts[i] : corpus.targets[i];
+    }
+
+    /**
+     * Read a log from a CSV file. The first line holds the start position,
+     * {@code startX,startY}.
+     *
+     * @param file The file to read
+     * @return The log
+     * @throws IOException If the file can't be read or is malformed
+     */
+    public static PathRequestLog read(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            PathRequestLog log = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+                String[] values = line.split(",");
+                try {
+                    if (log == null) {
+                        log = new PathRequestLog(
+                                new Vertex(Double.parseDouble(values[0]), Double.parseDouble(values[1])));
+                    } else {
+                        log.requests.add(new Request(Double.parseDouble(values[0]),
+                                new Vertex(Double.parseDouble(values[1]), Double.parseDouble(values[2])),
+                                Double.parseDouble(values[3])));
+                    }
+                } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                    throw new IOException("Malformed request log line: " + line, e);
+                }
+            }
+            if (log == null)
+                throw new IOException("Request log is empty");
+            return log;
+        }
+    }
+
+    /**
+     * Write this log to a CSV file
+     *
+     * @param file The file to write
+     * @throws IOException If the file can't be written
+     */
+    public void write(File file) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write("# startX,startY then time,targetX,targetY,hold\n");
+            writer.write(String.format(Locale.ROOT, "%.4f,%.4f%n", start.x, start.y));
+            for (Request request : requests) {
+                writer.write(String.format(Locale.ROOT, "%.3f,%.4f,%.4f,%.3f%n", request.time, request.target.x,
+                        request.target.y, request.hold));
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.PathfinderBuilder;
+import me.nabdev.pathfinding.algorithms.Astar;
+import me.nabdev.pathfinding.algorithms.SearchContext;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.Vertex;
+import me.nabdev.pathfinding.utilities.FieldLoader.Field;
+
+/**
+ * Each stage of the planning pipeline on its own, and all of them together.
+ * Every invocation uses the next pair from a seeded {@link BenchmarkCorpus}, so
+ * results average over the whole field instead of one lucky query.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlanningBenchmark {
+    /**
+     * The field to plan on
+     */
+    @Param({ "REEFSCAPE_2025", "CRESCENDO_2024", "CHARGED_UP_2023" })
+    public Field field;
+
+    private Pathfinder pathfinder;
+    private BenchmarkCorpus corpus;
+    private SearchContext[] contexts;
+    private Path[] routes;
+    private Path[] processed;
+    private final TrajectoryConfig config = new TrajectoryConfig(4, 3);
+    private final ArrayList<Vertex> additionalVertices = new ArrayList<>();
+    private SearchContext reusedContext;
+    private int next = 0;
+
+    /**
+     * Build the pathfinder and everything each stage needs as input
+     *
+     * @throws ImpossiblePathException Never, every corpus pair has a path
+     */
+    @Setup
+    public void setup() throws ImpossiblePathException {
+        pathfinder = new PathfinderBuilder(field).build();
+        corpus = new BenchmarkCorpus(pathfinder);
+        reusedContext = new SearchContext(pathfinder.map, pathfinder.getMetrics());
+        contexts = new SearchContext[BenchmarkCorpus.SIZE];
+        routes = new Path[BenchmarkCorpus.SIZE];
+        processed = new Path[BenchmarkCorpus.SIZE];
+        for (int i = 0; i < BenchmarkCorpus.SIZE; i++) {
+            ArrayList<Vertex> extra = new ArrayList<>();
+            extra.add(corpus.starts[i]);
+            extra.add(corpus.targets[i]);
+            contexts[i] = new SearchContext(pathfinder.map, extra);
+            routes[i] = new Astar(pathfinder).run(contexts[i], contexts[i].extraIndex(0), contexts[i].extraIndex(1));
+            processed[i] = pathfinder.generatePath(corpus.starts[i], corpus.targets[i], PathfindSnapMode.NONE);
+        }
+    }
+
+    private int nextPair() {
+        int i = next;
+        next = (next + 1) % BenchmarkCorpus.SIZE;
+        return i;
+    }
+
+    /**
+     * Rebuild the static visibility graph, as happens when the active obstacles
+     * change
+     */
+    @Benchmark
+    public void regenerateVisibilityGraph() {
+        pathfinder.map.regenerateVisibilityGraph();
+    }
+
+    /**
+     * Connect a start and target to the static visibility graph
+     *
+     * @return The loaded context
+     */
+    @Benchmark
+    public SearchContext loadSearchContext() {
+        int i = nextPair();
+        additionalVertices.clear();
+        additionalVertices.add(corpus.starts[i]);
+        additionalVertices.add(corpus.targets[i]);
+        reusedContext.load(additionalVertices);
+        return reusedContext;
+    }
+
+    /**
+     * Search the visibility graph, with the visibility of the start and target
+     * already calculated
+     *
+     * @return The unprocessed path
+     * @throws ImpossiblePathException Never, every corpus pair has a path
+     */
+    @Benchmark
+    public Path astarRun() throws ImpossiblePathException {
+        SearchContext context = contexts[nextPair()];
+        return new Astar(pathfinder).run(context, context.extraIndex(0), context.extraIndex(1));
+    }
+
+    /**
+     * Smooth the corners of a path and inject points. Includes copying the
+     * unprocessed route, since processing modifies the path.
+     *
+     * @return The processed path
+     */
+    @Benchmark
+    public Path processPath() {
+        Path route = routes[nextPair()];
+        Path path = new Path(route.getStart(), route.getTarget(), pathfinder);
+        path.addAll(route);
+        path.processPath(PathfindSnapMode.NONE);
+        return path;
+    }
+
+    /**
+     * Profile a processed path into a trajectory
+     *
+     * @return The trajectory
+     * @throws ImpossiblePathException If the trajectory can't be generated
+     */
+    @Benchmark
+    public Trajectory asTrajectory() throws ImpossiblePathException {
+        return processed[nextPair()].asTrajectory(config);
+    }
+
+    /**
+     * The whole pipeline, as robot code calls it
+     *
+     * @return The processed path
+     * @throws ImpossiblePathException Never, every corpus pair has a path
+     */
+    @Benchmark
+    public Path generatePath() throws ImpossiblePathException {
+        int i = nextPair();
+        return pathfinder.generatePath(corpus.starts[i], corpus.targets[i], PathfindSnapMode.NONE);
+    }
+}
@@ -0,0 +1,86 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.PathfinderBuilder;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+
+/**
+ * Construction and planning on synthetic fields of increasing size. Kept to
+ * obstacle counts JMH can get through in a reasonable time, see
+ * {@link ScalingReport} for a single pass sweep up to thousands of obstacles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScalingBenchmark {
+    /**
+     * The number of obstacles on the field
+     */
+    @Param({ "10", "50", "100", "250", "500" })
+    public int obstacles;
+
+    /**
+     * The fraction of the field covered by obstacles
+     */
+    @Param({ "0.1" })
+    public double density;
+
+    private String fieldPath;
+    private Pathfinder pathfinder;
+    private BenchmarkCorpus corpus;
+    private int next = 0;
+
+    /**
+     * Generate the field and draw a corpus on it
+     *
+     * @throws IOException If the field can't be written to a temporary file
+     */
+    @Setup
+    public void setup() throws IOException {
+        File file = File.createTempFile("synthetic-" + obstacles + "-", ".json");
+        file.deleteOnExit();
+        new SyntheticFieldGenerator(BenchmarkCorpus.SEED).setDensity(density).write(obstacles, file);
+        fieldPath = file.getAbsolutePath();
+        pathfinder = new PathfinderBuilder(fieldPath).build();
+        corpus = new BenchmarkCorpus(pathfinder);
+    }
+
+    /**
+     * Build a pathfinder, including the static visibility graph
+     *
+     * @return The pathfinder
+     */
+    @Benchmark
+    public Pathfinder construct() {
+        return new PathfinderBuilder(fieldPath).build();
+    }
+
+    /**
+     * Plan a path between the next corpus pair
+     *
+     * @return The path
+     * @throws ImpossiblePathException Never, every corpus pair has a path
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Path generatePath() throws ImpossiblePathException {
+        int i = next;
+        next = (next + 1) % BenchmarkCorpus.SIZE;
+        return pathfinder.generatePath(corpus.starts[i], corpus.targets[i], PathfindSnapMode.NONE);
+    }
+}
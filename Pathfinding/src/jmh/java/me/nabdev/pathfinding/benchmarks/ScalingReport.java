@@ -0,0 +1,130 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.PathfinderBuilder;
+import me.nabdev.pathfinding.metrics.LatencyHistogram;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+
+/**
+ * Sweeps synthetic fields from 10 to 5,000 obstacles and prints, for each size,
+ * the construction time, the size of the static visibility graph, the heap it
+ * takes up and the latency of planning a path. The last column is the scaling
+ * exponent of construction time against the previous size (1 is linear, 2 is
+ * quadratic).
+ *
+ * Each size is measured once rather than through JMH, since construction of the
+ * largest fields takes far too long to repeat. Building the static visibility
+ * graph grows faster than quadratically, so the sweep stops after the first size
+ * that takes longer than the time budget to build.
+ *
+ * Run with ./gradlew scalingReport, optionally with -PscalingBudget=seconds and
+ * -PscalingDensity=fraction.
+ */
+public class ScalingReport {
+    /**
+     * The obstacle counts to sweep, in order
+     */
+    public static final int[] OBSTACLE_COUNTS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000 };
+    /**
+     * The default construction time budget (seconds)
+     */
+    public static final double DEFAULT_BUDGET = 60;
+    /**
+     * How many times each corpus pair is planned
+     */
+    public static final int QUERY_ROUNDS = 4;
+
+    private ScalingReport() {
+    }
+
+    /**
+     * Run the sweep
+     *
+     * @param args The construction time budget (seconds) and the density,
+     *             both optional
+     * @throws IOException If a field can't be written to a temporary file
+     */
+    public static void main(String[] args) throws IOException {
+        double budget = args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_BUDGET;
+        double density = args.length > 1 ? Double.parseDouble(args[1]) : SyntheticFieldGenerator.DEFAULT_DENSITY;
+        SyntheticFieldGenerator generator = new SyntheticFieldGenerator(BenchmarkCorpus.SEED).setDensity(density);
+
+        System.out.printf(Locale.ROOT, "Synthetic field scaling, density %.2f, budget %.0f s%n", density, budget);
+        System.out.printf(Locale.ROOT, "%9s %12s %9s %11s %10s %10s %10s %9s%n", "obstacles", "construct_ms",
+                "vertices", "edges", "heap_mb", "p50_ms", "p99_ms", "exponent");
+
+        // Warm up class loading and the JIT so the first row isn't inflated
+        File warmup = File.createTempFile("synthetic-warmup-", ".json");
+        warmup.deleteOnExit();
+        generator.write(OBSTACLE_COUNTS[0], warmup);
+        measureQueries(new PathfinderBuilder(warmup.getAbsolutePath()).build());
+
+        int previousCount = 0;
+        double previousMs = 0;
+        for (int count : OBSTACLE_COUNTS) {
+            double constructMs = measure(generator, count, previousCount, previousMs);
+            previousCount = count;
+            previousMs = constructMs;
+            if (constructMs > budget * 1000) {
+                System.out.printf(Locale.ROOT, "Stopping, construction took longer than %.0f s%n", budget);
+                break;
+            }
+        }
+    }
+
+    // Measures and prints one size. Kept in its own method so the pathfinder is
+    // unreachable by the time the next size reads the heap.
+    private static double measure(SyntheticFieldGenerator generator, int count, int previousCount,
+            double previousMs) throws IOException {
+        File file = File.createTempFile("synthetic-" + count + "-", ".json");
+        file.deleteOnExit();
+        generator.write(count, file);
+
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        Pathfinder pathfinder = new PathfinderBuilder(file.getAbsolutePath()).build();
+        double constructMs = (System.nanoTime() - start) / 1e6;
+        double heapMb = (usedHeap() - heapBefore) / (1024.0 * 1024.0);
+
+        LatencyHistogram queries = measureQueries(pathfinder);
+        String exponent = previousCount == 0 ? "-"
+                : String.format(Locale.ROOT, "%.2f",
+                        Math.log(constructMs / previousMs) / Math.log((double) count / previousCount));
+        System.out.printf(Locale.ROOT, "%9d %12.1f %9d %11d %10.1f %10.3f %10.3f %9s%n", count, constructMs,
+                pathfinder.map.getPathVerticesStatic().size(), pathfinder.map.getNeighborsStatic().size(), heapMb,
+                queries.getPercentileMs(0.5), queries.getPercentileMs(0.99), exponent);
+        return constructMs;
+    }
+
+    private static LatencyHistogram measureQueries(Pathfinder pathfinder) {
+        BenchmarkCorpus corpus = new BenchmarkCorpus(pathfinder);
+        LatencyHistogram histogram = new LatencyHistogram(BenchmarkCorpus.SIZE * QUERY_ROUNDS);
+        try {
+            for (int round = 0; round < QUERY_ROUNDS; round++) {
+                for (int i = 0; i < BenchmarkCorpus.SIZE; i++) {
+                    long start = System.nanoTime();
+                    pathfinder.generatePath(corpus.starts[i], corpus.targets[i], PathfindSnapMode.NONE);
+                    histogram.record(System.nanoTime() - start);
+                }
+            }
+        } catch (ImpossiblePathException e) {
+            throw new IllegalStateException("Corpus pair has no path", e);
+        }
+        return histogram;
+    }
+
+    // Collects a few times so the reading doesn't include garbage from the
+    // previous size
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,138 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.util.Optional;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.utilities.DriverStationWrapper.SimulatedMatch;
+
+/**
+ * A 2:30 match on a fixed timeline, reported the way the Driver Station would
+ * report it. Time comes from an injected clock, so a match can be replayed as
+ * fast as the code under test allows.
+ *
+ * The timeline starts with the robot connected but not yet given an alliance,
+ * then runs 15 seconds of autonomous, a short disabled gap while the field
+ * switches modes, and 2:15 of teleop (the last {@link Pathfinder#getEndgameTime()}
+ * seconds of which are endgame). The match time counts down within each period,
+ * and is -1 outside of them, as it is on a real field.
+ */
+public class ScriptedMatch implements SimulatedMatch {
+    /**
+     * Time from the start of the replay until the alliance is assigned (seconds)
+     */
+    public static final double ALLIANCE_ASSIGNED = 1;
+    /**
+     * Time from the start of the replay until autonomous starts (seconds)
+     */
+    public static final double AUTO_START = 3;
+    /**
+     * The length of autonomous (seconds)
+     */
+    public static final double AUTO_LENGTH = 15;
+    /**
+     * The disabled gap between autonomous and teleop (seconds)
+     */
+    public static final double TRANSITION_LENGTH = 2;
+    /**
+     * The length of teleop, including endgame (seconds)
+     */
+    public static final double TELEOP_LENGTH = 135;
+    /**
+     * Time from the start of the replay until teleop starts (seconds)
+     */
+    public static final double TELEOP_START = AUTO_START + AUTO_LENGTH + TRANSITION_LENGTH;
+    /**
+     * Time from the start of the replay until the match is over (seconds)
+     */
+    public static final double MATCH_END = TELEOP_START + TELEOP_LENGTH;
+
+    /**
+     * A part of the match timeline
+     */
+    public enum Phase {
+        /**
+         * Connected to the field, before autonomous
+         */
+        PRE_MATCH,
+        /**
+         * Autonomous
+         */
+        AUTO,
+        /**
+         * Disabled between autonomous and teleop
+         */
+        TRANSITION,
+        /**
+         * Teleop, before endgame
+         */
+        TELEOP,
+        /**
+         * The end of teleop
+         */
+        ENDGAME,
+        /**
+         * After the match
+         */
+        POST_MATCH
+    }
+
+    private final DoubleSupplier clock;
+    private final Alliance alliance;
+
+    /**
+     * Creates a new scripted match
+     *
+     * @param clock    The time since the start of the replay (seconds)
+     * @param alliance The alliance the robot is assigned to
+     */
+    public ScriptedMatch(DoubleSupplier clock, Alliance alliance) {
+        this.clock = clock;
+        this.alliance = alliance;
+    }
+
+    /**
+     * Get the part of the match the clock is in
+     *
+     * @return The current phase
+     */
+    public Phase getPhase() {
+        double time = clock.getAsDouble();
+        if (time < AUTO_START)
+            return Phase.PRE_MATCH;
+        if (time < AUTO_START + AUTO_LENGTH)
+            return Phase.AUTO;
+        if (time < TELEOP_START)
+            return Phase.TRANSITION;
+        if (time < MATCH_END)
+            return getMatchTime() <= Pathfinder.getEndgameTime() ? Phase.ENDGAME : Phase.TELEOP;
+        return Phase.POST_MATCH;
+    }
+
+    @Override
+    public boolean isAutonomous() {
+        return getPhase() == Phase.AUTO;
+    }
+
+    @Override
+    public boolean isTeleop() {
+        double time = clock.getAsDouble();
+        return time >= TELEOP_START && time < MATCH_END;
+    }
+
+    @Override
+    public double getMatchTime() {
+        double time = clock.getAsDouble();
+        if (time >= AUTO_START && time < AUTO_START + AUTO_LENGTH)
+            return AUTO_START + AUTO_LENGTH - time;
+        if (time >= TELEOP_START && time < MATCH_END)
+            return MATCH_END - time;
+        return -1;
+    }
+
+    @Override
+    public Optional<Alliance> getAlliance() {
+        return clock.getAsDouble() < ALLIANCE_ASSIGNED ? Optional.empty() : Optional.of(alliance);
+    }
+}
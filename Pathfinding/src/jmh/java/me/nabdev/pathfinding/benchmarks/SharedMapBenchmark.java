@@ -0,0 +1,81 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.PathfinderBuilder;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.utilities.FieldLoader.Field;
+
+/**
+ * Planning throughput with one planner per benchmark thread, all sharing a
+ * single map. Compare runs with different thread counts (for example
+ * ./gradlew jmh -PjmhInclude=SharedMapBenchmark -PjmhThreads=4) to see how
+ * throughput scales with cores.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SharedMapBenchmark {
+    /**
+     * The map and corpus shared by every thread
+     */
+    @State(Scope.Benchmark)
+    public static class SharedField {
+        /**
+         * The field to plan on
+         */
+        @Param({ "REEFSCAPE_2025", "CRESCENDO_2024", "CHARGED_UP_2023" })
+        public Field field;
+
+        Pathfinder pathfinder;
+        BenchmarkCorpus corpus;
+
+        /**
+         * Build the shared pathfinder and draw the corpus
+         */
+        @Setup
+        public void setup() {
+            pathfinder = new PathfinderBuilder(field).build();
+            corpus = new BenchmarkCorpus(pathfinder);
+        }
+    }
+
+    private Pathfinder planner;
+    private int next = 0;
+
+    /**
+     * Create this thread's planner on the shared map
+     *
+     * @param shared The shared map
+     */
+    @Setup
+    public void setup(SharedField shared) {
+        planner = shared.pathfinder.createPlanner();
+    }
+
+    /**
+     * Plan a path between the next corpus pair
+     *
+     * @param shared The shared map
+     * @return The path
+     * @throws ImpossiblePathException Never, every corpus pair has a path
+     */
+    @Benchmark
+    public Path generatePath(SharedField shared) throws ImpossiblePathException {
+        int i = next;
+        next = (next + 1) % BenchmarkCorpus.SIZE;
+        return planner.generatePath(shared.corpus.starts[i], shared.corpus.targets[i], PathfindSnapMode.NONE);
+    }
+}
@@ -0,0 +1,226 @@
+package me.nabdev.pathfinding.benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Generates random fields with any number of obstacles, for measuring how the
+ * pathfinder scales past the size of the bundled fields. Every obstacle is a
+ * convex polygon with its vertices in clockwise order, so the fields pass the
+ * same validation as hand made ones.
+ *
+ * Obstacles are placed one per cell of a square grid, with a random position
+ * inside their cell, so they never overlap. The field grows with the obstacle
+ * count so that the fraction of it covered by obstacles stays at the chosen
+ * density.
+ */
+public class SyntheticFieldGenerator {
+    /**
+     * The default fraction of the field covered by obstacles
+     */
+    public static final double DEFAULT_DENSITY = 0.1;
+    /**
+     * The default obstacle radius (meters)
+     */
+    public static final double DEFAULT_RADIUS = 0.4;
+    /**
+     * The default smallest gap between neighboring obstacles (meters), wide
+     * enough for the default robot to drive through
+     */
+    public static final double DEFAULT_GAP = 1.2;
+
+    private final long seed;
+    private double density = DEFAULT_DENSITY;
+    private double radius = DEFAULT_RADIUS;
+    private double gap = DEFAULT_GAP;
+    private int minVertices = 3;
+    private int maxVertices = 8;
+    private final ArrayList<String[]> modifierMixes = new ArrayList<>();
+    private final ArrayList<Double> modifierWeights = new ArrayList<>();
+    private double totalWeight = 0;
+
+    /**
+     * Creates a new generator where every obstacle is always active
+     *
+     * @param seed The random seed, the same seed and settings always generate the
+     *             same field
+     */
+    public SyntheticFieldGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Set the fraction of the field covered by obstacles
+     *
+     * @param newDensity The density, between 0 and 1. Limited in practice by the
+     *                   radius and gap, see {@link #generate(int)}
+     * @return This generator
+     */
+    public SyntheticFieldGenerator setDensity(double newDensity) {
+        if (newDensity <= 0 || newDensity >= 1)
+            throw new IllegalArgumentException("Density must be between 0 and 1");
+        density = newDensity;
+        return this;
+    }
+
+    /**
+     * Set the radius of the circle every obstacle's vertices lie on
+     *
+     * @param newRadius The radius (meters)
+     * @return This generator
+     */
+    public SyntheticFieldGenerator setRadius(double newRadius) {
+        if (newRadius <= 0)
+            throw new IllegalArgumentException("Radius must be greater than 0");
+        radius = newRadius;
+        return this;
+    }
+
+    /**
+     * Set the smallest gap between neighboring obstacles. Keep this wider than
+     * twice the robot's clearance, or the inflated obstacles will merge and wall
+     * off parts of the field.
+     *
+     * @param newGap The gap (meters)
+     * @return This generator
+     */
+    public SyntheticFieldGenerator setGap(double newGap) {
+        if (newGap < 0)
+            throw new IllegalArgumentException("Gap must not be negative");
+        gap = newGap;
+        return this;
+    }
+
+    /**
+     * Set how many vertices each obstacle can have
+     *
+     * @param min The smallest number of vertices, at least 3
+     * @param max The largest number of vertices
+     * @return This generator
+     */
+    public SyntheticFieldGenerator setVertexRange(int min, int max) {
+        if (min < 3 || max < min)
+            throw new IllegalArgumentException("Vertex range must be at least 3 and max must be at least min");
+        minVertices = min;
+        maxVertices = max;
+        return this;
+    }
+
+    /**
+     * Add a combination of modifiers for obstacles to be given. Each obstacle is
+     * given one of the added combinations, chosen at random by weight. If none are
+     * added, every obstacle is ALWAYS_ACTIVE.
+     *
+     * @param weight    How likely this combination is, relative to the others
+     * @param modifiers The modifier names, as they would appear in a field JSON
+     * @return This generator
+     */
+    public SyntheticFieldGenerator addModifierMix(double weight, String... modifiers) {
+        if (weight <= 0)
+            throw new IllegalArgumentException("Weight must be greater than 0");
+        if (modifiers.length == 0)
+            throw new IllegalArgumentException("At least one modifier is required");
+        modifierMixes.add(modifiers);
+        modifierWeights.add(weight);
+        totalWeight += weight;
+        return this;
+    }
+
+    /**
+     * Generate a field
+     *
+     * @param obstacleCount The number of obstacles
+     * @return The field JSON, in format version 2
+     * @throws IllegalStateException If the density is too high to keep the gap
+     *                               between obstacles
+     */
+    public JSONObject generate(int obstacleCount) {
+        if (obstacleCount < 1)
+            throw new IllegalArgumentException("Obstacle count must be at least 1");
+        Random random = new Random(seed);
+        int columns = (int) Math.ceil(Math.sqrt(obstacleCount));
+        int rows = (int) Math.ceil(obstacleCount / (double) columns);
+        // Each cell holds one obstacle with an area of about pi * r^2
+        double cellSize = Math.sqrt(Math.PI * radius * radius / density);
+        // How far an obstacle can move inside its cell. Neighbors moving toward
+        // each other by half of this each still leave the full gap.
+        double slack = cellSize - 2 * radius - gap;
+        if (slack < 0)
+            throw new IllegalStateException("Density " + density + " is too high to keep a " + gap
+                    + " m gap between obstacles of radius " + radius + " m");
+
+        JSONArray obstacles = new JSONArray();
+        for (int i = 0; i < obstacleCount; i++) {
+            double cx = (i % columns + 0.5) * cellSize + (random.nextDouble() - 0.5) * slack;
+            double cy = (i / columns + 0.5) * cellSize + (random.nextDouble() - 0.5) * slack;
+            JSONObject obstacle = new JSONObject();
+            obstacle.put("id", "synthetic-" + i);
+            obstacle.put("vertices", polygon(random, cx, cy));
+            obstacle.put("modifiers", modifiers(random));
+            obstacles.put(obstacle);
+        }
+
+        JSONObject field = new JSONObject();
+        field.put("formatVersion", 2);
+        field.put("fieldX", columns * cellSize);
+        field.put("fieldY", rows * cellSize);
+        field.put("obstacles", obstacles);
+        return field;
+    }
+
+    /**
+     * Generate a field and write it to a file
+     *
+     * @param obstacleCount The number of obstacles
+     * @param file          The file to write to
+     * @throws IOException If the file can't be written
+     */
+    public void write(int obstacleCount, File file) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(generate(obstacleCount).toString());
+        }
+    }
+
+    // Vertices on a circle are always convex. Walking the angles downward makes
+    // them clockwise.
+    private JSONArray polygon(Random random, double cx, double cy) {
+        int count = minVertices + random.nextInt(maxVertices - minVertices + 1);
+        // Spread the vertices evenly, then jitter each one within its own slice so
+        // no two vertices are too close together
+        double slice = 2 * Math.PI / count;
+        double offset = random.nextDouble() * 2 * Math.PI;
+        JSONArray vertices = new JSONArray();
+        for (int j = 0; j < count; j++) {
+            double angle = offset - (j + 0.25 + random.nextDouble() * 0.5) * slice;
+            JSONArray vertex = new JSONArray();
+            vertex.put(cx + radius * Math.cos(angle));
+            vertex.put(cy + radius * Math.sin(angle));
+            vertices.put(vertex);
+        }
+        return vertices;
+    }
+
+    private JSONArray modifiers(Random random) {
+        JSONArray result = new JSONArray();
+        if (modifierMixes.isEmpty()) {
+            result.put("ALWAYS_ACTIVE");
+            return result;
+        }
+        double pick = random.nextDouble() * totalWeight;
+        int chosen = 0;
+        while (chosen < modifierMixes.size() - 1 && pick >= modifierWeights.get(chosen)) {
+            pick -= modifierWeights.get(chosen);
+            chosen++;
+        }
+        for (String modifier : modifierMixes.get(chosen)) {
+            result.put(modifier);
+        }
+        return result;
+    }
+}
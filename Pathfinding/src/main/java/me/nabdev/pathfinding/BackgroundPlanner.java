@@ -0,0 +1,293 @@
+package me.nabdev.pathfinding;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+
+/**
+ * Continuously replans toward a goal on a dedicated thread, so that planning
+ * never runs in the robot's main loop. The robot thread supplies the latest
+ * pose and goal, and reads the newest path with {@link #getLatest()}, which
+ * never blocks.
+ *
+ * While a planner is running, {@link Pathfinder#periodic()} calls from other
+ * threads are handed to the planner thread instead of changing the map
+ * directly. Paths can still be generated from other threads, but they will wait
+ * for any plan in progress to finish.
+ */
+public class BackgroundPlanner {
+    /**
+     * The default time between plans (milliseconds)
+     */
+    public static final long DEFAULT_PERIOD_MS = 20;
+
+    /**
+     * A path published by the planner. Snapshots are immutable and never change
+     * after they are published, so they can be used from any thread.
+     */
+    public static final class Snapshot {
+        /**
+         * The path from the pose the plan started at to the goal. Should not be
+         * modified.
+         */
+        public final Path path;
+        /**
+         * The pose the plan started at
+         */
+        public final Pose2d start;
+        /**
+         * The goal the plan was made for
+         */
+        public final Pose2d goal;
+        /**
+         * Increases by one with every published snapshot
+         */
+        public final long version;
+        /**
+         * When the plan finished, from System.nanoTime()
+         */
+        public final long timestampNanos;
+        /**
+         * How long the plan took (milliseconds)
+         */
+        public final double planTimeMs;
+
+        Snapshot(Path path, Pose2d start, Pose2d goal, long version, long timestampNanos, double planTimeMs) {
+            this.path = path;
+            this.start = start;
+            this.goal = goal;
+            this.version = version;
+            this.timestampNanos = timestampNanos;
+            this.planTimeMs = planTimeMs;
+        }
+    }
+
+    private final Pathfinder pathfinder;
+    private final PathfindSnapMode snapMode;
+    private final long periodNanos;
+
+    private final AtomicReference<Pose2d> pose = new AtomicReference<>();
+    private final AtomicReference<Pose2d> goal = new AtomicReference<>();
+    private final AtomicReference<Snapshot> latest = new AtomicReference<>();
+    private final AtomicReference<Exception> lastError = new AtomicReference<>();
+    private final AtomicBoolean periodicRequested = new AtomicBoolean(false);
+    private final AtomicLong failures = new AtomicLong();
+
+    private volatile boolean running = false;
+    private volatile Thread thread;
+    private long version = 0;
+
+    /**
+     * Creates a new background planner that plans every 20ms with
+     * PathfindSnapMode.SNAP_ALL. Call {@link #start()} to start planning.
+     *
+     * @param pathfinder The pathfinder to plan with
+     */
+    public BackgroundPlanner(Pathfinder pathfinder) {
+        this(pathfinder, PathfindSnapMode.SNAP_ALL, DEFAULT_PERIOD_MS);
+    }
+
+    /**
+     * Creates a new background planner. Call {@link #start()} to start planning.
+     *
+     * @param pathfinder The pathfinder to plan with
+     * @param snapMode   The snap mode to use
+     * @param periodMs   The time between the start of each plan (milliseconds).
+     *                   If a plan takes longer than this, the next one starts
+     *                   right away.
+     */
+    public BackgroundPlanner(Pathfinder pathfinder, PathfindSnapMode snapMode, long periodMs) {
+        if (periodMs <= 0)
+            throw new IllegalArgumentException("Period must be greater than 0");
+        this.pathfinder = pathfinder;
+        this.snapMode = snapMode;
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMs);
+    }
+
+    /**
+     * Start the planning thread. Only one planner can run per pathfinder at a
+     * time.
+     *
+     * @throws IllegalStateException If this or another planner is already running
+     *                               for the pathfinder
+     */
+    public synchronized void start() {
+        if (running)
+            throw new IllegalStateException("Background planner is already running");
+        pathfinder.attachBackgroundPlanner(this);
+        running = true;
+        Thread t = new Thread(this::run, "Pathfinder Background Planner");
+        t.setDaemon(true);
+        thread = t;
+        t.start();
+    }
+
+    /**
+     * Stop the planning thread, waiting for any plan in progress to finish. The
+     * last published path is kept.
+     */
+    public synchronized void stop() {
+        if (!running)
+            return;
+        running = false;
+        Thread t = thread;
+        LockSupport.unpark(t);
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        pathfinder.detachBackgroundPlanner(this);
+    }
+
+    /**
+     * Whether or not the planning thread is running. The thread also stops on its
+     * own if {@link Pathfinder#periodic()} throws on it, see
+     * {@link #getLastError()}.
+     *
+     * @return True if the planner is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Set the robot's latest pose. Should be called every loop.
+     *
+     * @param newPose The robot's current pose
+     */
+    public void setPose(Pose2d newPose) {
+        pose.set(newPose);
+    }
+
+    /**
+     * Set the goal to plan toward. The planner wakes up and plans right away.
+     *
+     * @param newGoal The goal pose
+     */
+    public void setGoal(Pose2d newGoal) {
+        goal.set(newGoal);
+        wake();
+    }
+
+    /**
+     * Stop planning toward the current goal. The last published path is cleared.
+     */
+    public void clearGoal() {
+        goal.set(null);
+        latest.set(null);
+    }
+
+    /**
+     * Get the newest published path. Never blocks.
+     *
+     * @return The newest snapshot, or null if nothing has been planned for the
+     *         current goal yet
+     */
+    public Snapshot getLatest() {
+        return latest.get();
+    }
+
+    /**
+     * Get the error from the most recent plan that failed, or the error that
+     * stopped the planning thread
+     *
+     * @return The last error, or null if no plan has failed
+     */
+    public Exception getLastError() {
+        return lastError.get();
+    }
+
+    /**
+     * Get the number of plans that failed. The previous path stays published when
+     * a plan fails.
+     *
+     * @return The number of failed plans
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Ask the planner thread to run {@link Pathfinder#periodic()} before its next
+     * plan. Called by the pathfinder when periodic is called from another thread.
+     */
+    void requestPeriodic() {
+        periodicRequested.set(true);
+        wake();
+    }
+
+    /**
+     * Whether or not the calling thread is this planner's thread
+     *
+     * @return True if called from the planning thread
+     */
+    boolean isPlannerThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    private void wake() {
+        Thread t = thread;
+        if (t != null)
+            LockSupport.unpark(t);
+    }
+
+    private void run() {
+        try {
+            long nextStart = System.nanoTime();
+            while (running) {
+                long now = System.nanoTime();
+                if (now < nextStart) {
+                    LockSupport.parkNanos(this, nextStart - now);
+                    // Woken early by a new goal or a periodic request
+                    if (running && System.nanoTime() < nextStart && goal.get() == null && !periodicRequested.get())
+                        continue;
+                }
+                nextStart = System.nanoTime() + periodNanos;
+
+                if (periodicRequested.getAndSet(false))
+                    pathfinder.periodic();
+
+                Pose2d currentGoal = goal.get();
+                Pose2d currentPose = pose.get();
+                if (currentGoal == null || currentPose == null)
+                    continue;
+                plan(currentPose, currentGoal);
+            }
+        } catch (RuntimeException e) {
+            lastError.set(e);
+            throw e;
+        } finally {
+            // If the thread died, hand periodic back to the robot loop so the obstacle
+            // state keeps updating. Detached before running is cleared, so this can't
+            // detach the planner after it is started again.
+            pathfinder.detachBackgroundPlanner(this);
+            running = false;
+        }
+    }
+
+    private void plan(Pose2d start, Pose2d target) {
+        long startTime = System.nanoTime();
+        try {
+            Path path = pathfinder.generatePath(start, target, snapMode);
+            long endTime = System.nanoTime();
+            // Don't publish a path for a goal that was cleared or changed while planning
+            if (goal.get() != target)
+                return;
+            version++;
+            latest.set(new Snapshot(path, start, target, version, endTime, (endTime - startTime) / 1000000.0));
+        } catch (ImpossiblePathException | RuntimeException e) {
+            // Anything else going wrong in one plan shouldn't stop the planner
+            failures.incrementAndGet();
+            lastError.set(e);
+        }
+    }
+}
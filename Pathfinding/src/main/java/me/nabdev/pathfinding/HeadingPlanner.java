@@ -0,0 +1,330 @@
+package me.nabdev.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Map;
+import me.nabdev.pathfinding.structures.MapSnapshot;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.Vertex;
+
+/**
+ * Plans paths for a rectangular robot using its actual footprint instead of the
+ * circle around it, so a long robot can drive through gaps the circle would
+ * block by turning to face along them.
+ *
+ * The headings are split into bins, and the obstacles are inflated for each bin
+ * when the planner is created (see
+ * {@link Map#getHeadingLayer(double, double, double, double)}). Since the robot
+ * is a rectangle, a heading and the opposite heading are the same bin. The
+ * search runs over every bin's visibility graph at once: within a bin the robot
+ * drives along the bin's graph, and it can turn into a neighboring bin at any
+ * corner of the graph that is clear in both, or at the start or the target. Each
+ * turn costs {@link #getRotationCost()}. Only the start and target are checked
+ * against the obstacles when planning, like the {@link Pathfinder}, so a query
+ * costs about the same.
+ *
+ * The returned path's route (see {@link Path#getRoute()}) holds the heading the
+ * robot should have at each corner.
+ */
+public class HeadingPlanner {
+    /**
+     * The default cost of turning into a neighboring heading bin, as a distance
+     * (meters)
+     */
+    public static final double DEFAULT_ROTATION_COST = 0.1;
+
+    private final Pathfinder pathfinder;
+    private final int bins;
+    private final double binWidth;
+    private final Map[] layers;
+    // Static path vertices of bin b are the search nodes from offsets[b]
+    private final int[] offsets;
+    private final int[] nodeBins;
+    private final int staticCount;
+    private volatile double rotationCost = DEFAULT_ROTATION_COST;
+
+    private final Object planningLock = new Object();
+    // The graphs the turns were found for, by identity, and the turns from each
+    // bin's vertices into the next bin up and down
+    private int[][][] cachedGraphs;
+    private boolean[][][] cachedTurns;
+
+    /**
+     * Creates a new heading planner, inflating the obstacles for every heading bin
+     * on the pathfinder's map. This is expensive, and should be done once at the
+     * start of the program (see {@link PathfinderBuilder#setHeadingBins(int)}).
+     *
+     * @param pathfinder  The pathfinder whose map and path settings to use
+     * @param robotWidth  The width of the robot, across its heading (meters)
+     * @param robotLength The length of the robot, along its heading (meters)
+     * @param bins        The number of heading bins. More bins fit tighter gaps
+     *                    but take longer to build and search.
+     */
+    public HeadingPlanner(Pathfinder pathfinder, double robotWidth, double robotLength, int bins) {
+        if (bins <= 0)
+            throw new IllegalArgumentException("Heading bins must be greater than 0");
+        this.pathfinder = pathfinder;
+        this.bins = bins;
+        binWidth = Math.PI / bins;
+        layers = new Map[bins];
+        offsets = new int[bins];
+        int count = 0;
+        for (int b = 0; b < bins; b++) {
+            layers[b] = pathfinder.map.getHeadingLayer(robotWidth, robotLength, b * binWidth, (b + 1) * binWidth);
+            offsets[b] = count;
+            count += layers[b].getPathVerticesStatic().size();
+        }
+        staticCount = count;
+        nodeBins = new int[count];
+        for (int b = 0; b < bins; b++) {
+            Arrays.fill(nodeBins, offsets[b], offsets[b] + layers[b].getPathVerticesStatic().size(), b);
+        }
+    }
+
+    /**
+     * Get the map for the bin a heading falls in
+     *
+     * @param heading The heading
+     * @return The heading layer for the heading
+     */
+    public Map getLayer(Rotation2d heading) {
+        return layers[bin(heading)];
+    }
+
+    /**
+     * Get the number of heading bins
+     *
+     * @return The number of bins
+     */
+    public int getBins() {
+        return bins;
+    }
+
+    /**
+     * Get the cost of turning into a neighboring heading bin
+     *
+     * @return The rotation cost, as a distance (meters)
+     */
+    public double getRotationCost() {
+        return rotationCost;
+    }
+
+    /**
+     * Set the cost of turning into a neighboring heading bin. Higher costs make
+     * the planner prefer a slightly longer path over turning.
+     *
+     * @param rotationCost The rotation cost, as a distance (meters), default
+     *                     {@link #DEFAULT_ROTATION_COST}
+     */
+    public void setRotationCost(double rotationCost) {
+        if (rotationCost < 0)
+            throw new IllegalArgumentException("Rotation cost cannot be negative");
+        this.rotationCost = rotationCost;
+    }
+
+    /**
+     * Generates a path from the start pose to the target pose, snapping both out
+     * of the obstacles of their heading bin.
+     *
+     * @param start  The starting pose
+     * @param target The target pose
+     * @return The path, with the heading at each corner in its route
+     * @throws ImpossiblePathException If no path can be found
+     */
+    public Path generatePath(Pose2d start, Pose2d target) throws ImpossiblePathException {
+        synchronized (planningLock) {
+            // Every layer follows the same match state source, so the snapshots agree
+            MapSnapshot[] snapshots = new MapSnapshot[bins];
+            for (int b = 0; b < bins; b++) {
+                snapshots[b] = layers[b].getSnapshot();
+            }
+            boolean[][][] turns = turns(snapshots);
+            int startBin = bin(start.getRotation());
+            int targetBin = bin(target.getRotation());
+            Vertex startVertex = pathfinder.snap(new Vertex(start), snapshots[startBin]);
+            Vertex targetVertex = pathfinder.snap(new Vertex(target), snapshots[targetBin]);
+            targetVertex.rotation = target.getRotation();
+            int[] startTurns = turnsInPlace(startVertex, startBin, snapshots);
+            int[] targetTurns = turnsInPlace(targetVertex, targetBin, snapshots);
+            double cost = rotationCost;
+
+            // The start in each bin, then the target
+            int targetNode = staticCount + bins;
+            double[] g = new double[targetNode + 1];
+            int[] parent = new int[targetNode + 1];
+            boolean[] closed = new boolean[targetNode + 1];
+            Arrays.fill(g, Double.POSITIVE_INFINITY);
+            Arrays.fill(parent, -1);
+            PriorityQueue<double[]> open = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+            double startH = startVertex.distance(targetVertex);
+            for (int b = 0; b < bins; b++) {
+                if (startTurns[b] == Integer.MIN_VALUE)
+                    continue;
+                g[staticCount + b] = Math.abs(startTurns[b]) * cost;
+                open.add(new double[] { g[staticCount + b] + startH, staticCount + b });
+            }
+            while (true) {
+                double[] entry = open.poll();
+                if (entry == null)
+                    throw new ImpossiblePathException("No possible path found.");
+                int current = (int) entry[1];
+                if (closed[current])
+                    continue;
+                closed[current] = true;
+                if (current == targetNode)
+                    return buildPath(current, parent, start, startVertex, targetVertex, startBin, startTurns,
+                            snapshots);
+
+                int bin = current >= staticCount ? current - staticCount : nodeBins[current];
+                MapSnapshot snapshot = snapshots[bin];
+                Vertex position = current >= staticCount ? startVertex
+                        : snapshot.getPathVertices().get(current - offsets[bin]);
+                ArrayList<Vertex> binVertices = snapshot.getPathVertices();
+                if (current >= staticCount) {
+                    // The start isn't in the static graph, so its neighbors are checked here
+                    for (int j = 0; j < binVertices.size(); j++) {
+                        if (snapshot.isValid(j) && !snapshot.crossesActiveEdge(position, binVertices.get(j)))
+                            relax(open, g, parent, closed, current, offsets[bin] + j,
+                                    position.distance(binVertices.get(j)), targetVertex, snapshots);
+                    }
+                } else {
+                    int index = current - offsets[bin];
+                    for (int j : snapshot.getAdjacency()[index]) {
+                        relax(open, g, parent, closed, current, offsets[bin] + j,
+                                position.distance(binVertices.get(j)), targetVertex, snapshots);
+                    }
+                    for (int direction = 0; direction < 2; direction++) {
+                        if (turns[bin][direction] == null || !turns[bin][direction][index])
+                            continue;
+                        int next = neighborBin(bin, direction);
+                        Vertex turned = snapshots[next].getPathVertices().get(index);
+                        relax(open, g, parent, closed, current, offsets[next] + index,
+                                position.distance(turned) + cost, targetVertex, snapshots);
+                    }
+                }
+                if (targetTurns[bin] != Integer.MIN_VALUE && !snapshot.crossesActiveEdge(position, targetVertex))
+                    relax(open, g, parent, closed, current, targetNode,
+                            position.distance(targetVertex) + Math.abs(targetTurns[bin]) * cost, targetVertex,
+                            snapshots);
+            }
+        }
+    }
+
+    private void relax(PriorityQueue<double[]> open, double[] g, int[] parent, boolean[] closed, int from, int to,
+            double edgeCost, Vertex targetVertex, MapSnapshot[] snapshots) {
+        if (closed[to] || g[from] + edgeCost >= g[to])
+            return;
+        g[to] = g[from] + edgeCost;
+        parent[to] = from;
+        double h = to == staticCount + bins ? 0 : position(to, snapshots).distance(targetVertex);
+        open.add(new double[] { g[to] + h, to });
+    }
+
+    private Vertex position(int node, MapSnapshot[] snapshots) {
+        int bin = nodeBins[node];
+        return snapshots[bin].getPathVertices().get(node - offsets[bin]);
+    }
+
+    private Path buildPath(int targetNode, int[] parent, Pose2d start, Vertex startVertex, Vertex targetVertex,
+            int startBin, int[] startTurns, MapSnapshot[] snapshots) {
+        ArrayList<Integer> nodes = new ArrayList<>();
+        int node = parent[targetNode];
+        while (node < staticCount) {
+            nodes.add(0, node);
+            node = parent[node];
+        }
+        int bin = node - staticCount;
+        // Turning keeps the robot at the same place within each bin, so the
+        // heading stays continuous instead of jumping to the middle of the bin
+        double heading = start.getRotation().getRadians() + startTurns[bin] * binWidth;
+        Path path = new Path(startVertex, targetVertex, pathfinder);
+        for (int n : nodes) {
+            int nodeBin = nodeBins[n];
+            if (nodeBin != bin)
+                heading += (Math.floorMod(nodeBin - bin, bins) == 1 ? 1 : -1) * binWidth;
+            bin = nodeBin;
+            Vertex v = position(n, snapshots);
+            path.add(new Vertex(v.x, v.y, new Rotation2d(heading)));
+        }
+        path.setUnsnappedTarget(new Vertex(targetVertex.x, targetVertex.y, targetVertex.rotation));
+        path.processPath(PathfindSnapMode.SNAP_ALL);
+        return path;
+    }
+
+    // How many bins (signed) the robot has to turn through at a point to reach
+    // each bin from the given one, turning the shorter way it can. The point has
+    // to be clear in every bin it turns through. Integer.MIN_VALUE if it can't.
+    private int[] turnsInPlace(Vertex point, int fromBin, MapSnapshot[] snapshots) {
+        int[] turns = new int[bins];
+        Arrays.fill(turns, Integer.MIN_VALUE);
+        turns[fromBin] = 0;
+        for (int direction : new int[] { 1, -1 }) {
+            for (int step = 1; step < bins; step++) {
+                int b = Math.floorMod(fromBin + direction * step, bins);
+                if (!snapshots[b].isRobotInObstacle(point, true).isEmpty())
+                    break;
+                if (turns[b] == Integer.MIN_VALUE || step < Math.abs(turns[b]))
+                    turns[b] = direction * step;
+            }
+        }
+        return turns;
+    }
+
+    // The turns out of every static path vertex into the bins above and below,
+    // only found again when some bin's graph changes
+    private boolean[][][] turns(MapSnapshot[] snapshots) {
+        int[][][] graphs = new int[bins][][];
+        for (int b = 0; b < bins; b++) {
+            graphs[b] = snapshots[b].getAdjacency();
+        }
+        if (cachedGraphs != null) {
+            boolean same = true;
+            for (int b = 0; b < bins; b++) {
+                same &= cachedGraphs[b] == graphs[b];
+            }
+            if (same)
+                return cachedTurns;
+        }
+        boolean[][][] turns = new boolean[bins][2][];
+        for (int b = 0; b < bins; b++) {
+            for (int direction = 0; direction < 2; direction++) {
+                int next = neighborBin(b, direction);
+                // With one bin there is nothing to turn into, and with two both
+                // directions lead to the same bin
+                if (next == b || (direction == 1 && next == neighborBin(b, 0)))
+                    continue;
+                ArrayList<Vertex> from = snapshots[b].getPathVertices();
+                ArrayList<Vertex> to = snapshots[next].getPathVertices();
+                boolean[] valid = new boolean[from.size()];
+                for (int i = 0; i < Math.min(from.size(), to.size()); i++) {
+                    // Turn at this bin's corner, then move to the next bin's
+                    valid[i] = snapshots[b].isValid(i) && snapshots[next].isValid(i)
+                            && snapshots[next].isRobotInObstacle(from.get(i), false).isEmpty()
+                            && !snapshots[next].crossesActiveEdge(from.get(i), to.get(i));
+                }
+                turns[b][direction] = valid;
+            }
+        }
+        cachedGraphs = graphs;
+        cachedTurns = turns;
+        return turns;
+    }
+
+    private int neighborBin(int bin, int direction) {
+        return Math.floorMod(bin + (direction == 0 ? 1 : -1), bins);
+    }
+
+    // Headings half a turn apart are the same bin, since the robot is a rectangle
+    private int bin(Rotation2d heading) {
+        double angle = heading.getRadians() % Math.PI;
+        if (angle < 0)
+            angle += Math.PI;
+        return Math.min((int) (angle / binWidth), bins - 1);
+    }
+}
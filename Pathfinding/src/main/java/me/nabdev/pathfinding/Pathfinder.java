@@ -2,25 +2,52 @@ package me.nabdev.pathfinding;
 
 import me.nabdev.pathfinding.algorithms.Astar;
 import me.nabdev.pathfinding.algorithms.SearchAlgorithm;
+import me.nabdev.pathfinding.algorithms.SearchContext;
+import me.nabdev.pathfinding.algorithms.WaypointOrder;
 import me.nabdev.pathfinding.algorithms.SearchAlgorithm.SearchAlgorithmType;
+import me.nabdev.pathfinding.jfr.PathfindEvent;
+import me.nabdev.pathfinding.jfr.PlanningStageEvent;
+import me.nabdev.pathfinding.metrics.NetworkTablesMetricsSink;
+import me.nabdev.pathfinding.metrics.NoOpMetricsSink;
+import me.nabdev.pathfinding.metrics.PlannerMetrics;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Counter;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Stage;
+import me.nabdev.pathfinding.modifiers.MatchStateSource;
+import me.nabdev.pathfinding.structures.CornerTemplateCache;
 import me.nabdev.pathfinding.structures.Edge;
+import me.nabdev.pathfinding.structures.FieldSymmetry;
 import me.nabdev.pathfinding.structures.ImpossiblePathException;
 import me.nabdev.pathfinding.structures.Map;
+import me.nabdev.pathfinding.structures.MapSnapshot;
 import me.nabdev.pathfinding.structures.Obstacle;
 import me.nabdev.pathfinding.structures.Path;
 import me.nabdev.pathfinding.structures.Vertex;
-import me.nabdev.pathfinding.utilities.DriverStationWrapper;
 import me.nabdev.pathfinding.utilities.FieldLoader.FieldData;
 import me.nabdev.pathfinding.utilities.FieldLoader.ObstacleData;
+import me.nabdev.pathfinding.utilities.TrajectoryCache;
 
 import java.util.ArrayList;
-import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.math.trajectory.TrajectoryConfig;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.networktables.NetworkTableInstance;
 
 /**
  * The main pathfinder class, and the only one you should need to interact with.
@@ -74,14 +101,99 @@ public class Pathfinder {
      * Whether or not to profile the pathfinding process
      */
     private boolean profiling;
+    /**
+     * Per-stage latency and work counters, published to NetworkTables while
+     * profiling
+     */
+    private final PlannerMetrics metrics = new PlannerMetrics();
+    /**
+     * The NetworkTables table the metrics are published to while profiling. Each
+     * planner made with {@link #createPlanner()} gets its own, so they don't
+     * publish over each other.
+     */
+    private final String metricsTable;
+    /**
+     * The number of planners made with {@link #createPlanner()} or
+     * {@link #createPlanner(double)}, used to name their metrics tables
+     */
+    private static final AtomicInteger plannerCount = new AtomicInteger();
     /**
      * The search algorithm to use
      */
     private SearchAlgorithmType searchAlgorithmType;
+    /**
+     * Whether or not to profile trajectories directly from the path geometry
+     * instead of using WPILib's TrajectoryGenerator
+     */
+    private boolean nativeTrajectories = true;
+    /**
+     * Whether or not to reuse the processed tail of the last path when the route
+     * to the target has not changed
+     */
+    private boolean pathSplicing = false;
+    /**
+     * Incremented whenever a setting that changes how paths are processed changes,
+     * so that paths processed with old settings are not reused
+     */
+    private int pathSettingsVersion = 0;
+    /**
+     * The last processed path, used for path splicing
+     */
+    private Path lastPath;
+    /**
+     * Sampled corner shapes, reused for every corner with the same turn angle and
+     * leg lengths
+     */
+    private final CornerTemplateCache cornerCache = new CornerTemplateCache();
+    /**
+     * Recently generated trajectories, reused when the same path and config are
+     * requested again
+     */
+    private TrajectoryCache trajectoryCache = new TrajectoryCache(DEFAULT_TRAJECTORY_CACHE_SIZE);
+
+    /**
+     * The default number of trajectories to keep in the trajectory cache
+     */
+    public static final int DEFAULT_TRAJECTORY_CACHE_SIZE = 16;
+
+    /**
+     * Held while planning, so that only one thread uses this pathfinder's search
+     * state and last path at a time. Pathfinders sharing a map each have their
+     * own, so they can plan at the same time.
+     */
+    private final Object planningLock = new Object();
+    /**
+     * The search state for single-leg paths, reused by every query
+     */
+    private final SearchContext searchContext;
+    /**
+     * Runs the legs of multi-waypoint paths in parallel, shared by every
+     * pathfinder
+     */
+    private static ExecutorService legExecutor;
+    /**
+     * The background planner that currently owns the map, if any
+     */
+    private volatile BackgroundPlanner backgroundPlanner;
+    /**
+     * The planner for the robot's rectangular footprint, or null if the pathfinder
+     * was built without heading bins
+     */
+    private HeadingPlanner headingPlanner;
+    /**
+     * Runs asynchronous planning requests, null to use the shared default
+     */
+    private volatile Executor asyncExecutor;
+    /**
+     * The default executor for asynchronous planning, shared by every pathfinder
+     */
+    private static ExecutorService defaultAsyncExecutor;
+    /**
+     * The newest asynchronous request on each channel
+     */
+    private final ConcurrentHashMap<String, PlanJob<?>> channels = new ConcurrentHashMap<>();
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
 
-    private double lastMatchTime = DriverStationWrapper.getMatchTime();
-    private Optional<Alliance> lastAlliance = DriverStationWrapper.getAlliance();
-    private boolean lastIsAuto = DriverStationWrapper.isAutonomous();
     // Every obstacle vertex (ORDER IS IMPORTANT)
     ArrayList<Vertex> obstacleVertices = new ArrayList<>();
     ArrayList<Vertex> uninflatedObstacleVertices = new ArrayList<>();
@@ -114,6 +226,7 @@ public class Pathfinder {
     public Pathfinder(FieldData field, double pointSpacing, double cornerPointSpacing, double cornerDist,
             double clearance, double cornerSplitPercent, boolean injectPoints, boolean normalizeCorners,
             SearchAlgorithmType searchAlgorithmType, boolean profiling, double endgameTime) {
+        metricsTable = NetworkTablesMetricsSink.DEFAULT_TABLE;
         this.pointSpacing = pointSpacing;
         this.cornerPointSpacing = cornerPointSpacing;
         this.cornerDist = cornerDist;
@@ -147,43 +260,128 @@ public class Pathfinder {
             obstacles.add(newObs);
         }
 
-        // Create the map object
-        map = new Map(obstacles, obstacleVertices, edges, clearance, field.fieldX, field.fieldY);
+        // Create the map object, from the compiled map if the field was loaded from
+        // an artifact
+        if (field.compiled != null && field.compiled.getClearance() == clearance)
+            map = new Map(obstacles, obstacleVertices, edges, field.compiled, field.fieldX, field.fieldY);
+        else
+            map = new Map(obstacles, obstacleVertices, edges, clearance, field.fieldX, field.fieldY);
+        map.setMetrics(metrics);
+        if (profiling)
+            metrics.setSink(createMetricsSink());
 
         for (Obstacle obs : obstacles) {
             obs.initialize(map.getPathVerticesStatic());
-            obs.modifiers.invalidateCache();
         }
+        searchContext = new SearchContext(map, metrics);
+    }
+
+    /**
+     * Create a pathfinder for another robot that shares this pathfinder's map.
+     * The obstacles and the static visibility graph are stored once no matter how
+     * many planners share them, and the planners can plan at the same time.
+     * 
+     * The new pathfinder starts with the same settings as this one, but has its
+     * own search state, metrics, trajectory cache and last path, and its settings
+     * can be changed independently. Settings that change the map (the field and
+     * the clearance) can't differ between planners that share it, see
+     * {@link #createPlanner(double)} for a different clearance.
+     * 
+     * @return A new pathfinder sharing this pathfinder's map
+     */
+    public Pathfinder createPlanner() {
+        return new Pathfinder(this, map);
+    }
+
+    /**
+     * Create a pathfinder that plans with a different clearance on the same field,
+     * for another footprint of the same robot (like carrying a game piece with
+     * the arm out) or another robot. It plans on a clearance layer of this
+     * pathfinder's map (see {@link Map#getLayer(double)}), which shares the field
+     * and the match state with it and only stores its own inflated obstacles and
+     * visibility graphs. Layers are built the first time they are asked for, and
+     * pathfinders with the same clearance share one.
+     * 
+     * Otherwise the new pathfinder is like one from {@link #createPlanner()}. Pick
+     * the planner for the robot's current footprint for each query.
+     * 
+     * @param plannerClearance The clearance to inflate obstacles by (meters). Like
+     *                         the builder's, this is half the diagonal of the
+     *                         robot's footprint.
+     * @return A new pathfinder planning with the given clearance
+     */
+    public Pathfinder createPlanner(double plannerClearance) {
+        return new Pathfinder(this, map.getLayer(plannerClearance));
+    }
+
+    private Pathfinder(Pathfinder source, Map map) {
+        this.map = map;
+        metricsTable = NetworkTablesMetricsSink.DEFAULT_TABLE + "/Planner " + plannerCount.incrementAndGet();
+        pointSpacing = source.pointSpacing;
+        cornerPointSpacing = source.cornerPointSpacing;
+        cornerDist = source.cornerDist;
+        clearance = map.getClearance();
+        cornerSplitPercent = source.cornerSplitPercent;
+        injectPoints = source.injectPoints;
+        normalizeCorners = source.normalizeCorners;
+        searchAlgorithmType = source.searchAlgorithmType;
+        profiling = source.profiling;
+        nativeTrajectories = source.nativeTrajectories;
+        pathSplicing = source.pathSplicing;
+        trajectoryCache = new TrajectoryCache(source.trajectoryCache.getMaxSize());
+        asyncExecutor = source.asyncExecutor;
+        // The geometry is only read after construction, so the lists are shared. A
+        // clearance layer keeps its own obstacles, these are only for visualization.
+        obstacleVertices = source.obstacleVertices;
+        uninflatedObstacleVertices = source.uninflatedObstacleVertices;
+        edges = source.edges;
+        obstacles = source.obstacles;
+        if (profiling)
+            metrics.setSink(createMetricsSink());
+        searchContext = new SearchContext(map, metrics);
     }
 
     /**
-     * Updates the modifier cache based on data from the driver station and wpilib.
-     * Should be called in robotPeriodic.
+     * Reads the match state from the map's {@link MatchStateSource} (the driver
+     * station unless another is set) and updates the active obstacles if it
+     * changed. Should be called once per loop in robotPeriodic: planning a path
+     * doesn't read the match state itself, so the obstacles only change when this
+     * is called. If a {@link BackgroundPlanner} is running, the update is handed to
+     * the planner thread instead. Also publishes the planner metrics if profiling.
      */
     public void periodic() {
-        boolean shouldInvalidate = false;
-        if (DriverStationWrapper.getMatchTime() < endgameTime && !(lastMatchTime < endgameTime)) {
-            shouldInvalidate = true;
-        }
-        lastMatchTime = DriverStationWrapper.getMatchTime();
-        Optional<Alliance> alliance = DriverStationWrapper.getAlliance();
-        if (!alliance.equals(lastAlliance)) {
-            lastAlliance = alliance;
-            shouldInvalidate = true;
-        }
-        boolean isAuto = DriverStationWrapper.isAutonomous();
-        if (isAuto != lastIsAuto) {
-            lastIsAuto = isAuto;
-            shouldInvalidate = true;
-        }
-        if (shouldInvalidate) {
-            for (Obstacle obs : obstacles) {
-                obs.modifiers.invalidateCache();
-            }
-            map.regenerateVisibilityGraph();
+        metrics.publish();
+        BackgroundPlanner planner = backgroundPlanner;
+        if (planner != null && !planner.isPlannerThread()) {
+            // The planner thread owns the map while it is running
+            planner.requestPeriodic();
+            return;
         }
+        map.updateObstacleState();
     }
 
+    /**
+     * Set where the match state that decides which obstacles are active comes
+     * from. Use a {@link me.nabdev.pathfinding.modifiers.ManualMatchState} to drive
+     * the match by hand in tests or simulation. The source belongs to the map, so
+     * this affects every pathfinder sharing it.
+     * 
+     * @param source The match state source
+     */
+    public void setMatchStateSource(MatchStateSource source) {
+        map.setMatchStateSource(source);
+    };
+
+    /**
+     * Get the symmetry of the field, to load paths drawn for one alliance on the
+     * other with {@link me.nabdev.pathfinding.utilities.PathSerializer}
+     *
+     * @return The symmetry of the field, or null if it isn't symmetric
+     */
+    public FieldSymmetry getFieldSymmetry() {
+        return map.getSymmetry();
+    };
+
     /**
      * Snaps the start and target vertices according to the snap mode, calculates
      * visibility graph for dynamic elements, and generates the best path.
@@ -310,7 +508,7 @@ public class Pathfinder {
             throws ImpossiblePathException {
         Path path = generatePathInner(new Vertex(start), new Vertex(target), snapMode,
                 new ArrayList<Vertex>(), true);
-        return path.asTrajectory(config);
+        return trajectoryCache.get(path, config);
     }
 
     /**
@@ -335,7 +533,7 @@ public class Pathfinder {
             TrajectoryConfig config)
             throws ImpossiblePathException {
         Path path = generatePathInner(new Vertex(start), new Vertex(target), snapMode, dynamicVertices, true);
-        return path.asTrajectory(config);
+        return trajectoryCache.get(path, config);
     }
 
     /**
@@ -356,7 +554,7 @@ public class Pathfinder {
             throws ImpossiblePathException {
         Path path = generatePathInner(new Vertex(start), new Vertex(target), PathfindSnapMode.SNAP_ALL,
                 new ArrayList<Vertex>(), true);
-        return path.asTrajectory(config);
+        return trajectoryCache.get(path, config);
     }
 
     /**
@@ -377,7 +575,7 @@ public class Pathfinder {
             throws ImpossiblePathException {
         Path path = generatePathInner(new Vertex(start), Vertex.fromPose2dArray(target), PathfindSnapMode.SNAP_ALL,
                 new ArrayList<Vertex>());
-        return path.asTrajectory(config);
+        return trajectoryCache.get(path, config);
     }
 
     /**
@@ -400,98 +598,550 @@ public class Pathfinder {
             throws ImpossiblePathException {
         Path path = generatePathInner(new Vertex(start), Vertex.fromPose2dArray(target), snapMode,
                 new ArrayList<Vertex>());
-        return path.asTrajectory(config);
+        return trajectoryCache.get(path, config);
+    }
+
+    /**
+     * Snaps the start and waypoints to be outside of obstacles and generates the
+     * shortest path that visits every waypoint, in whichever order is best.
+     * Defaults to PathfindSnapMode.SNAP_ALL
+     * 
+     * @param start     The starting pose
+     * @param waypoints The poses to visit, in any order
+     * 
+     * @return A path from the start through every waypoint, in the best order
+     * 
+     * @throws ImpossiblePathException If no path can be found
+     */
+    public Path generateOrderedPath(Pose2d start, ArrayList<Pose2d> waypoints) throws ImpossiblePathException {
+        return generateOrderedPath(start, waypoints, PathfindSnapMode.SNAP_ALL);
+    }
+
+    /**
+     * Snaps the start and waypoints according to the snap mode and generates the
+     * shortest path that visits every waypoint, in whichever order is best.
+     * 
+     * @param start     The starting pose
+     * @param waypoints The poses to visit, in any order
+     * @param snapMode  The snap mode to use
+     * 
+     * @return A path from the start through every waypoint, in the best order
+     * 
+     * @throws ImpossiblePathException If no path can be found
+     */
+    public Path generateOrderedPath(Pose2d start, ArrayList<Pose2d> waypoints, PathfindSnapMode snapMode)
+            throws ImpossiblePathException {
+        int n = waypoints.size();
+        if (n == 0)
+            throw new ImpossiblePathException("No waypoints to visit.");
+        synchronized (planningLock) {
+            long startTime = metrics.start();
+            SearchContext context = new SearchContext(map, metrics);
+            // The ordering already searched from the start and every waypoint, so the
+            // legs are traced from those shortest path trees instead of searched again
+            int[][] parents = new int[n + 1][];
+            int[] order = orderWaypointsLocked(start, waypoints, snapMode, context, parents);
+            int last = order[n - 1];
+            PathfindEvent event = PathfindEvent.start(context.getVertex(context.extraIndex(0)),
+                    context.getVertex(context.extraIndex(last + 1)), snapMode, n);
+            try {
+                Path path = null;
+                int from = 0;
+                for (int i : order) {
+                    Path leg = WaypointOrder.tracePath(context, parents[from], context.extraIndex(from),
+                            context.extraIndex(i + 1), this);
+                    leg.setUnsnappedTarget(new Vertex(waypoints.get(i)));
+                    if (path == null) {
+                        path = leg;
+                    } else {
+                        path.addPath(leg);
+                    }
+                    from = i + 1;
+                }
+                path.setObstacleVersion(context.getSnapshot().getVersion());
+                processPath(path, snapMode);
+                metrics.lap(Stage.TOTAL, startTime);
+                event.succeeded(path);
+                return path;
+            } catch (ImpossiblePathException | RuntimeException e) {
+                event.failed(e);
+                throw e;
+            } finally {
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Find the best order to visit the waypoints in. Travel distances between
+     * every pair of waypoints are found with one search per waypoint, then the
+     * order is solved exactly for up to {@link WaypointOrder#HELD_KARP_LIMIT}
+     * waypoints, or with a 2-opt heuristic for more.
+     * 
+     * @param start     The starting pose
+     * @param waypoints The poses to visit, in any order
+     * @param snapMode  The snap mode to use
+     * 
+     * @return The indexes of the waypoints in the order they should be visited
+     * 
+     * @throws ImpossiblePathException If some waypoint can't be reached
+     */
+    public int[] orderWaypoints(Pose2d start, ArrayList<Pose2d> waypoints, PathfindSnapMode snapMode)
+            throws ImpossiblePathException {
+        if (waypoints.size() == 0)
+            return new int[0];
+        synchronized (planningLock) {
+            return orderWaypointsLocked(start, waypoints, snapMode, new SearchContext(map, metrics), null);
+        }
+    }
+
+    // Loads the snapped start (extra vertex 0) and waypoints (extra vertices 1 to
+    // n) into the context and solves their order. If parents is given, the
+    // shortest path tree from each of those extra vertices is kept in it.
+    private int[] orderWaypointsLocked(Pose2d start, ArrayList<Pose2d> waypoints, PathfindSnapMode snapMode,
+            SearchContext context, int[][] parents) throws ImpossiblePathException {
+        int n = waypoints.size();
+        double[] startCost = new double[n];
+        double[][] cost = new double[n][n];
+        long startTime = metrics.start();
+        MapSnapshot snapshot = map.getSnapshot();
+        ArrayList<Vertex> extraVertices = new ArrayList<>();
+        extraVertices.add(snapStart(new Vertex(start), snapMode, snapshot));
+        for (Pose2d waypoint : waypoints) {
+            extraVertices.add(snapTarget(new Vertex(waypoint), snapMode, snapshot));
+        }
+        long stageTime = metrics.lap(Stage.SNAP, startTime);
+        context.load(snapshot, extraVertices);
+        stageTime = metrics.lap(Stage.VISIBILITY, stageTime);
+        for (int i = 0; i <= n; i++) {
+            int[] tree = null;
+            if (parents != null) {
+                tree = new int[context.size()];
+                parents[i] = tree;
+            }
+            double[] distances = WaypointOrder.distancesFrom(context, context.extraIndex(i), tree);
+            for (int j = 0; j < n; j++) {
+                double d = distances[context.extraIndex(j + 1)];
+                if (i == 0) {
+                    startCost[j] = d;
+                } else {
+                    cost[i - 1][j] = d;
+                }
+            }
+        }
+        metrics.lap(Stage.SEARCH, stageTime);
+        return WaypointOrder.solve(startCost, cost);
+    }
+
+    /**
+     * Generates a path on the async executor without blocking the calling thread.
+     * Defaults to PathfindSnapMode.SNAP_ALL and PlanPriority.DRIVER, with no
+     * channel.
+     * 
+     * @param start  The starting pose
+     * @param target The target pose
+     * 
+     * @return A future that completes with the path, or exceptionally with an
+     *         ImpossiblePathException if no path can be found
+     */
+    public CompletableFuture<Path> generatePathAsync(Pose2d start, Pose2d target) {
+        return generatePathAsync(start, target, PathfindSnapMode.SNAP_ALL, PlanPriority.DRIVER, null);
+    }
+
+    /**
+     * Generates a path on the async executor without blocking the calling thread.
+     * If another request on the same channel is still queued or running, it is
+     * cancelled, since its result would be stale.
+     * 
+     * @param start    The starting pose
+     * @param target   The target pose
+     * @param snapMode The snap mode to use
+     * @param priority The priority of the request
+     * @param channel  The channel of the request (for example "drive" or
+     *                 "prefetch-amp"), or null to never cancel it for a newer
+     *                 request
+     * 
+     * @return A future that completes with the path, or exceptionally with an
+     *         ImpossiblePathException if no path can be found. Cancelling the
+     *         future stops the planning at the next stage.
+     */
+    public CompletableFuture<Path> generatePathAsync(Pose2d start, Pose2d target, PathfindSnapMode snapMode,
+            PlanPriority priority, String channel) {
+        Vertex startVertex = new Vertex(start);
+        Vertex targetVertex = new Vertex(target);
+        return submit(priority, channel, cancelled -> generatePathInner(startVertex, targetVertex, snapMode,
+                new ArrayList<Vertex>(), true, cancelled));
+    }
+
+    /**
+     * Generates a trajectory on the async executor without blocking the calling
+     * thread. Defaults to PathfindSnapMode.SNAP_ALL and PlanPriority.DRIVER, with
+     * no channel.
+     * 
+     * @param start  The starting pose
+     * @param target The target pose
+     * @param config The trajectory config to use when generating the trajectory
+     * 
+     * @return A future that completes with the trajectory, or exceptionally with an
+     *         ImpossiblePathException if no path can be found
+     */
+    public CompletableFuture<Trajectory> generateTrajectoryAsync(Pose2d start, Pose2d target,
+            TrajectoryConfig config) {
+        return generateTrajectoryAsync(start, target, PathfindSnapMode.SNAP_ALL, config, PlanPriority.DRIVER, null);
+    }
+
+    /**
+     * Generates a trajectory on the async executor without blocking the calling
+     * thread. If another request on the same channel is still queued or running,
+     * it is cancelled, since its result would be stale.
+     * 
+     * @param start    The starting pose
+     * @param target   The target pose
+     * @param snapMode The snap mode to use
+     * @param config   The trajectory config to use when generating the trajectory
+     * @param priority The priority of the request
+     * @param channel  The channel of the request, or null to never cancel it for a
+     *                 newer request
+     * 
+     * @return A future that completes with the trajectory, or exceptionally with an
+     *         ImpossiblePathException if no path can be found. Cancelling the
+     *         future stops the planning at the next stage.
+     */
+    public CompletableFuture<Trajectory> generateTrajectoryAsync(Pose2d start, Pose2d target,
+            PathfindSnapMode snapMode, TrajectoryConfig config, PlanPriority priority, String channel) {
+        Vertex startVertex = new Vertex(start);
+        Vertex targetVertex = new Vertex(target);
+        return submit(priority, channel, cancelled -> {
+            Path path = generatePathInner(startVertex, targetVertex, snapMode, new ArrayList<Vertex>(), true,
+                    cancelled);
+            checkCancelled(cancelled);
+            return trajectoryCache.get(path, config);
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(PlanPriority priority, String channel, PlanJob.Task<T> task) {
+        PlanJob<T> job = new PlanJob<>(priority, channel, task, this::finishJob);
+        if (channel != null) {
+            PlanJob<?> superseded = channels.put(channel, job);
+            if (superseded != null)
+                superseded.cancel();
+        }
+        try {
+            getAsyncExecutor().execute(job);
+        } catch (RejectedExecutionException e) {
+            finishJob(job);
+            job.future.completeExceptionally(e);
+        }
+        return job.future;
+    }
+
+    private void finishJob(PlanJob<?> job) {
+        if (job.channel != null)
+            channels.remove(job.channel, job);
+    }
+
+    private static void checkCancelled(BooleanSupplier cancelled) {
+        if (cancelled.getAsBoolean())
+            throw new CancellationException("Superseded by a newer planning request");
+    }
+
+    /**
+     * Creates an executor for asynchronous planning that runs the most important
+     * requests first. Executors passed to {@link #setAsyncExecutor(Executor)}
+     * should be made with this (or use a PriorityBlockingQueue) for request
+     * priorities to be respected.
+     * 
+     * @param threads The number of planning threads. Paths from the same
+     *                pathfinder are planned one at a time, so more than one thread
+     *                only helps when several pathfinders share the executor.
+     * @return A new executor with daemon threads
+     */
+    public static ExecutorService newPlanningExecutor(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Planning executor must have at least 1 thread");
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), r -> {
+                    Thread t = new Thread(r, "Pathfinder Async Planner");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    private static synchronized ExecutorService getDefaultAsyncExecutor() {
+        if (defaultAsyncExecutor == null)
+            defaultAsyncExecutor = newPlanningExecutor(1);
+        return defaultAsyncExecutor;
     }
 
     private Path generatePathInner(Vertex start, ArrayList<Vertex> waypoints, PathfindSnapMode snapMode,
             ArrayList<Vertex> dynamicVertices) throws ImpossiblePathException {
-        Path path = generatePathInner(start, waypoints.get(0), snapMode, dynamicVertices, false);
-        for (int i = 1; i < waypoints.size(); i++) {
-            path.addPath(generatePathInner(waypoints.get(i - 1), waypoints.get(i), snapMode, dynamicVertices, false));
+        synchronized (planningLock) {
+            if (waypoints.size() == 1) {
+                return generatePathLocked(start, waypoints.get(0), snapMode, dynamicVertices, true, NOT_CANCELLED);
+            }
+            PathfindEvent event = PathfindEvent.start(start, waypoints.get(waypoints.size() - 1), snapMode,
+                    waypoints.size());
+            try {
+                Path path = generateLegsLocked(start, waypoints, snapMode, dynamicVertices, event);
+                event.succeeded(path);
+                return path;
+            } catch (ImpossiblePathException | RuntimeException e) {
+                event.failed(e);
+                throw e;
+            } finally {
+                event.commit();
+            }
         }
-        path.processPath(snapMode);
+    }
+
+    private Path generateLegsLocked(Vertex start, ArrayList<Vertex> waypoints, PathfindSnapMode snapMode,
+            ArrayList<Vertex> dynamicVertices, PathfindEvent event) throws ImpossiblePathException {
+        long startTime = metrics.start();
+        // Every leg plans against the same snapshot, so they agree on the obstacles
+        MapSnapshot snapshot = map.getSnapshot();
+
+        // Each leg is independent once its endpoints are snapped, so they are all
+        // searched at the same time with their own search contexts.
+        ArrayList<Callable<Path>> legs = new ArrayList<>();
+        int[] expanded = new int[waypoints.size()];
+        // Set once a leg fails, so legs that have not started yet skip their search
+        AtomicBoolean abandoned = new AtomicBoolean();
+        for (int i = 0; i < waypoints.size(); i++) {
+            int legIndex = i;
+            Vertex legStart = snapStart(i == 0 ? start : waypoints.get(i - 1), snapMode, snapshot);
+            Vertex legTarget = snapTarget(waypoints.get(i), snapMode, snapshot);
+            Vertex unsnappedTarget = waypoints.get(i);
+            legs.add(() -> {
+                if (abandoned.get())
+                    return null;
+                long legStartTime = metrics.start();
+                ArrayList<Vertex> extraVertices = new ArrayList<>();
+                extraVertices.add(legStart);
+                extraVertices.add(legTarget);
+                extraVertices.addAll(dynamicVertices);
+                SearchContext context = new SearchContext(map, metrics);
+                context.load(snapshot, extraVertices);
+                long searchStartTime = metrics.lap(Stage.VISIBILITY, legStartTime);
+                SearchAlgorithm searcher = createSearcher();
+                Path leg;
+                try {
+                    leg = searcher.run(context, context.extraIndex(0), context.extraIndex(1));
+                } finally {
+                    expanded[legIndex] = searcher.getExpandedCount();
+                    metrics.lap(Stage.SEARCH, searchStartTime);
+                }
+                leg.setUnsnappedTarget(unsnappedTarget);
+                return leg;
+            });
+        }
+        metrics.lap(Stage.SNAP, startTime);
+        ArrayList<Future<Path>> futures = new ArrayList<>();
+        for (int i = 1; i < legs.size(); i++) {
+            futures.add(getLegExecutor().submit(legs.get(i)));
+        }
+        Path path;
+        try {
+            // The first leg runs on this thread while the others run in the background
+            path = legs.get(0).call();
+            for (Future<Path> future : futures) {
+                path.addPath(future.get());
+            }
+        } catch (ImpossiblePathException e) {
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ImpossiblePathException)
+                throw (ImpossiblePathException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImpossiblePathException("Interrupted while planning path legs");
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        } finally {
+            abandoned.set(true);
+            awaitLegs(futures);
+            for (int count : expanded) {
+                event.addExpanded(count);
+            }
+        }
+        path.setObstacleVersion(snapshot.getVersion());
+        processPath(path, snapMode);
+        metrics.lap(Stage.TOTAL, startTime);
         return path;
     }
 
-    // Using an inner function because java handles optional parameters poorly
-    private Path generatePathInner(Vertex start, Vertex target, PathfindSnapMode snapMode,
-            ArrayList<Vertex> dynamicVertices, boolean processPath) throws ImpossiblePathException {
-        long startTime = System.nanoTime();
-        periodic();
-        // Snapping is done because the center of the robot can be inside of the
-        // inflated obstacle edges
-        // In the case where this happened the start needs to be snapped outside
-        // otherwise a* will fail
-        Vertex unsnappedTarget = target;
+    // Waits for every leg and ignores its result, so none is still reading the
+    // snapshot or the metrics once the caller releases the planning lock.
+    // Cancelling a running leg would not stop it, only stop get() waiting for it.
+    private static void awaitLegs(ArrayList<Future<Path>> futures) {
+        boolean interrupted = false;
+        for (Future<Path> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static synchronized ExecutorService getLegExecutor() {
+        if (legExecutor == null) {
+            legExecutor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()),
+                    r -> {
+                        Thread t = new Thread(r, "Pathfinder Leg Planner");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+        return legExecutor;
+    }
+
+    private SearchAlgorithm createSearcher() {
+        if (searchAlgorithmType == SearchAlgorithmType.ASTAR) {
+            return new Astar(this);
+        } else {
+            throw new RuntimeException("Invalid search algorithm type");
+        }
+    }
+
+    // Snapping is done because the center of the robot can be inside of the
+    // inflated obstacle edges
+    // In the case where this happened the start needs to be snapped outside
+    // otherwise a* will fail
+    private Vertex snapStart(Vertex start, PathfindSnapMode snapMode, MapSnapshot snapshot)
+            throws ImpossiblePathException {
         if (snapMode == PathfindSnapMode.SNAP_ALL || snapMode == PathfindSnapMode.SNAP_ALL_THEN_LINE
                 || snapMode == PathfindSnapMode.SNAP_START) {
-            start = snap(start);
+            return snap(start, snapshot);
         }
+        return start;
+    }
 
-        if (snapMode == PathfindSnapMode.SNAP_ALL || snapMode == PathfindSnapMode.SNAP_TARGET) {
-            target = snap(target);
-        } else if (snapMode == PathfindSnapMode.SNAP_ALL_THEN_LINE
+    private Vertex snapTarget(Vertex target, PathfindSnapMode snapMode, MapSnapshot snapshot)
+            throws ImpossiblePathException {
+        if (snapMode == PathfindSnapMode.SNAP_ALL || snapMode == PathfindSnapMode.SNAP_TARGET
+                || snapMode == PathfindSnapMode.SNAP_ALL_THEN_LINE
                 || snapMode == PathfindSnapMode.SNAP_TARGET_THEN_LINE) {
-            target = snap(target);
+            return snap(target, snapshot);
         }
-        // long snapEndTime = System.nanoTime();
+        return target;
+    }
 
+    // Using an inner function because java handles optional parameters poorly
+    private Path generatePathInner(Vertex start, Vertex target, PathfindSnapMode snapMode,
+            ArrayList<Vertex> dynamicVertices, boolean processPath) throws ImpossiblePathException {
+        return generatePathInner(start, target, snapMode, dynamicVertices, processPath, NOT_CANCELLED);
+    }
+
+    private Path generatePathInner(Vertex start, Vertex target, PathfindSnapMode snapMode,
+            ArrayList<Vertex> dynamicVertices, boolean processPath, BooleanSupplier cancelled)
+            throws ImpossiblePathException {
+        synchronized (planningLock) {
+            return generatePathLocked(start, target, snapMode, dynamicVertices, processPath, cancelled);
+        }
+    }
+
+    private Path generatePathLocked(Vertex start, Vertex target, PathfindSnapMode snapMode,
+            ArrayList<Vertex> dynamicVertices, boolean processPath, BooleanSupplier cancelled)
+            throws ImpossiblePathException {
+        PathfindEvent event = PathfindEvent.start(start, target, snapMode, 1);
+        try {
+            Path path = generatePathStages(start, target, snapMode, dynamicVertices, processPath, cancelled, event);
+            event.succeeded(path);
+            return path;
+        } catch (ImpossiblePathException | RuntimeException e) {
+            event.failed(e);
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    // The cancelled supplier is checked between stages, and a CancellationException
+    // is thrown once it returns true
+    private Path generatePathStages(Vertex start, Vertex target, PathfindSnapMode snapMode,
+            ArrayList<Vertex> dynamicVertices, boolean processPath, BooleanSupplier cancelled, PathfindEvent event)
+            throws ImpossiblePathException {
+        // The request may have been superseded while waiting for the lock
+        checkCancelled(cancelled);
+        long startTime = metrics.start();
+        PlanningStageEvent stageEvent = PlanningStageEvent.start(Stage.SNAP);
+        MapSnapshot snapshot = map.getSnapshot();
+        Vertex unsnappedTarget = target;
+        start = snapStart(start, snapMode, snapshot);
+        target = snapTarget(target, snapMode, snapshot);
+        long stageTime = metrics.lap(Stage.SNAP, startTime);
+        stageEvent.commit();
+
+        stageEvent = PlanningStageEvent.start(Stage.VISIBILITY);
         ArrayList<Vertex> additionalVertexs = new ArrayList<>();
         additionalVertexs.add(start);
         additionalVertexs.add(target);
         additionalVertexs.addAll(dynamicVertices);
-        map.calculateDynamicVisibilityGraph(additionalVertexs, true);
+        searchContext.load(snapshot, additionalVertexs);
+        stageTime = metrics.lap(Stage.VISIBILITY, stageTime);
+        stageEvent.commit();
+        checkCancelled(cancelled);
 
-        // long visibilityEndTime = System.nanoTime();
-
-        SearchAlgorithm searcher;
-        if (searchAlgorithmType == SearchAlgorithmType.ASTAR) {
-            searcher = new Astar(this);
-        } else {
-            throw new RuntimeException("Invalid search algorithm type");
+        stageEvent = PlanningStageEvent.start(Stage.SEARCH);
+        SearchAlgorithm searcher = createSearcher();
+        Path path;
+        try {
+            // This could throw ImpossiblePathException
+            path = searcher.run(searchContext, searchContext.extraIndex(0), searchContext.extraIndex(1));
+        } finally {
+            event.addExpanded(searcher.getExpandedCount());
+            metrics.lap(Stage.SEARCH, stageTime);
+            stageEvent.commit();
         }
-        // This could throw ImpossiblePathException
-        Path path = searcher.run(start, target);
-
-        // long searchEndTime = System.nanoTime();
 
         path.setUnsnappedTarget(unsnappedTarget);
-        if (processPath)
-            path.processPath(snapMode);
-        if (profiling) {
-            long endTime = System.nanoTime();
-            long totalTime = endTime - startTime;
-            double pathGenTime = totalTime / 1000000.0;
-            SmartDashboard.putNumber("Pathfinding Time (ms)", pathGenTime);
+        path.setObstacleVersion(snapshot.getVersion());
+        if (processPath) {
+            checkCancelled(cancelled);
+            processPath(path, snapMode);
         }
-        // long snapTime = snapEndTime - startTime;
-        // long visibilityTime = visibilityEndTime - snapEndTime;
-        // long searchTime = searchEndTime - visibilityEndTime;
-        // long processPathTime = endTime - searchEndTime;
-        // System.out.println("Snapping time: " + snapTime / 1000000.0 + "ms ("
-        // + Math.round((snapTime / (double) totalTime) * 100) + "%)");
-        // System.out.println("Visibility graph time: " + visibilityTime / 1000000.0 +
-        // "ms ("
-        // + Math.round((visibilityTime / (double) totalTime) * 100) + "%)");
-        // System.out.println(
-        // "Search time: " + searchTime / 1000000.0 + "ms (" + Math.round((searchTime /
-        // (double) totalTime) * 100)
-        // + "%)");
-        // System.out.println("Path processing time: " + processPathTime / 1000000.0 +
-        // "ms ("
-        // + Math.round((processPathTime / (double) totalTime) * 100) + "%)");
-
+        metrics.lap(Stage.TOTAL, startTime);
         return path;
     }
 
+    private void processPath(Path path, PathfindSnapMode snapMode) {
+        long startTime = metrics.start();
+        PlanningStageEvent stageEvent = PlanningStageEvent.start(Stage.PROCESS);
+        path.processPath(snapMode, pathSplicing ? lastPath : null);
+        lastPath = pathSplicing ? path : null;
+        metrics.lap(Stage.PROCESS, startTime);
+        stageEvent.commit();
+        metrics.count(Counter.POINTS_EMITTED, path.size());
+    }
+
+    synchronized void attachBackgroundPlanner(BackgroundPlanner planner) {
+        if (backgroundPlanner != null && backgroundPlanner != planner)
+            throw new IllegalStateException("Another background planner is already running for this pathfinder");
+        backgroundPlanner = planner;
+    }
+
+    synchronized void detachBackgroundPlanner(BackgroundPlanner planner) {
+        if (backgroundPlanner == planner)
+            backgroundPlanner = null;
+    }
+
     /**
      * Snap a vertex to the nearest obstacle edge if it's inside of one
      * 
-     * @param point Point to snap
+     * @param point    Point to snap
+     * @param snapshot The obstacle state to snap against
      * @return
      */
-    private Vertex snap(Vertex point) throws ImpossiblePathException {
-        ArrayList<Obstacle> targetObs = Obstacle.isRobotInObstacle(obstacles, point, true);
+    Vertex snap(Vertex point, MapSnapshot snapshot) throws ImpossiblePathException {
+        ArrayList<Obstacle> targetObs = snapshot.isRobotInObstacle(point, true);
         Vertex tempNearestVertex = point;
         int i = 0;
         while (targetObs.size() > 0) {
@@ -501,7 +1151,7 @@ public class Pathfinder {
             for (Obstacle obs : targetObs) {
                 tempNearestVertex = obs.calculateNearestPointFromInside(tempNearestVertex);
             }
-            targetObs = Obstacle.isRobotInObstacle(obstacles, tempNearestVertex, true);
+            targetObs = snapshot.isRobotInObstacle(tempNearestVertex, true);
             i++;
         }
         return tempNearestVertex;
@@ -562,6 +1212,21 @@ public class Pathfinder {
 
     }
 
+    /**
+     * The priority of an asynchronous planning request. Requests with a higher
+     * priority are planned first.
+     */
+    public enum PlanPriority {
+        /**
+         * A path the driver or a command is waiting for right now
+         */
+        DRIVER,
+        /**
+         * A path planned ahead of time in case it is needed later
+         */
+        PREFETCH
+    }
+
     /**
      * Intended for use with our custom advantagescope fork for debugging the
      * visibility graph.
@@ -571,10 +1236,10 @@ public class Pathfinder {
      */
     public ArrayList<Edge> visualizeNeighbors() {
         ArrayList<Edge> list = new ArrayList<>();
-        if (map.getNeighbors() != null)
-            list.addAll(map.getNeighbors());
-        if (map.getNeighborsStatic() != null)
-            list.addAll(map.getNeighborsStatic());
+        synchronized (planningLock) {
+            list.addAll(searchContext.getExtraEdges());
+        }
+        list.addAll(map.getNeighborsStatic());
         return list;
     }
 
@@ -588,8 +1253,9 @@ public class Pathfinder {
      */
     public ArrayList<Vertex> visualizePathVertices() {
         ArrayList<Vertex> list = new ArrayList<>();
-        if (map.getPathVertices() != null)
-            list.addAll(map.getPathVertices());
+        synchronized (planningLock) {
+            list.addAll(searchContext.getVertices());
+        }
         return list;
     }
 
@@ -714,6 +1380,101 @@ public class Pathfinder {
         return profiling;
     };
 
+    /**
+     * Whether or not trajectories are profiled directly from the path geometry
+     * instead of with WPILib's TrajectoryGenerator
+     * 
+     * @return Whether or not native trajectory generation is used
+     */
+    public boolean getNativeTrajectories() {
+        return nativeTrajectories;
+    };
+
+    /**
+     * Whether or not to reuse the processed tail of the last path when the route
+     * to the target has not changed
+     * 
+     * @return Whether or not path splicing is enabled
+     */
+    public boolean getPathSplicing() {
+        return pathSplicing;
+    };
+
+    /**
+     * The version of the path processing settings (point spacing, corners, and
+     * point injection). Changes whenever one of those settings changes.
+     * 
+     * @return The current path settings version
+     */
+    public int getPathSettingsVersion() {
+        return pathSettingsVersion;
+    };
+
+    /**
+     * The cache of sampled corner shapes used when smoothing paths
+     * 
+     * @return The corner template cache
+     */
+    public CornerTemplateCache getCornerCache() {
+        return cornerCache;
+    };
+
+    /**
+     * The cache of recently generated trajectories. Use this to read hit/miss
+     * statistics or to clear it.
+     * 
+     * @return The trajectory cache
+     */
+    public TrajectoryCache getTrajectoryCache() {
+        return trajectoryCache;
+    };
+
+    /**
+     * The background planner currently running for this pathfinder
+     * 
+     * @return The running background planner, or null if there isn't one
+     */
+    public BackgroundPlanner getBackgroundPlanner() {
+        return backgroundPlanner;
+    };
+
+    /**
+     * The planner that searches over heading bins for the robot's rectangular
+     * footprint, see {@link PathfinderBuilder#setHeadingBins(int)}
+     * 
+     * @return The heading planner, or null if the pathfinder was built without
+     *         heading bins
+     */
+    public HeadingPlanner getHeadingPlanner() {
+        return headingPlanner;
+    };
+
+    void setHeadingPlanner(HeadingPlanner newHeadingPlanner) {
+        headingPlanner = newHeadingPlanner;
+    }
+
+    /**
+     * The latency and work metrics of this pathfinder. Profiling publishes them to
+     * NetworkTables, and {@link PlannerMetrics#setSink} can send them somewhere
+     * else (like the data log) instead.
+     * 
+     * @return The planner metrics
+     */
+    public PlannerMetrics getMetrics() {
+        return metrics;
+    };
+
+    /**
+     * The executor asynchronous planning requests run on
+     * 
+     * @return The executor set with {@link #setAsyncExecutor(Executor)}, or the
+     *         shared default executor
+     */
+    public Executor getAsyncExecutor() {
+        Executor executor = asyncExecutor;
+        return executor != null ? executor : getDefaultAsyncExecutor();
+    };
+
     /**
      * Time in seconds when the robot should start to consider endgame obstacles.
      * 
@@ -733,6 +1494,7 @@ public class Pathfinder {
         if (pointSpacing <= 0)
             throw new IllegalArgumentException("Point spacing must be greater than 0");
         pointSpacing = newPointSpacing;
+        pathSettingsVersion++;
     };
 
     /**
@@ -745,6 +1507,8 @@ public class Pathfinder {
         if (cornerPointSpacing <= 0)
             throw new IllegalArgumentException("Corner point spacing must be greater than 0");
         cornerPointSpacing = newCornerPointSpacing;
+        pathSettingsVersion++;
+        cornerCache.clear();
     };
 
     /**
@@ -757,6 +1521,8 @@ public class Pathfinder {
         if (cornerDist < 0)
             throw new IllegalArgumentException("Corner distance must be positive");
         cornerDist = newCornerDist;
+        pathSettingsVersion++;
+        cornerCache.clear();
     };
 
     /**
@@ -766,6 +1532,7 @@ public class Pathfinder {
      */
     public void setInjectPoints(boolean newInjectPoints) {
         injectPoints = newInjectPoints;
+        pathSettingsVersion++;
     };
 
     /**
@@ -776,6 +1543,8 @@ public class Pathfinder {
      */
     public void setNormalizeCorners(boolean newNormalizeCorners) {
         normalizeCorners = newNormalizeCorners;
+        pathSettingsVersion++;
+        cornerCache.clear();
     };
 
     /**
@@ -788,6 +1557,8 @@ public class Pathfinder {
         if (newCornerSplitPercent > 0.5)
             throw new IllegalArgumentException("Corner split percent must be less than or equal to 0.5");
         cornerSplitPercent = newCornerSplitPercent;
+        pathSettingsVersion++;
+        cornerCache.clear();
     };
 
     /**
@@ -800,14 +1571,79 @@ public class Pathfinder {
     };
 
     /**
-     * Whether or not to profile the pathfinding process
+     * Whether or not to profile the pathfinding process. While profiling, the
+     * latency of each planning stage and the work counters are published to
+     * NetworkTables under "Pathfinder/Metrics", or "Pathfinder/Metrics/Planner n"
+     * for the nth planner made with {@link #createPlanner()} (see
+     * {@link #getMetrics()}).
      * 
      * @param newProfiling Whether or not to profile the pathfinding process
      */
     public void setProfiling(boolean newProfiling) {
+        if (newProfiling && !profiling) {
+            metrics.setSink(createMetricsSink());
+        } else if (!newProfiling && profiling) {
+            if (metrics.getSink() instanceof NetworkTablesMetricsSink)
+                ((NetworkTablesMetricsSink) metrics.getSink()).close();
+            metrics.setSink(NoOpMetricsSink.INSTANCE);
+        }
         profiling = newProfiling;
     };
 
+    private NetworkTablesMetricsSink createMetricsSink() {
+        return new NetworkTablesMetricsSink(NetworkTableInstance.getDefault(), metricsTable);
+    }
+
+    /**
+     * Whether or not to profile trajectories directly from the path geometry
+     * (straightaways, and corners through their own sampled points) instead of
+     * fitting splines through every point with WPILib's TrajectoryGenerator
+     * 
+     * @param newNativeTrajectories Whether or not to use native trajectory
+     *                              generation
+     */
+    public void setNativeTrajectories(boolean newNativeTrajectories) {
+        if (newNativeTrajectories != nativeTrajectories)
+            trajectoryCache.clear();
+        nativeTrajectories = newNativeTrajectories;
+    };
+
+    /**
+     * Whether or not to reuse the processed tail of the last path when the route
+     * to the target has not changed. Only the corners before the point where the
+     * new route joins the old one are smoothed again, so replanning toward the
+     * same target is cheaper and the rest of the path does not move.
+     * 
+     * @param newPathSplicing Whether or not to enable path splicing
+     */
+    public void setPathSplicing(boolean newPathSplicing) {
+        pathSplicing = newPathSplicing;
+        if (!pathSplicing)
+            lastPath = null;
+    };
+
+    /**
+     * The maximum number of trajectories to keep in the trajectory cache. Replaces
+     * the cache, discarding any cached trajectories and statistics.
+     * 
+     * @param newTrajectoryCacheSize The new cache size, or 0 to disable caching
+     */
+    public void setTrajectoryCacheSize(int newTrajectoryCacheSize) {
+        trajectoryCache = new TrajectoryCache(newTrajectoryCacheSize);
+    };
+
+    /**
+     * The executor to run asynchronous planning requests on. To respect request
+     * priorities it should queue with a PriorityBlockingQueue, like the executors
+     * from {@link #newPlanningExecutor(int)}.
+     * 
+     * @param newAsyncExecutor The new executor, or null to use the shared default
+     *                         executor
+     */
+    public void setAsyncExecutor(Executor newAsyncExecutor) {
+        asyncExecutor = newAsyncExecutor;
+    };
+
     /**
      * Time in seconds when the robot should start to consider endgame obstacles.
      * 
@@ -1,8 +1,10 @@
 package me.nabdev.pathfinding;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 import me.nabdev.pathfinding.algorithms.SearchAlgorithm.SearchAlgorithmType;
+import me.nabdev.pathfinding.utilities.FieldArtifact;
 import me.nabdev.pathfinding.utilities.FieldLoader;
 import me.nabdev.pathfinding.utilities.FieldLoader.CornerCutting;
 import me.nabdev.pathfinding.utilities.FieldLoader.Field;
@@ -26,6 +28,11 @@ public class PathfinderBuilder {
     private CornerCutting cornerCutting = CornerCutting.LINE;
     private boolean profiling = false;
     private double endgameTime = 25;
+    private boolean nativeTrajectories = true;
+    private boolean pathSplicing = false;
+    private int trajectoryCacheSize = Pathfinder.DEFAULT_TRAJECTORY_CACHE_SIZE;
+    private int headingBins = 0;
+    private String fieldArtifactPath;
 
     /**
      * Creates a new PathfinderBuilder with the given {@link Field}
@@ -213,26 +220,146 @@ public class PathfinderBuilder {
         return this;
     }
 
+    /**
+     * Sets whether or not to generate trajectories directly from the path geometry
+     * (straightaways, and corners through their own sampled points) instead of
+     * fitting splines through every point with WPILib's TrajectoryGenerator. Native generation is faster on
+     * dense paths and does not throw spline generation errors.
+     * 
+     * @param nativeTrajectories Whether or not to use native trajectory
+     *                           generation, default true
+     * @return The builder
+     */
+    public PathfinderBuilder setNativeTrajectories(boolean nativeTrajectories) {
+        this.nativeTrajectories = nativeTrajectories;
+        return this;
+    }
+
+    /**
+     * Set whether or not to reuse the processed tail of the last path when
+     * replanning to a target along the same route. Useful when replanning every
+     * loop, as only the start of the path is smoothed again.
+     * 
+     * @param pathSplicing Whether or not to enable path splicing, default false
+     * @return The builder
+     */
+    public PathfinderBuilder setPathSplicing(boolean pathSplicing) {
+        this.pathSplicing = pathSplicing;
+        return this;
+    }
+
+    /**
+     * Set the number of generated trajectories to cache. Requesting a trajectory
+     * for the same path and config as a cached one returns the cached trajectory
+     * instead of generating it again.
+     * 
+     * @param trajectoryCacheSize The maximum number of cached trajectories, or 0
+     *                            to disable caching, default 16
+     * @return The builder
+     */
+    public PathfinderBuilder setTrajectoryCacheSize(int trajectoryCacheSize) {
+        if (trajectoryCacheSize < 0)
+            throw new IllegalArgumentException("Trajectory cache size must be positive");
+        this.trajectoryCacheSize = trajectoryCacheSize;
+        return this;
+    }
+
+    /**
+     * Set the number of heading bins to plan over with the robot's rectangular
+     * footprint instead of the circle around it, see
+     * {@link Pathfinder#getHeadingPlanner()}. The obstacles are inflated for every
+     * bin when the pathfinder is built, so this makes building slower but lets a
+     * long robot drive through gaps the circle doesn't fit through.
+     * 
+     * @param headingBins The number of bins the half turn is split into, or 0 to
+     *                    not build a heading planner, default 0
+     * @return The builder
+     */
+    public PathfinderBuilder setHeadingBins(int headingBins) {
+        if (headingBins < 0)
+            throw new IllegalArgumentException("Heading bins must be positive");
+        this.headingBins = headingBins;
+        return this;
+    }
+
+    /**
+     * Sets the compiled field artifact to load the map from. If the artifact exists
+     * and was compiled from the same field, robot size and corner cutting mode,
+     * the map is loaded from it instead of being built, which is much faster.
+     * Otherwise the map is built from the field as usual. Write one with
+     * {@link #writeFieldArtifact(String)} or the {@code compileFields} Gradle task.
+     * 
+     * @param fieldArtifactPath The full path to the artifact, or null to always
+     *                          build the map, default null
+     * @return The builder
+     */
+    public PathfinderBuilder setFieldArtifact(String fieldArtifactPath) {
+        this.fieldArtifactPath = fieldArtifactPath;
+        return this;
+    }
+
+    /**
+     * Builds the map from the field and writes it to a compiled field artifact,
+     * which {@link #setFieldArtifact(String)} can load later.
+     * 
+     * @param path Where to write the artifact
+     * @throws IOException If the field can't be read or the artifact can't be
+     *                     written
+     */
+    public void writeFieldArtifact(String path) throws IOException {
+        FieldData loadedField = loadField();
+        Pathfinder pathfinder = build(loadedField);
+        FieldArtifact.write(path, inputHash(), loadedField, pathfinder.map.compile());
+    }
+
     /**
      * Builds the {@link Pathfinder}
      * 
      * @return The {@link Pathfinder}
      */
     public Pathfinder build() {
-        FieldData loadedField;
-        if (field != null) {
-            loadedField = FieldLoader.loadField(field, cornerCutting);
-        } else {
+        FieldData loadedField = null;
+        if (fieldArtifactPath != null) {
             try {
-                loadedField = FieldLoader.loadField(customFieldPath, cornerCutting);
-            } catch (FileNotFoundException e) {
-                throw new RuntimeException("Failed to load field from path " + customFieldPath);
+                loadedField = FieldArtifact.load(fieldArtifactPath, inputHash());
+            } catch (IOException e) {
+                System.out.println("Warning: Could not read the field to check the field artifact against ("
+                        + e.getMessage() + ")");
             }
         }
+        if (loadedField == null)
+            loadedField = loadField();
+        return build(loadedField);
+    }
+
+    private FieldData loadField() {
+        if (field != null)
+            return FieldLoader.loadField(field, cornerCutting);
+        try {
+            return FieldLoader.loadField(customFieldPath, cornerCutting);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Failed to load field from path " + customFieldPath);
+        }
+    }
+
+    private byte[] inputHash() throws IOException {
+        byte[] fieldJson = field != null ? FieldArtifact.readField(field) : FieldArtifact.readField(customFieldPath);
+        return FieldArtifact.inputHash(fieldJson, clearance(), cornerCutting);
+    }
+
+    // clearance is the circumcircle radius of the robot
+    private double clearance() {
+        return Math.sqrt(Math.pow(robotWidth, 2) + Math.pow(robotLength, 2)) / 2;
+    }
 
-        // clearance is the circumcircle radius of the robot
-        double clearance = Math.sqrt(Math.pow(robotWidth, 2) + Math.pow(robotLength, 2)) / 2;
-        return new Pathfinder(loadedField, pointSpacing, cornerPointSpacing, cornerDist, clearance, cornerSplitPercent,
-                injectPoints, normalizeCorners, searchAlgorithmType, profiling, endgameTime);
+    private Pathfinder build(FieldData loadedField) {
+        Pathfinder pathfinder = new Pathfinder(loadedField, pointSpacing, cornerPointSpacing, cornerDist, clearance(),
+                cornerSplitPercent, injectPoints, normalizeCorners, searchAlgorithmType, profiling, endgameTime);
+        pathfinder.setNativeTrajectories(nativeTrajectories);
+        pathfinder.setTrajectoryCacheSize(trajectoryCacheSize);
+        pathfinder.setPathSplicing(pathSplicing);
+        if (headingBins > 0)
+            pathfinder.setHeadingPlanner(new HeadingPlanner(pathfinder, robotWidth, robotLength, headingBins));
+        return pathfinder;
     }
 }
@@ -0,0 +1,89 @@
+package me.nabdev.pathfinding;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import me.nabdev.pathfinding.Pathfinder.PlanPriority;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+
+/**
+ * One asynchronous planning request. Jobs are ordered by priority and then by
+ * the order they were submitted, so that they can be queued in a
+ * PriorityBlockingQueue. Cancellation is cooperative: the task is given a
+ * supplier that it checks between planning stages.
+ */
+final class PlanJob<T> implements Runnable, Comparable<PlanJob<?>> {
+    /**
+     * The work a job does
+     */
+    interface Task<T> {
+        /**
+         * Run the task
+         *
+         * @param cancelled Returns true once the job has been cancelled
+         * @return The result
+         * @throws ImpossiblePathException If no path can be found
+         */
+        T run(BooleanSupplier cancelled) throws ImpossiblePathException;
+    }
+
+    private static final AtomicLong sequence = new AtomicLong();
+
+    final PlanPriority priority;
+    final String channel;
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    private final long order = sequence.getAndIncrement();
+    private final Task<T> task;
+    private final Consumer<PlanJob<?>> onFinish;
+    private volatile boolean cancelled = false;
+
+    PlanJob(PlanPriority priority, String channel, Task<T> task, Consumer<PlanJob<?>> onFinish) {
+        this.priority = priority;
+        this.channel = channel;
+        this.task = task;
+        this.onFinish = onFinish;
+    }
+
+    /**
+     * Whether or not the job was cancelled, either because it was superseded or
+     * because its future was cancelled
+     *
+     * @return True if the job should stop
+     */
+    boolean isCancelled() {
+        return cancelled || future.isCancelled();
+    }
+
+    /**
+     * Cancel the job. If it is running, it stops at the next stage boundary.
+     */
+    void cancel() {
+        cancelled = true;
+        future.cancel(false);
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (isCancelled())
+                return;
+            future.complete(task.run(this::isCancelled));
+        } catch (CancellationException e) {
+            future.cancel(false);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            onFinish.accept(this);
+        }
+    }
+
+    @Override
+    public int compareTo(PlanJob<?> other) {
+        if (priority != other.priority)
+            return priority.compareTo(other.priority);
+        return Long.compare(order, other.order);
+    }
+}
@@ -0,0 +1,250 @@
+package me.nabdev.pathfinding;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.MapSnapshot;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.PathTracker;
+import me.nabdev.pathfinding.structures.Vertex;
+
+/**
+ * Decides when a path actually needs to be replanned. Commands can ask this for
+ * a path every loop, and it will only run the pathfinder when the robot has
+ * strayed from the last path, the target has moved, or the obstacles changed in
+ * a way that blocks the last path. Otherwise the last path is returned, trimmed
+ * to the robot's progress along it.
+ */
+public class ReplanGovernor {
+    /**
+     * The default distance the robot can be from the path before replanning
+     * (meters)
+     */
+    public static final double DEFAULT_DEVIATION_TOLERANCE = 0.5;
+    /**
+     * The default distance the target can move before it is treated as a new
+     * target (meters)
+     */
+    public static final double DEFAULT_TARGET_TOLERANCE = 0.05;
+    /**
+     * The default number of targets to remember paths for
+     */
+    public static final int DEFAULT_MAX_TARGETS = 4;
+
+    /**
+     * Why the last call to getPath did or did not replan
+     */
+    public enum ReplanReason {
+        /**
+         * The last path was still valid and was reused
+         */
+        NONE,
+        /**
+         * There was no path for the target (or it moved)
+         */
+        NEW_TARGET,
+        /**
+         * The robot was too far from the last path
+         */
+        DEVIATED,
+        /**
+         * The obstacles changed and the last path crossed a newly active obstacle
+         */
+        OBSTACLES_CHANGED
+    }
+
+    private final Pathfinder pathfinder;
+    private final double deviationTolerance;
+    private final double targetTolerance;
+    private final int maxTargets;
+
+    // Most recently used first
+    private final LinkedList<Entry> entries = new LinkedList<>();
+
+    private ReplanReason lastReason = ReplanReason.NONE;
+    private long replans = 0;
+    private long reuses = 0;
+
+    /**
+     * Creates a new replan governor with the default tolerances.
+     *
+     * @param pathfinder The pathfinder to plan with
+     */
+    public ReplanGovernor(Pathfinder pathfinder) {
+        this(pathfinder, DEFAULT_DEVIATION_TOLERANCE, DEFAULT_TARGET_TOLERANCE, DEFAULT_MAX_TARGETS);
+    }
+
+    /**
+     * Creates a new replan governor.
+     *
+     * @param pathfinder         The pathfinder to plan with
+     * @param deviationTolerance How far the robot can be from the path before
+     *                           replanning (meters)
+     * @param targetTolerance    How far the target can move before it is treated
+     *                           as a new target (meters)
+     * @param maxTargets         How many targets to remember paths for
+     */
+    public ReplanGovernor(Pathfinder pathfinder, double deviationTolerance, double targetTolerance,
+            int maxTargets) {
+        if (deviationTolerance <= 0)
+            throw new IllegalArgumentException("Deviation tolerance must be greater than 0");
+        if (targetTolerance < 0)
+            throw new IllegalArgumentException("Target tolerance must be positive");
+        if (maxTargets < 1)
+            throw new IllegalArgumentException("Max targets must be at least 1");
+        this.pathfinder = pathfinder;
+        this.deviationTolerance = deviationTolerance;
+        this.targetTolerance = targetTolerance;
+        this.maxTargets = maxTargets;
+    }
+
+    /**
+     * Get a path from the robot's position to the target, replanning only if the
+     * last path to this target is no longer valid. Defaults to
+     * PathfindSnapMode.SNAP_ALL
+     *
+     * @param robot  The robot's current pose
+     * @param target The target pose
+     * @return A path from the robot's position to the target
+     * @throws ImpossiblePathException If a replan was needed and no path can be
+     *                                 found
+     */
+    public Path getPath(Pose2d robot, Pose2d target) throws ImpossiblePathException {
+        return getPath(robot, target, PathfindSnapMode.SNAP_ALL);
+    }
+
+    /**
+     * Get a path from the robot's position to the target, replanning only if the
+     * last path to this target is no longer valid. Match state changes are only
+     * seen once the robot loop's {@link Pathfinder#periodic()} publishes them.
+     *
+     * @param robot    The robot's current pose
+     * @param target   The target pose
+     * @param snapMode The snap mode to use
+     * @return A path from the robot's position to the target. If the last path was
+     *         reused, this is the remaining part of it (see
+     *         {@link Path#remainingFrom(Vertex, double)})
+     * @throws ImpossiblePathException If a replan was needed and no path can be
+     *                                 found
+     */
+    public Path getPath(Pose2d robot, Pose2d target, PathfindSnapMode snapMode) throws ImpossiblePathException {
+        Vertex robotPos = new Vertex(robot);
+        Vertex targetPos = new Vertex(target);
+
+        Entry entry = findEntry(targetPos, snapMode);
+        ReplanReason reason = ReplanReason.NONE;
+        if (entry == null) {
+            reason = ReplanReason.NEW_TARGET;
+        } else {
+            entry.tracker.update(robotPos);
+            if (entry.tracker.getDeviation() > deviationTolerance) {
+                reason = ReplanReason.DEVIATED;
+            } else {
+                // Checked against one snapshot, so the version recorded is the one checked
+                MapSnapshot snapshot = pathfinder.map.getSnapshot();
+                if (entry.obstacleVersion != snapshot.getVersion()) {
+                    if (routeBlocked(entry.path, snapshot)) {
+                        reason = ReplanReason.OBSTACLES_CHANGED;
+                    } else {
+                        // Still clear, no need to check again until the obstacles change
+                        entry.obstacleVersion = snapshot.getVersion();
+                    }
+                }
+            }
+        }
+
+        lastReason = reason;
+        if (reason == ReplanReason.NONE) {
+            reuses++;
+            return entry.path.remainingFrom(robotPos, entry.tracker.getProgress());
+        }
+
+        replans++;
+        if (entry != null)
+            entries.remove(entry);
+        Path path = pathfinder.generatePath(robot, target, snapMode);
+        // The version the plan was made against, an obstacle change published while
+        // planning is still checked on the next call
+        entries.addFirst(new Entry(targetPos, snapMode, path, path.getObstacleVersion()));
+        while (entries.size() > maxTargets) {
+            entries.removeLast();
+        }
+        return path;
+    }
+
+    private Entry findEntry(Vertex target, PathfindSnapMode snapMode) {
+        Iterator<Entry> it = entries.iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.snapMode == snapMode && entry.target.distance(target) <= targetTolerance) {
+                it.remove();
+                entries.addFirst(entry);
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static boolean routeBlocked(Path path, MapSnapshot snapshot) {
+        ArrayList<Vertex> route = path.getRoute();
+        for (int i = 0; i < route.size() - 1; i++) {
+            if (snapshot.crossesActiveEdge(route.get(i), route.get(i + 1)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forget every remembered path, so the next request for each target replans.
+     */
+    public void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * Get why the last call to getPath did or did not replan
+     *
+     * @return The reason for the last replan, or NONE if the last path was reused
+     */
+    public ReplanReason getLastReason() {
+        return lastReason;
+    }
+
+    /**
+     * Get the number of times a full replan was done
+     *
+     * @return The number of replans
+     */
+    public long getReplanCount() {
+        return replans;
+    }
+
+    /**
+     * Get the number of times a remembered path was reused instead of replanning
+     *
+     * @return The number of reused paths
+     */
+    public long getReuseCount() {
+        return reuses;
+    }
+
+    private static class Entry {
+        final Vertex target;
+        final PathfindSnapMode snapMode;
+        final Path path;
+        final PathTracker tracker;
+        int obstacleVersion;
+
+        Entry(Vertex target, PathfindSnapMode snapMode, Path path, int obstacleVersion) {
+            this.target = target;
+            this.snapMode = snapMode;
+            this.path = path;
+            this.tracker = path.createTracker();
+            this.obstacleVersion = obstacleVersion;
+        }
+    }
+}
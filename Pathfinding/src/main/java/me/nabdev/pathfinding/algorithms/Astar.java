@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.PriorityQueue;
 
 import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Counter;
 import me.nabdev.pathfinding.structures.ImpossiblePathException;
 import me.nabdev.pathfinding.structures.Path;
 import me.nabdev.pathfinding.structures.Vertex;
@@ -17,6 +18,7 @@ public class Astar implements SearchAlgorithm {
     private boolean started;
     private boolean solved;
     private Pathfinder pathfinder;
+    private int expanded;
 
     // The maximum number of times A* will attempt to go backwards from the target
     // point to the start.
@@ -39,9 +41,20 @@ public class Astar implements SearchAlgorithm {
      * @param end   The target point.
      * @return A Path object containing the path from the start to the target.
      * @throws ImpossiblePathException If there is no possible path from the start
+     * @deprecated Use {@link #run(SearchContext, int, int)} instead.
      */
+    @Deprecated
     @Override
     public Path run(Vertex start, Vertex end) throws ImpossiblePathException {
+        expanded = 0;
+        try {
+            return search(start, end);
+        } finally {
+            pathfinder.getMetrics().count(Counter.VERTICES_EXPANDED, expanded);
+        }
+    }
+
+    private Path search(Vertex start, Vertex end) throws ImpossiblePathException {
         while (!solved) {
             if (!started) {
                 toSearch.add(start);
@@ -54,6 +67,7 @@ public class Astar implements SearchAlgorithm {
 
             toSearch.remove(current);
             processed.add(current);
+            expanded++;
             for (Vertex neighbor : current.getNeighbors()) {
                 if (neighbor == end) {
                     solved = true;
@@ -99,4 +113,63 @@ public class Astar implements SearchAlgorithm {
         throw new ImpossiblePathException("No possible path found.");
     }
 
+    @Override
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    /**
+     * Runs the A* algorithm using the search state in the given context.
+     * 
+     * @param context The search context to use.
+     * @param start   The index of the starting point in the context.
+     * @param end     The index of the target point in the context.
+     * @return A Path object containing the path from the start to the target.
+     * @throws ImpossiblePathException If there is no possible path from the start
+     */
+    @Override
+    public Path run(SearchContext context, int start, int end) throws ImpossiblePathException {
+        context.reset();
+        Vertex target = context.getVertex(end);
+        context.push(start);
+        expanded = 0;
+        while (true) {
+            int current = context.pop();
+            if (current == -1) {
+                pathfinder.getMetrics().count(Counter.VERTICES_EXPANDED, expanded);
+                throw new ImpossiblePathException("No possible path found.");
+            }
+            context.closed[current] = true;
+            expanded++;
+            Vertex currentVertex = context.getVertex(current);
+            int count = context.loadNeighbors(current);
+            for (int i = 0; i < count; i++) {
+                int neighbor = context.neighborAt(i);
+                // Like the vertex based search, stop as soon as the target is visible
+                if (neighbor == end) {
+                    pathfinder.getMetrics().count(Counter.VERTICES_EXPANDED, expanded);
+                    Path path = new Path(context.getVertex(start), target, pathfinder);
+                    int cur = current;
+                    while (cur != start) {
+                        path.add(0, context.getVertex(cur));
+                        cur = context.parent[cur];
+                    }
+                    return path;
+                }
+                if (context.closed[neighbor])
+                    continue;
+                double g = context.g[current] + currentVertex.distance(context.getVertex(neighbor));
+                if (!context.inOpen(neighbor)) {
+                    context.g[neighbor] = g;
+                    context.h[neighbor] = context.getVertex(neighbor).distance(target);
+                    context.parent[neighbor] = current;
+                    context.push(neighbor);
+                } else if (g < context.g[neighbor]) {
+                    context.g[neighbor] = g;
+                    context.parent[neighbor] = current;
+                    context.decreased(neighbor);
+                }
+            }
+        }
+    }
 }
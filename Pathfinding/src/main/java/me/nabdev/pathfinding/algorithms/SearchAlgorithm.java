@@ -15,9 +15,35 @@ public interface SearchAlgorithm {
      * @param end   The target point.
      * @return A Path object containing the path from the start to the target.
      * @throws ImpossiblePathException If there is no possible path from the start
+     * @deprecated Keeps the search state on the vertices and reads the neighbors
+     *             from the map's deprecated dynamic visibility graph, so only one
+     *             search can use a map at a time. Use
+     *             {@link #run(SearchContext, int, int)} instead.
      */
+    @Deprecated
     public Path run(Vertex start, Vertex end) throws ImpossiblePathException;
 
+    /**
+     * Finds a path from the start to the end, keeping all search state in the
+     * given context instead of on the vertices. Searches with different contexts
+     * can run at the same time.
+     * 
+     * @param context The search context to use
+     * @param start   The index of the starting point in the context.
+     * @param end     The index of the target point in the context.
+     * @return A Path object containing the path from the start to the target.
+     * @throws ImpossiblePathException If there is no possible path from the start
+     */
+    public Path run(SearchContext context, int start, int end) throws ImpossiblePathException;
+
+    /**
+     * Get the number of vertices the last run took off the open set, whether or
+     * not it found a path.
+     * 
+     * @return The number of vertices expanded by the last run
+     */
+    public int getExpandedCount();
+
     /**
      * The different types of search algorithms available.
      * Will hopefully add more in the future.
@@ -0,0 +1,336 @@
+package me.nabdev.pathfinding.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import me.nabdev.pathfinding.metrics.PlannerMetrics;
+import me.nabdev.pathfinding.structures.Edge;
+import me.nabdev.pathfinding.structures.Map;
+import me.nabdev.pathfinding.structures.MapSnapshot;
+import me.nabdev.pathfinding.structures.Vertex;
+
+/**
+ * The state for one search over a map's visibility graph. The static part of
+ * the graph comes from a {@link MapSnapshot} and is only read, while the extra vertices for
+ * this search (like the start and target) and all of the search bookkeeping are
+ * stored here instead of on the vertices. This lets several searches run on the
+ * same map at the same time, each with its own context, and lets pathfinders
+ * share one map.
+ *
+ * Vertices are referred to by index: the map's static path vertices come first,
+ * followed by the extra vertices in the order they were given.
+ */
+public class SearchContext {
+    private final Map map;
+    private final PlannerMetrics metrics;
+    private final ArrayList<Vertex> vertices = new ArrayList<>();
+    private MapSnapshot snapshot;
+    private int staticCount;
+    private int extraCount;
+    private int[][] staticAdjacency;
+    /**
+     * Visibility from each extra vertex to every vertex in the context. Rows and
+     * columns past the current vertex count are left over from earlier loads.
+     */
+    private boolean[][] extraVisibility = new boolean[0][];
+
+    // Search state, indexed by vertex, with room for at least the current
+    // vertex count
+    double[] g = new double[0];
+    double[] h = new double[0];
+    int[] parent = new int[0];
+    boolean[] closed = new boolean[0];
+    /**
+     * Position of each vertex in the open heap, or -1 if it is not in it
+     */
+    int[] heapIndex = new int[0];
+    int[] heap = new int[0];
+    int heapSize;
+
+    private int[] neighborBuffer = new int[0];
+
+    /**
+     * Creates a new, empty search context over the given map's static visibility
+     * graph. Call {@link #load(ArrayList)} before searching it. A context can be
+     * loaded and searched any number of times, reusing its arrays, but only by one
+     * thread at a time.
+     *
+     * @param map     The map to search
+     * @param metrics Where line of sight checks are counted, or null to not count
+     *                them
+     */
+    public SearchContext(Map map, PlannerMetrics metrics) {
+        this.map = map;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a new search context over the given map's static visibility graph.
+     * The visibility between the extra vertices and the rest of the graph is
+     * calculated here.
+     *
+     * @param map           The map to search
+     * @param extraVertices Vertices to add to the graph for this search only, such
+     *                      as the start and target
+     */
+    public SearchContext(Map map, ArrayList<Vertex> extraVertices) {
+        this(map, (PlannerMetrics) null);
+        load(extraVertices);
+    }
+
+    /**
+     * Set the extra vertices for the next search and calculate their visibility,
+     * against the map's current snapshot.
+     *
+     * @param extraVertices Vertices to add to the graph for this search only, such
+     *                      as the start and target
+     */
+    public void load(ArrayList<Vertex> extraVertices) {
+        load(map.getSnapshot(), extraVertices);
+    }
+
+    /**
+     * Set the extra vertices for the next search and calculate their visibility,
+     * against the given snapshot. The search only ever sees this snapshot, even if
+     * the map publishes a new one before it is done.
+     *
+     * @param snapshot      The snapshot of the map to search, usually the one the
+     *                      query pinned when it started
+     * @param extraVertices Vertices to add to the graph for this search only, such
+     *                      as the start and target
+     */
+    public void load(MapSnapshot snapshot, ArrayList<Vertex> extraVertices) {
+        this.snapshot = snapshot;
+        ArrayList<Vertex> staticVertices = snapshot.getPathVertices();
+        staticCount = staticVertices.size();
+        extraCount = extraVertices.size();
+        staticAdjacency = snapshot.getAdjacency();
+        vertices.clear();
+        vertices.addAll(staticVertices);
+        vertices.addAll(extraVertices);
+
+        int n = vertices.size();
+        ensureCapacity(n);
+        for (int e = 0; e < extraCount; e++) {
+            Vertex extra = extraVertices.get(e);
+            boolean[] row = extraVisibility[e];
+            for (int k = 0; k < staticCount; k++) {
+                row[k] = snapshot.hasLineOfSight(extra, k, metrics);
+            }
+            row[staticCount + e] = false;
+            // Visibility between extra vertices is symmetric, so only check each pair once
+            for (int other = e + 1; other < extraCount; other++) {
+                boolean visible = snapshot.hasLineOfSight(extra, extraVertices.get(other), metrics);
+                row[staticCount + other] = visible;
+                extraVisibility[other][staticCount + e] = visible;
+            }
+        }
+    }
+
+    // Grows the arrays to fit n vertices, only ever allocating when the graph gets
+    // bigger than it has been before
+    private void ensureCapacity(int n) {
+        if (extraVisibility.length < extraCount || (extraCount > 0 && extraVisibility[0].length < n)) {
+            int columns = Math.max(n, extraVisibility.length > 0 ? extraVisibility[0].length : 0);
+            extraVisibility = new boolean[Math.max(extraCount, extraVisibility.length)][columns];
+        }
+        if (g.length < n) {
+            g = new double[n];
+            h = new double[n];
+            parent = new int[n];
+            closed = new boolean[n];
+            heapIndex = new int[n];
+            heap = new int[n];
+            neighborBuffer = new int[n];
+        }
+    }
+
+    /**
+     * Get the connections between the extra vertices and the rest of the graph,
+     * for visualizing the visibility graph. Each edge holds two indexes into this
+     * context.
+     *
+     * @return A new list of the extra edges
+     */
+    public ArrayList<Edge> getExtraEdges() {
+        ArrayList<Edge> edges = new ArrayList<>();
+        for (int e = 0; e < extraCount; e++) {
+            boolean[] row = extraVisibility[e];
+            // Edges between two extra vertices are only listed once
+            int end = staticCount + e;
+            for (int k = 0; k < end; k++) {
+                if (row[k])
+                    edges.add(new Edge(staticCount + e, k));
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Get the snapshot this context was last loaded with
+     *
+     * @return The snapshot, or null if the context was never loaded
+     */
+    public MapSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Get the number of vertices in the graph, including the extra vertices
+     *
+     * @return The number of vertices
+     */
+    public int size() {
+        return vertices.size();
+    }
+
+    /**
+     * Get every vertex in the graph, static vertices first
+     *
+     * @return The vertices, not to be modified
+     */
+    public ArrayList<Vertex> getVertices() {
+        return vertices;
+    }
+
+    /**
+     * Get a vertex by index
+     *
+     * @param i The index of the vertex
+     * @return The vertex
+     */
+    public Vertex getVertex(int i) {
+        return vertices.get(i);
+    }
+
+    /**
+     * Get the index of an extra vertex
+     *
+     * @param extra The position of the vertex in the list of extra vertices given
+     *              to the last call to {@code load}
+     * @return The index of the vertex in this context
+     */
+    public int extraIndex(int extra) {
+        return staticCount + extra;
+    }
+
+    /**
+     * Load the vertices visible from a vertex, static neighbors first. Read them
+     * with {@link #neighborAt(int)} until the next call.
+     *
+     * @param i The index of the vertex
+     * @return The number of neighbors
+     */
+    int loadNeighbors(int i) {
+        int count = 0;
+        if (i < staticCount) {
+            for (int k : staticAdjacency[i]) {
+                neighborBuffer[count++] = k;
+            }
+            for (int e = 0; e < extraCount; e++) {
+                if (extraVisibility[e][i])
+                    neighborBuffer[count++] = staticCount + e;
+            }
+        } else {
+            boolean[] row = extraVisibility[i - staticCount];
+            int n = vertices.size();
+            for (int k = 0; k < n; k++) {
+                if (row[k])
+                    neighborBuffer[count++] = k;
+            }
+        }
+        return count;
+    }
+
+    int neighborAt(int k) {
+        return neighborBuffer[k];
+    }
+
+    /**
+     * Clear the search state so the context can be searched again
+     */
+    void reset() {
+        int n = vertices.size();
+        Arrays.fill(g, 0, n, 0);
+        Arrays.fill(h, 0, n, 0);
+        Arrays.fill(parent, 0, n, -1);
+        Arrays.fill(closed, 0, n, false);
+        Arrays.fill(heapIndex, 0, n, -1);
+        heapSize = 0;
+    }
+
+    // Open set, a binary heap ordered by F = G + H, then by H
+
+    private boolean less(int a, int b) {
+        double fa = g[a] + h[a];
+        double fb = g[b] + h[b];
+        if (fa != fb)
+            return fa < fb;
+        return h[a] < h[b];
+    }
+
+    boolean inOpen(int v) {
+        return heapIndex[v] >= 0;
+    }
+
+    void push(int v) {
+        heap[heapSize] = v;
+        heapIndex[v] = heapSize;
+        heapSize++;
+        siftUp(heapIndex[v]);
+    }
+
+    /**
+     * Restore the heap order after the cost of a vertex in the open set decreased
+     */
+    void decreased(int v) {
+        siftUp(heapIndex[v]);
+    }
+
+    int pop() {
+        if (heapSize == 0)
+            return -1;
+        int top = heap[0];
+        heapSize--;
+        heapIndex[top] = -1;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int pos) {
+        int v = heap[pos];
+        while (pos > 0) {
+            int parentPos = (pos - 1) >>> 1;
+            int p = heap[parentPos];
+            if (!less(v, p))
+                break;
+            heap[pos] = p;
+            heapIndex[p] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = v;
+        heapIndex[v] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int v = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && less(heap[child + 1], heap[child]))
+                child++;
+            if (!less(heap[child], v))
+                break;
+            heap[pos] = heap[child];
+            heapIndex[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = v;
+        heapIndex[v] = pos;
+    }
+}
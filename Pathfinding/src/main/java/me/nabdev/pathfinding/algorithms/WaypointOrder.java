@@ -0,0 +1,273 @@
+package me.nabdev.pathfinding.algorithms;
+
+import java.util.Arrays;
+
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+
+/**
+ * Finds the best order to visit a set of waypoints from a fixed start, given the
+ * cost of travelling between every pair of them. Small sets are solved exactly
+ * with the Held-Karp dynamic program, larger ones with a nearest neighbor tour
+ * improved by 2-opt.
+ */
+public class WaypointOrder {
+    /**
+     * The largest number of waypoints that are ordered exactly. Held-Karp takes
+     * O(2^n * n^2) time, so past this the 2-opt heuristic is used instead.
+     */
+    public static final int HELD_KARP_LIMIT = 12;
+
+    private WaypointOrder() {
+    }
+
+    /**
+     * Shortest travel distance through the visibility graph from one vertex to
+     * every other vertex in the context (Dijkstra's algorithm).
+     *
+     * @param context The search context
+     * @param source  The index of the vertex to measure from
+     * @return The distance to every vertex in the context, or infinity for
+     *         vertices that can't be reached
+     */
+    public static double[] distancesFrom(SearchContext context, int source) {
+        return distancesFrom(context, source, null);
+    }
+
+    /**
+     * Shortest travel distance through the visibility graph from one vertex to
+     * every other vertex in the context (Dijkstra's algorithm), keeping the
+     * shortest path tree so the paths themselves can be traced with
+     * {@link #tracePath(SearchContext, int[], int, int, Pathfinder)}.
+     *
+     * @param context The search context
+     * @param source  The index of the vertex to measure from
+     * @param parents Filled with the previous vertex on the shortest path to each
+     *                vertex, or -1 for the source and unreachable vertices. At
+     *                least as long as the context, or null to not keep them.
+     * @return The distance to every vertex in the context, or infinity for
+     *         vertices that can't be reached
+     */
+    public static double[] distancesFrom(SearchContext context, int source, int[] parents) {
+        context.reset();
+        context.push(source);
+        while (true) {
+            int current = context.pop();
+            if (current == -1)
+                break;
+            context.closed[current] = true;
+            int count = context.loadNeighbors(current);
+            for (int i = 0; i < count; i++) {
+                int neighbor = context.neighborAt(i);
+                if (context.closed[neighbor])
+                    continue;
+                double g = context.g[current] + context.getVertex(current).distance(context.getVertex(neighbor));
+                if (!context.inOpen(neighbor)) {
+                    context.g[neighbor] = g;
+                    context.parent[neighbor] = current;
+                    context.push(neighbor);
+                } else if (g < context.g[neighbor]) {
+                    context.g[neighbor] = g;
+                    context.parent[neighbor] = current;
+                    context.decreased(neighbor);
+                }
+            }
+        }
+        double[] distances = new double[context.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = context.closed[i] ? context.g[i] : Double.POSITIVE_INFINITY;
+        }
+        if (parents != null)
+            System.arraycopy(context.parent, 0, parents, 0, distances.length);
+        return distances;
+    }
+
+    /**
+     * Build the path from the source of a shortest path tree to one of the vertices
+     * it reaches
+     *
+     * @param context    The search context the tree was found in
+     * @param parents    The shortest path tree, from
+     *                   {@link #distancesFrom(SearchContext, int, int[])}
+     * @param source     The index of the vertex the tree was grown from
+     * @param target     The index of the vertex to go to
+     * @param pathfinder The pathfinder the path belongs to
+     * @return The unprocessed path from the source to the target
+     * @throws ImpossiblePathException If the target can't be reached from the
+     *                                 source
+     */
+    public static Path tracePath(SearchContext context, int[] parents, int source, int target,
+            Pathfinder pathfinder) throws ImpossiblePathException {
+        Path path = new Path(context.getVertex(source), context.getVertex(target), pathfinder);
+        if (source == target)
+            return path;
+        if (parents[target] == -1)
+            throw new ImpossiblePathException("No possible path found.");
+        int cur = parents[target];
+        while (cur != source) {
+            path.add(0, context.getVertex(cur));
+            cur = parents[cur];
+        }
+        return path;
+    }
+
+    /**
+     * Find the cheapest order to visit every waypoint, starting from a fixed start
+     * and ending at whichever waypoint is last.
+     *
+     * @param startCost The cost from the start to each waypoint
+     * @param cost      The cost between each pair of waypoints, cost[i][j] is from
+     *                  waypoint i to waypoint j
+     * @return The indexes of the waypoints in the order they should be visited
+     * @throws ImpossiblePathException If some waypoint can't be reached
+     */
+    public static int[] solve(double[] startCost, double[][] cost) throws ImpossiblePathException {
+        int[] order = startCost.length <= HELD_KARP_LIMIT ? heldKarp(startCost, cost) : twoOpt(startCost, cost);
+        if (order == null || !isPermutation(order, startCost.length)
+                || Double.isInfinite(orderCost(order, startCost, cost)))
+            throw new ImpossiblePathException("No order visits every waypoint.");
+        return order;
+    }
+
+    // Whether the order visits each of the n waypoints exactly once
+    private static boolean isPermutation(int[] order, int n) {
+        if (order.length != n)
+            return false;
+        boolean[] seen = new boolean[n];
+        for (int i : order) {
+            if (i < 0 || i >= n || seen[i])
+                return false;
+            seen[i] = true;
+        }
+        return true;
+    }
+
+    /**
+     * Get the total cost of visiting the waypoints in the given order
+     *
+     * @param order     The order to visit the waypoints in
+     * @param startCost The cost from the start to each waypoint
+     * @param cost      The cost between each pair of waypoints
+     * @return The total cost
+     */
+    public static double orderCost(int[] order, double[] startCost, double[][] cost) {
+        if (order.length == 0)
+            return 0;
+        double total = startCost[order[0]];
+        for (int i = 1; i < order.length; i++) {
+            total += cost[order[i - 1]][order[i]];
+        }
+        return total;
+    }
+
+    /**
+     * Exact ordering with the Held-Karp dynamic program
+     *
+     * @param startCost The cost from the start to each waypoint
+     * @param cost      The cost between each pair of waypoints
+     * @return The cheapest order, or null if no order visits every waypoint
+     */
+    public static int[] heldKarp(double[] startCost, double[][] cost) {
+        int n = startCost.length;
+        if (n == 0)
+            return new int[0];
+        int full = (1 << n) - 1;
+        // best[mask][j]: cheapest way to visit the waypoints in mask, ending at j
+        double[][] best = new double[1 << n][n];
+        int[][] previous = new int[1 << n][n];
+        for (double[] row : best) {
+            Arrays.fill(row, Double.POSITIVE_INFINITY);
+        }
+        for (int j = 0; j < n; j++) {
+            best[1 << j][j] = startCost[j];
+            previous[1 << j][j] = -1;
+        }
+        for (int mask = 1; mask <= full; mask++) {
+            for (int j = 0; j < n; j++) {
+                double here = best[mask][j];
+                if ((mask & (1 << j)) == 0 || Double.isInfinite(here))
+                    continue;
+                for (int k = 0; k < n; k++) {
+                    if ((mask & (1 << k)) != 0)
+                        continue;
+                    int next = mask | (1 << k);
+                    double candidate = here + cost[j][k];
+                    if (candidate < best[next][k]) {
+                        best[next][k] = candidate;
+                        previous[next][k] = j;
+                    }
+                }
+            }
+        }
+        int last = 0;
+        for (int j = 1; j < n; j++) {
+            if (best[full][j] < best[full][last])
+                last = j;
+        }
+        if (Double.isInfinite(best[full][last]))
+            return null;
+        int[] order = new int[n];
+        int mask = full;
+        for (int i = n - 1; i >= 0; i--) {
+            order[i] = last;
+            int prev = previous[mask][last];
+            mask &= ~(1 << last);
+            last = prev;
+        }
+        return order;
+    }
+
+    /**
+     * Approximate ordering: a nearest neighbor tour improved with 2-opt moves
+     * until none of them make it shorter. Assumes the costs are symmetric, which
+     * is true for distances through the visibility graph.
+     *
+     * @param startCost The cost from the start to each waypoint
+     * @param cost      The cost between each pair of waypoints
+     * @return A good order, not necessarily the cheapest
+     */
+    public static int[] twoOpt(double[] startCost, double[][] cost) {
+        int n = startCost.length;
+        int[] order = new int[n];
+        boolean[] used = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int bestNext = -1;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < n; k++) {
+                if (used[k])
+                    continue;
+                double c = i == 0 ? startCost[k] : cost[order[i - 1]][k];
+                if (bestNext == -1 || c < bestCost) {
+                    bestNext = k;
+                    bestCost = c;
+                }
+            }
+            order[i] = bestNext;
+            used[bestNext] = true;
+        }
+
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    // Reversing order[i..j] replaces the edges into i and out of j
+                    double before = (i == 0 ? startCost[order[i]] : cost[order[i - 1]][order[i]])
+                            + (j == n - 1 ? 0 : cost[order[j]][order[j + 1]]);
+                    double after = (i == 0 ? startCost[order[j]] : cost[order[i - 1]][order[j]])
+                            + (j == n - 1 ? 0 : cost[order[i]][order[j + 1]]);
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int temp = order[a];
+                            order[a] = order[b];
+                            order[b] = temp;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+}
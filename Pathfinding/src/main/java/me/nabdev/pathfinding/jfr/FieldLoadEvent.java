@@ -0,0 +1,47 @@
+package me.nabdev.pathfinding.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for loading and processing a field.
+ */
+@Name("me.nabdev.pathfinding.FieldLoad")
+@Label("Field Load")
+@Category({ "Oxplorer", "Map" })
+@Description("Loading a field with FieldLoader.loadField")
+public class FieldLoadEvent extends Event {
+    /**
+     * The bundled field or file path that was loaded
+     */
+    @Label("Source")
+    public String source;
+    /**
+     * The corner cutting mode used
+     */
+    @Label("Corner Cutting")
+    public String cornerCutting;
+    /**
+     * The number of obstacles in the field
+     */
+    @Label("Obstacles")
+    public int obstacles;
+    /**
+     * The number of obstacle vertices after corner cutting
+     */
+    @Label("Vertices")
+    public int vertices;
+    /**
+     * Whether or not the field loaded
+     */
+    @Label("Success")
+    public boolean success;
+    /**
+     * Whether or not the field was loaded from a compiled field artifact
+     */
+    @Label("Compiled")
+    public boolean compiled;
+}
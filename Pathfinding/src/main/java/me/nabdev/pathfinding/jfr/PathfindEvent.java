@@ -0,0 +1,97 @@
+package me.nabdev.pathfinding.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.Vertex;
+
+/**
+ * Java Flight Recorder event for one path generation, from the start of
+ * snapping to the end of path processing. Like every JFR event, it does nothing
+ * unless a recording has it enabled.
+ */
+@Name("me.nabdev.pathfinding.Pathfind")
+@Label("Pathfind")
+@Category({ "Oxplorer", "Planning" })
+@Description("Generating a path with Pathfinder.generatePath")
+public class PathfindEvent extends Event {
+    @Label("Start X")
+    double startX;
+    @Label("Start Y")
+    double startY;
+    @Label("Target X")
+    double targetX;
+    @Label("Target Y")
+    double targetY;
+    @Label("Waypoints")
+    int waypoints;
+    @Label("Snap Mode")
+    String snapMode;
+    @Label("Vertices Expanded")
+    @Description("Vertices taken off the open set by the search, over every leg")
+    long verticesExpanded;
+    @Label("Points")
+    @Description("Points in the processed path")
+    int points;
+    @Label("Success")
+    boolean success;
+    @Label("Failure")
+    @Description("Why planning failed, usually an ImpossiblePathException")
+    String failure;
+
+    /**
+     * Create and begin a pathfind event
+     *
+     * @param start     The start of the path
+     * @param target    The final target of the path
+     * @param snapMode  The snap mode used
+     * @param waypoints The number of waypoints, including the final target
+     * @return The event, to be committed when planning ends
+     */
+    public static PathfindEvent start(Vertex start, Vertex target, PathfindSnapMode snapMode, int waypoints) {
+        PathfindEvent event = new PathfindEvent();
+        if (event.isEnabled()) {
+            event.startX = start.x;
+            event.startY = start.y;
+            event.targetX = target.x;
+            event.targetY = target.y;
+            event.snapMode = snapMode.name();
+            event.waypoints = waypoints;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Add to the number of vertices expanded by the search
+     *
+     * @param count The number of vertices expanded
+     */
+    public void addExpanded(long count) {
+        verticesExpanded += count;
+    }
+
+    /**
+     * Mark the event as successful
+     *
+     * @param path The generated path
+     */
+    public void succeeded(Path path) {
+        success = true;
+        points = path.size();
+    }
+
+    /**
+     * Mark the event as failed
+     *
+     * @param e Why planning failed
+     */
+    public void failed(Exception e) {
+        success = false;
+        failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+}
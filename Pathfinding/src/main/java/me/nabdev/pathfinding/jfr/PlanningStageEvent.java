@@ -0,0 +1,35 @@
+package me.nabdev.pathfinding.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Stage;
+
+/**
+ * Java Flight Recorder event for one stage of planning a path, using the same
+ * stages as {@link me.nabdev.pathfinding.metrics.PlannerMetrics}. Stage events
+ * are nested inside a {@link PathfindEvent} in the recording.
+ */
+@Name("me.nabdev.pathfinding.PlanningStage")
+@Label("Planning Stage")
+@Category({ "Oxplorer", "Planning" })
+@Description("One stage of generating a path")
+public class PlanningStageEvent extends Event {
+    @Label("Stage")
+    String stage;
+
+    /**
+     * Create and begin a stage event
+     *
+     * @param stage The stage that is starting
+     * @return The event, to be committed when the stage ends
+     */
+    public static PlanningStageEvent start(Stage stage) {
+        PlanningStageEvent event = new PlanningStageEvent();
+        event.stage = stage.key;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,43 @@
+package me.nabdev.pathfinding.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for turning a path into a trajectory.
+ */
+@Name("me.nabdev.pathfinding.Trajectory")
+@Label("Trajectory Generation")
+@Category({ "Oxplorer", "Planning" })
+@Description("Generating a trajectory with Path.asTrajectory")
+public class TrajectoryEvent extends Event {
+    /**
+     * The number of points in the path
+     */
+    @Label("Path Points")
+    public int points;
+    /**
+     * Whether the trajectory was profiled natively or with WPILib's
+     * TrajectoryGenerator
+     */
+    @Label("Native")
+    public boolean nativeProfile;
+    /**
+     * The number of states in the trajectory
+     */
+    @Label("States")
+    public int states;
+    /**
+     * Whether or not a trajectory was generated
+     */
+    @Label("Success")
+    public boolean success;
+    /**
+     * Why generation failed
+     */
+    @Label("Failure")
+    public String failure;
+}
@@ -0,0 +1,39 @@
+package me.nabdev.pathfinding.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for rebuilding the static visibility graph, which
+ * happens when the map is created and whenever the active obstacles change.
+ */
+@Name("me.nabdev.pathfinding.VisibilityGraph")
+@Label("Visibility Graph Rebuild")
+@Category({ "Oxplorer", "Map" })
+@Description("Regenerating the static visibility graph with Map.regenerateVisibilityGraph")
+public class VisibilityGraphEvent extends Event {
+    /**
+     * The number of static path vertices
+     */
+    @Label("Vertices")
+    public int vertices;
+    /**
+     * The number of visible pairs of vertices
+     */
+    @Label("Edges")
+    public int edges;
+    /**
+     * The obstacle version after the rebuild
+     */
+    @Label("Obstacle Version")
+    public int obstacleVersion;
+    /**
+     * Whether a graph already built for the same obstacles, or derived from the
+     * other alliance's by symmetry, was reused instead of building a new one
+     */
+    @Label("Reused")
+    public boolean reused;
+}
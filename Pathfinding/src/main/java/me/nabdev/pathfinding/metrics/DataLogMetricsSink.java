@@ -0,0 +1,66 @@
+package me.nabdev.pathfinding.metrics;
+
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.wpilibj.DataLogManager;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Counter;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Stage;
+
+/**
+ * Writes planner metrics to a WPILib data log, using the same names as
+ * {@link NetworkTablesMetricsSink} so logs and live dashboards line up. Useful
+ * for finding loop overruns after a match, when nothing was watching
+ * NetworkTables.
+ */
+public class DataLogMetricsSink implements MetricsSink {
+    /**
+     * The default prefix of every entry name
+     */
+    public static final String DEFAULT_PREFIX = "/Pathfinder/Metrics/";
+
+    private final DoubleLogEntry[][] latency = new DoubleLogEntry[Stage.values().length][];
+    private final IntegerLogEntry[] samples = new IntegerLogEntry[Stage.values().length];
+    private final IntegerLogEntry[] counters = new IntegerLogEntry[Counter.values().length];
+
+    /**
+     * Creates a new sink that writes to the log from DataLogManager
+     */
+    public DataLogMetricsSink() {
+        this(DataLogManager.getLog(), DEFAULT_PREFIX);
+    }
+
+    /**
+     * Creates a new sink
+     *
+     * @param log    The log to write to
+     * @param prefix The prefix of every entry name, should end with a slash
+     */
+    public DataLogMetricsSink(DataLog log, String prefix) {
+        for (Stage stage : Stage.values()) {
+            String base = prefix + stage.key + "/";
+            latency[stage.ordinal()] = new DoubleLogEntry[] {
+                    new DoubleLogEntry(log, base + "p50_ms"),
+                    new DoubleLogEntry(log, base + "p99_ms"),
+                    new DoubleLogEntry(log, base + "max_ms") };
+            samples[stage.ordinal()] = new IntegerLogEntry(log, base + "samples");
+        }
+        for (Counter counter : Counter.values()) {
+            counters[counter.ordinal()] = new IntegerLogEntry(log, prefix + counter.key);
+        }
+    }
+
+    @Override
+    public void recordLatency(Stage stage, double p50Ms, double p99Ms, double maxMs, long count) {
+        DoubleLogEntry[] entries = latency[stage.ordinal()];
+        entries[0].append(p50Ms);
+        entries[1].append(p99Ms);
+        entries[2].append(maxMs);
+        samples[stage.ordinal()].append(count);
+    }
+
+    @Override
+    public void recordCounter(Counter counter, long total) {
+        counters[counter.ordinal()].append(total);
+    }
+}
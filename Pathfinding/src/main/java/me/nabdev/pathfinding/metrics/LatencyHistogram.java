@@ -0,0 +1,108 @@
+package me.nabdev.pathfinding.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples of one planning stage in a ring buffer
+ * and reports percentiles over them. Recording never allocates, and reading
+ * percentiles only sorts into a buffer that is allocated once.
+ */
+public class LatencyHistogram {
+    private final long[] samples;
+    private final long[] sorted;
+    private int next = 0;
+    private int size = 0;
+    private long total = 0;
+
+    /**
+     * Creates a new latency histogram.
+     *
+     * @param window The number of most recent samples to keep
+     */
+    public LatencyHistogram(int window) {
+        if (window < 1)
+            throw new IllegalArgumentException("Histogram window must be at least 1");
+        samples = new long[window];
+        sorted = new long[window];
+    }
+
+    /**
+     * Record a sample
+     *
+     * @param nanos The latency (nanoseconds)
+     */
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length)
+            size++;
+        total++;
+    }
+
+    /**
+     * Get a percentile of the samples in the window
+     *
+     * @param percentile The percentile, between 0 and 1
+     * @return The latency at that percentile (milliseconds), or 0 if there are no
+     *         samples
+     */
+    public synchronized double getPercentileMs(double percentile) {
+        if (percentile < 0 || percentile > 1)
+            throw new IllegalArgumentException("Percentile must be between 0 and 1");
+        sort();
+        return percentileMs(percentile);
+    }
+
+    /**
+     * Get the largest sample in the window
+     *
+     * @return The largest latency (milliseconds), or 0 if there are no samples
+     */
+    public double getMaxMs() {
+        return getPercentileMs(1);
+    }
+
+    /**
+     * Get the number of samples recorded since the histogram was created or reset,
+     * including ones that have left the window
+     *
+     * @return The number of samples
+     */
+    public synchronized long getSampleCount() {
+        return total;
+    }
+
+    /**
+     * Remove every sample
+     */
+    public synchronized void reset() {
+        next = 0;
+        size = 0;
+        total = 0;
+    }
+
+    /**
+     * Write the median, 99th percentile and maximum to an array with one sort
+     *
+     * @param out The array to write to (milliseconds), must hold 3 values
+     */
+    synchronized void summarize(double[] out) {
+        sort();
+        out[0] = percentileMs(0.5);
+        out[1] = percentileMs(0.99);
+        out[2] = percentileMs(1);
+    }
+
+    private void sort() {
+        System.arraycopy(samples, 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+    }
+
+    // Nearest rank percentile of the sorted samples
+    private double percentileMs(double percentile) {
+        if (size == 0)
+            return 0;
+        int rank = (int) Math.ceil(percentile * size) - 1;
+        return sorted[Math.max(0, rank)] / 1000000.0;
+    }
+}
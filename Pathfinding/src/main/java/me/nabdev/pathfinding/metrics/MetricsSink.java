@@ -0,0 +1,30 @@
+package me.nabdev.pathfinding.metrics;
+
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Counter;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Stage;
+
+/**
+ * Somewhere to send planner metrics, like NetworkTables or the on-robot data
+ * log. {@link PlannerMetrics#publish()} calls every method once per stage or
+ * counter, so implementations should not allocate.
+ */
+public interface MetricsSink {
+    /**
+     * Record the latency of a planning stage over the histogram window
+     *
+     * @param stage   The planning stage
+     * @param p50Ms   The median latency (milliseconds)
+     * @param p99Ms   The 99th percentile latency (milliseconds)
+     * @param maxMs   The largest latency (milliseconds)
+     * @param samples The total number of times the stage has run
+     */
+    void recordLatency(Stage stage, double p50Ms, double p99Ms, double maxMs, long samples);
+
+    /**
+     * Record the total of a work counter
+     *
+     * @param counter The counter
+     * @param total   The total since the metrics were created or reset
+     */
+    void recordCounter(Counter counter, long total);
+}
@@ -0,0 +1,83 @@
+package me.nabdev.pathfinding.metrics;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Counter;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Stage;
+
+/**
+ * Publishes planner metrics to NetworkTables, with one topic per value (for
+ * example "Pathfinder/Metrics/search/p99_ms" or
+ * "Pathfinder/Metrics/los_tests"). Every publisher is created up front.
+ */
+public class NetworkTablesMetricsSink implements MetricsSink, AutoCloseable {
+    /**
+     * The default table to publish to
+     */
+    public static final String DEFAULT_TABLE = "Pathfinder/Metrics";
+
+    private final DoublePublisher[][] latency = new DoublePublisher[Stage.values().length][];
+    private final IntegerPublisher[] samples = new IntegerPublisher[Stage.values().length];
+    private final IntegerPublisher[] counters = new IntegerPublisher[Counter.values().length];
+
+    /**
+     * Creates a new sink that publishes to the default table on the default
+     * instance
+     */
+    public NetworkTablesMetricsSink() {
+        this(NetworkTableInstance.getDefault(), DEFAULT_TABLE);
+    }
+
+    /**
+     * Creates a new sink
+     *
+     * @param instance The NetworkTables instance to publish on
+     * @param table    The table to publish to
+     */
+    public NetworkTablesMetricsSink(NetworkTableInstance instance, String table) {
+        NetworkTable root = instance.getTable(table);
+        for (Stage stage : Stage.values()) {
+            NetworkTable sub = root.getSubTable(stage.key);
+            latency[stage.ordinal()] = new DoublePublisher[] {
+                    sub.getDoubleTopic("p50_ms").publish(),
+                    sub.getDoubleTopic("p99_ms").publish(),
+                    sub.getDoubleTopic("max_ms").publish() };
+            samples[stage.ordinal()] = sub.getIntegerTopic("samples").publish();
+        }
+        for (Counter counter : Counter.values()) {
+            counters[counter.ordinal()] = root.getIntegerTopic(counter.key).publish();
+        }
+    }
+
+    @Override
+    public void recordLatency(Stage stage, double p50Ms, double p99Ms, double maxMs, long count) {
+        DoublePublisher[] publishers = latency[stage.ordinal()];
+        publishers[0].set(p50Ms);
+        publishers[1].set(p99Ms);
+        publishers[2].set(maxMs);
+        samples[stage.ordinal()].set(count);
+    }
+
+    @Override
+    public void recordCounter(Counter counter, long total) {
+        counters[counter.ordinal()].set(total);
+    }
+
+    /**
+     * Stop publishing
+     */
+    @Override
+    public void close() {
+        for (Stage stage : Stage.values()) {
+            for (DoublePublisher publisher : latency[stage.ordinal()]) {
+                publisher.close();
+            }
+            samples[stage.ordinal()].close();
+        }
+        for (IntegerPublisher publisher : counters) {
+            publisher.close();
+        }
+    }
+}
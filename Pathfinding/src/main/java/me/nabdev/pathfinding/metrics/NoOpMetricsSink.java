@@ -0,0 +1,26 @@
+package me.nabdev.pathfinding.metrics;
+
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Counter;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Stage;
+
+/**
+ * A sink that ignores everything. Planner metrics with this sink are disabled,
+ * so no timing or counting is done at all.
+ */
+public final class NoOpMetricsSink implements MetricsSink {
+    /**
+     * The only instance
+     */
+    public static final NoOpMetricsSink INSTANCE = new NoOpMetricsSink();
+
+    private NoOpMetricsSink() {
+    }
+
+    @Override
+    public void recordLatency(Stage stage, double p50Ms, double p99Ms, double maxMs, long samples) {
+    }
+
+    @Override
+    public void recordCounter(Counter counter, long total) {
+    }
+}
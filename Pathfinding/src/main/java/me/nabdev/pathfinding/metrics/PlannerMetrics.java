@@ -0,0 +1,231 @@
+package me.nabdev.pathfinding.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and work metrics for one pathfinder. Each planning stage is timed
+ * into a {@link LatencyHistogram}, and the work done is tallied in counters.
+ * {@link #publish()} sends a summary to a {@link MetricsSink}.
+ *
+ * Metrics are disabled while the sink is {@link NoOpMetricsSink}. When disabled,
+ * timing and counting are a single field check, with no clock reads.
+ */
+public class PlannerMetrics {
+    /**
+     * The default number of samples kept for each stage's percentiles
+     */
+    public static final int DEFAULT_WINDOW = 256;
+
+    /**
+     * A timed part of planning a path
+     */
+    public enum Stage {
+        /**
+         * Snapping the start and target
+         */
+        SNAP("snap"),
+        /**
+         * Calculating the visibility of the start, target and dynamic vertices
+         */
+        VISIBILITY("visibility"),
+        /**
+         * Searching the visibility graph
+         */
+        SEARCH("search"),
+        /**
+         * Smoothing the path and injecting points
+         */
+        PROCESS("process"),
+        /**
+         * The whole plan, from start to finish
+         */
+        TOTAL("total");
+
+        /**
+         * The name sinks publish the stage under
+         */
+        public final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * A count of work done while planning
+     */
+    public enum Counter {
+        /**
+         * Vertices taken off the open set by the search
+         */
+        VERTICES_EXPANDED("vertices_expanded"),
+        /**
+         * Line of sight checks between two vertices
+         */
+        LOS_TESTS("los_tests"),
+        /**
+         * Obstacle edges tested for intersection during line of sight checks
+         */
+        EDGES_TESTED("edges_tested"),
+        /**
+         * Points in processed paths
+         */
+        POINTS_EMITTED("points_emitted");
+
+        /**
+         * The name sinks publish the counter under
+         */
+        public final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+    }
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final LongAdder[] counters = new LongAdder[Counter.values().length];
+    private final double[] summary = new double[3];
+
+    private volatile MetricsSink sink = NoOpMetricsSink.INSTANCE;
+    private volatile boolean enabled = false;
+
+    /**
+     * Creates new, disabled planner metrics with the default window
+     */
+    public PlannerMetrics() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates new, disabled planner metrics
+     *
+     * @param window The number of samples kept for each stage's percentiles
+     */
+    public PlannerMetrics(int window) {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram(window);
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Set where metrics are published. Setting {@link NoOpMetricsSink#INSTANCE}
+     * disables the metrics.
+     *
+     * @param newSink The new sink
+     */
+    public void setSink(MetricsSink newSink) {
+        if (newSink == null)
+            throw new IllegalArgumentException("Sink must not be null, use NoOpMetricsSink.INSTANCE instead");
+        sink = newSink;
+        enabled = newSink != NoOpMetricsSink.INSTANCE;
+    }
+
+    /**
+     * Get where metrics are published
+     *
+     * @return The current sink
+     */
+    public MetricsSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Whether or not metrics are being collected
+     *
+     * @return True if the sink is not the no-op sink
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start timing
+     *
+     * @return The current time (nanoseconds), or 0 if disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record the time since a stage started, and start timing the next one
+     *
+     * @param stage       The stage that finished
+     * @param startNanos  When the stage started, from {@link #start()} or the
+     *                    previous lap
+     * @return The current time (nanoseconds), to start the next stage from, or 0
+     *         if disabled
+     */
+    public long lap(Stage stage, long startNanos) {
+        if (!enabled)
+            return 0;
+        long now = System.nanoTime();
+        stages[stage.ordinal()].record(now - startNanos);
+        return now;
+    }
+
+    /**
+     * Add to a work counter
+     *
+     * @param counter The counter
+     * @param amount  The amount to add
+     */
+    public void count(Counter counter, long amount) {
+        if (enabled)
+            counters[counter.ordinal()].add(amount);
+    }
+
+    /**
+     * Get the latency histogram of a stage
+     *
+     * @param stage The stage
+     * @return The stage's histogram
+     */
+    public LatencyHistogram getHistogram(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * Get the total of a work counter
+     *
+     * @param counter The counter
+     * @return The total since the metrics were created or reset
+     */
+    public long getCount(Counter counter) {
+        return counters[counter.ordinal()].sum();
+    }
+
+    /**
+     * Send the percentiles of every stage and the total of every counter to the
+     * sink. Does nothing if disabled. Called from {@link
+     * me.nabdev.pathfinding.Pathfinder#periodic()}, so it is off the planning path.
+     */
+    public synchronized void publish() {
+        if (!enabled)
+            return;
+        MetricsSink current = sink;
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = stages[stage.ordinal()];
+            histogram.summarize(summary);
+            current.recordLatency(stage, summary[0], summary[1], summary[2], histogram.getSampleCount());
+        }
+        for (Counter counter : Counter.values()) {
+            current.recordCounter(counter, counters[counter.ordinal()].sum());
+        }
+    }
+
+    /**
+     * Clear every histogram and counter
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : stages) {
+            histogram.reset();
+        }
+        for (LongAdder counter : counters) {
+            counter.reset();
+        }
+    }
+}
@@ -11,6 +11,11 @@ public class ActiveAutoModifier extends ObstacleModifier {
         return DriverStationWrapper.isAutonomous();
     }
 
+    @Override
+    public int getActiveMask() {
+        return MatchState.AUTO;
+    }
+
     @Override
     public boolean requiredForActive() {
         return false;
@@ -21,6 +21,11 @@ public class ActiveEndgameModifier extends ObstacleModifier {
         }
     }
 
+    @Override
+    public int getActiveMask() {
+        return MatchState.ENDGAME;
+    }
+
     @Override
     public boolean requiredForActive() {
         return false;
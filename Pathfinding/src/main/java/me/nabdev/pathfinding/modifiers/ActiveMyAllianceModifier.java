@@ -33,6 +33,19 @@ public class ActiveMyAllianceModifier extends ObstacleModifier {
         }
     }
 
+    @Override
+    public int getActiveMask() {
+        boolean blue = myCollection.hasModifier(ObstacleModifierTypes.BLUE_ALLIANCE);
+        boolean red = myCollection.hasModifier(ObstacleModifierTypes.RED_ALLIANCE);
+        if (blue && red)
+            return MatchState.ALLIANCE_KNOWN;
+        if (blue)
+            return MatchState.BLUE;
+        if (red)
+            return MatchState.RED;
+        return 0;
+    }
+
     @Override
     public boolean requiredForActive() {
         return true;
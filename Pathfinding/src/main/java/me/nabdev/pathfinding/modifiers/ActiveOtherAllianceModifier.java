@@ -33,6 +33,19 @@ public class ActiveOtherAllianceModifier extends ObstacleModifier {
         }
     }
 
+    @Override
+    public int getActiveMask() {
+        boolean blue = myCollection.hasModifier(ObstacleModifierTypes.BLUE_ALLIANCE);
+        boolean red = myCollection.hasModifier(ObstacleModifierTypes.RED_ALLIANCE);
+        if (blue && red)
+            return MatchState.ALLIANCE_KNOWN;
+        if (blue)
+            return MatchState.RED;
+        if (red)
+            return MatchState.BLUE;
+        return 0;
+    }
+
     @Override
     public boolean requiredForActive() {
         return true;
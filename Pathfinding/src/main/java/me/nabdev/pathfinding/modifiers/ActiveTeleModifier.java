@@ -21,6 +21,11 @@ public class ActiveTeleModifier extends ObstacleModifier {
         }
     }
 
+    @Override
+    public int getActiveMask() {
+        return MatchState.TELEOP;
+    }
+
     @Override
     public boolean requiredForActive() {
         return false;
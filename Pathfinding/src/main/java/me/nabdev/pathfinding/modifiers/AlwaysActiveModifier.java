@@ -9,6 +9,11 @@ public class AlwaysActiveModifier extends ObstacleModifier {
         return true;
     }
 
+    @Override
+    public int getActiveMask() {
+        return MatchState.ALWAYS;
+    }
+
     @Override
     public boolean requiredForActive() {
         return false;
@@ -9,6 +9,11 @@ public class BlueAllianceModifier extends ObstacleModifier {
         return false;
     }
 
+    @Override
+    public int getActiveMask() {
+        return 0;
+    }
+
     @Override
     public boolean requiredForActive() {
         return false;
@@ -0,0 +1,20 @@
+package me.nabdev.pathfinding.modifiers;
+
+import me.nabdev.pathfinding.utilities.DriverStationWrapper;
+
+/**
+ * A match state source that reads the driver station, through
+ * {@link DriverStationWrapper} (so it also reports a
+ * {@link DriverStationWrapper.SimulatedMatch} when HALJNI is disabled). Use the
+ * shared instance from {@link MatchStateSource#driverStation()}.
+ */
+public class DriverStationMatchState extends MatchStateSource {
+    DriverStationMatchState() {
+        super(MatchState.current());
+    }
+
+    @Override
+    protected int read() {
+        return MatchState.current();
+    }
+}
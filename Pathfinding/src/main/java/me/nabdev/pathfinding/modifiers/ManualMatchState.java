@@ -0,0 +1,58 @@
+package me.nabdev.pathfinding.modifiers;
+
+import java.util.Optional;
+
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * A match state source that is set by hand, for tests and simulation. Like any
+ * source, a new state is only published on the next {@link #update()}.
+ */
+public class ManualMatchState extends MatchStateSource {
+    private volatile int next;
+
+    /**
+     * Creates a new manual source, starting before the match with no alliance
+     */
+    public ManualMatchState() {
+        this(MatchState.ALWAYS);
+    }
+
+    /**
+     * Creates a new manual source
+     *
+     * @param initialState The {@link MatchState} to start in
+     */
+    public ManualMatchState(int initialState) {
+        super(initialState);
+        next = initialState;
+    }
+
+    /**
+     * Set the state to publish on the next update
+     *
+     * @param alliance   The robot's alliance, empty if it hasn't been assigned
+     * @param autonomous Whether the robot is in autonomous
+     * @param teleop     Whether the robot is in teleop
+     * @param matchTime  The time left in the current period (seconds)
+     */
+    public void set(Optional<Alliance> alliance, boolean autonomous, boolean teleop, double matchTime) {
+        next = MatchState.of(alliance, autonomous, teleop, matchTime);
+    }
+
+    /**
+     * Set the state to publish on the next update
+     *
+     * @param state The {@link MatchState}
+     */
+    public void setState(int state) {
+        if ((state & MatchState.ALWAYS) == 0 || state >= MatchState.COUNT || state < 0)
+            throw new IllegalArgumentException("Invalid match state " + state);
+        next = state;
+    }
+
+    @Override
+    protected int read() {
+        return next;
+    }
+}
@@ -0,0 +1,118 @@
+package me.nabdev.pathfinding.modifiers;
+
+import java.util.Optional;
+
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.utilities.DriverStationWrapper;
+
+/**
+ * Everything the obstacle modifiers depend on, packed into a single int: the
+ * alliance and the part of the match. Every modifier is compiled into a mask
+ * over these bits when the field is loaded (see
+ * {@link ObstacleModifier#getActiveMask()}), so whether an obstacle is active in
+ * a state is a couple of bitwise operations instead of a round of driver station
+ * calls.
+ *
+ * The bits for the parts of the match are exclusive: autonomous, teleop before
+ * endgame and endgame. {@link #ALWAYS} is set in every state.
+ */
+public final class MatchState {
+    /**
+     * Set in every state
+     */
+    public static final int ALWAYS = 1;
+    /**
+     * Set when the robot has been assigned an alliance
+     */
+    public static final int ALLIANCE_KNOWN = 1 << 1;
+    /**
+     * Set when the robot is on the blue alliance
+     */
+    public static final int BLUE = 1 << 2;
+    /**
+     * Set when the robot is on the red alliance
+     */
+    public static final int RED = 1 << 3;
+    /**
+     * Set during autonomous
+     */
+    public static final int AUTO = 1 << 4;
+    /**
+     * Set during teleop, before endgame
+     */
+    public static final int TELEOP = 1 << 5;
+    /**
+     * Set during endgame
+     */
+    public static final int ENDGAME = 1 << 6;
+    /**
+     * The number of possible states. Every state is less than this.
+     */
+    public static final int COUNT = 1 << 7;
+    /**
+     * A required mask that no state satisfies, since a robot is never on both
+     * alliances
+     */
+    public static final int NEVER = BLUE | RED;
+
+    private MatchState() {
+    }
+
+    /**
+     * Pack a match state
+     *
+     * @param alliance   The robot's alliance, empty if it hasn't been assigned
+     * @param autonomous Whether the robot is in autonomous
+     * @param teleop     Whether the robot is in teleop
+     * @param matchTime  The time left in the current period (seconds)
+     * @return The match state
+     */
+    public static int of(Optional<Alliance> alliance, boolean autonomous, boolean teleop, double matchTime) {
+        int state = ALWAYS;
+        if (alliance.isPresent())
+            state |= ALLIANCE_KNOWN | (alliance.get() == Alliance.Blue ? BLUE : RED);
+        if (autonomous)
+            state |= AUTO;
+        if (teleop)
+            state |= matchTime <= Pathfinder.getEndgameTime() ? ENDGAME : TELEOP;
+        return state;
+    }
+
+    /**
+     * Read the current match state from the driver station
+     *
+     * @return The match state
+     */
+    public static int current() {
+        return of(DriverStationWrapper.getAlliance(), DriverStationWrapper.isAutonomous(),
+                DriverStationWrapper.isTeleop(), DriverStationWrapper.getMatchTime());
+    }
+
+    /**
+     * Get the same state with the robot on the other alliance. A state without an
+     * alliance is returned unchanged.
+     *
+     * @param state The match state
+     * @return The match state with {@link #BLUE} and {@link #RED} swapped
+     */
+    public static int otherAlliance(int state) {
+        int alliance = state & (BLUE | RED);
+        if (alliance == BLUE || alliance == RED)
+            return state ^ (BLUE | RED);
+        return state;
+    }
+
+    /**
+     * Whether a compiled modifier collection is active in a state: every bit of
+     * the required mask must be set, and at least one bit of the optional mask.
+     *
+     * @param requiredMask The required mask
+     * @param optionalMask The optional mask
+     * @param state        The match state
+     * @return Whether the collection is active
+     */
+    public static boolean isActive(int requiredMask, int optionalMask, int state) {
+        return (state & requiredMask) == requiredMask && (state & optionalMask) != 0;
+    }
+}
@@ -0,0 +1,103 @@
+package me.nabdev.pathfinding.modifiers;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntConsumer;
+
+/**
+ * Where the {@link MatchState} comes from. The state is read from the source
+ * once per robot loop by {@link #update()} (usually through
+ * {@link me.nabdev.pathfinding.Pathfinder#periodic()}), and changes are pushed to
+ * subscribers, such as the maps that rebuild their visibility graph. Everything
+ * else reads the last published state with {@link #getState()}, which never
+ * touches the driver station, so planning a path makes no JNI calls.
+ *
+ * {@link #driverStation()} is the source used unless another is set.
+ * {@link ManualMatchState} is set by hand, for tests and simulation.
+ */
+public abstract class MatchStateSource {
+    private static MatchStateSource driverStation;
+
+    private volatile int state;
+    private final CopyOnWriteArrayList<WeakReference<IntConsumer>> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a new source
+     *
+     * @param initialState The state to report until the first change is published
+     */
+    protected MatchStateSource(int initialState) {
+        state = initialState;
+    }
+
+    /**
+     * Get the shared source backed by the driver station
+     *
+     * @return The driver station source
+     */
+    public static synchronized MatchStateSource driverStation() {
+        if (driverStation == null)
+            driverStation = new DriverStationMatchState();
+        return driverStation;
+    }
+
+    /**
+     * Read the current state from wherever this source gets it. Only called by
+     * {@link #update()}.
+     *
+     * @return The current match state
+     */
+    protected abstract int read();
+
+    /**
+     * Get the last published state
+     *
+     * @return The match state
+     */
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * Read the state and, if it changed, publish it to every subscriber. Should be
+     * called once per robot loop. Subscribers are called on the calling thread,
+     * before this returns.
+     *
+     * @return Whether the state changed
+     */
+    public synchronized boolean update() {
+        int newState = read();
+        if (newState == state)
+            return false;
+        state = newState;
+        for (WeakReference<IntConsumer> ref : subscribers) {
+            IntConsumer subscriber = ref.get();
+            if (subscriber == null)
+                subscribers.remove(ref);
+            else
+                subscriber.accept(newState);
+        }
+        return true;
+    }
+
+    /**
+     * Call a subscriber with the new state every time it changes. The source only
+     * keeps a weak reference to the subscriber, so that the shared driver station
+     * source doesn't keep every map ever created alive. The caller has to hold on
+     * to it for as long as it should be called.
+     *
+     * @param subscriber The subscriber
+     */
+    public void subscribe(IntConsumer subscriber) {
+        subscribers.add(new WeakReference<>(subscriber));
+    }
+
+    /**
+     * Stop calling a subscriber
+     *
+     * @param subscriber The subscriber to remove
+     */
+    public void unsubscribe(IntConsumer subscriber) {
+        subscribers.removeIf(ref -> ref.get() == subscriber || ref.get() == null);
+    }
+}
@@ -6,33 +6,34 @@ import me.nabdev.pathfinding.modifiers.ObstacleModifier.ObstacleModifierTypes;
 import org.json.JSONArray;
 
 /**
- * Represents all the modifiers added to a single obstacle
+ * Represents all the modifiers added to a single obstacle. The modifiers are
+ * compiled into a required and an optional mask over the {@link MatchState}
+ * bits when the collection is created, so checking whether the obstacle is
+ * active in a state never iterates the modifiers. {@link #isActive()} checks the
+ * state last published by the collection's {@link MatchStateSource}.
  */
 public class ModifierCollection {
     /**
-     * Modifers required for the obstacle to be active
-     */
-    private ArrayList<ObstacleModifier> requiredModifiers;
-
-    /**
-     * Modifiers where only one is required for the obstacle to be active
+     * All modifiers on this obstacle
      */
-    private ArrayList<ObstacleModifier> optionalModifiers;
+    private ArrayList<ObstacleModifier> allModifiers;
 
     /**
-     * All modifiers on this obstacle
+     * Every bit a state must have for the obstacle to be active, the bits of the
+     * required modifiers
      */
-    private ArrayList<ObstacleModifier> allModifiers;
+    private final int requiredMask;
 
     /**
-     * Whether or not the obstacle is active right now
+     * A state must have at least one of these bits for the obstacle to be active,
+     * the bits of the optional modifiers
      */
-    private boolean isActive;
+    private final int optionalMask;
 
     /**
-     * Whether or not the cache is invalid
+     * Where the current match state comes from
      */
-    private boolean cacheInvalid = true;
+    private volatile MatchStateSource source = MatchStateSource.driverStation();
 
     /**
      * Create a new modifer collection and apply the given modifiers
@@ -40,18 +41,29 @@ public class ModifierCollection {
      * @param modifiers The modifiers to apply
      */
     public ModifierCollection(JSONArray modifiers) {
-        requiredModifiers = new ArrayList<>();
-        optionalModifiers = new ArrayList<>();
         allModifiers = new ArrayList<>();
         for (int i = 0; i < modifiers.length(); i++) {
             ObstacleModifierTypes type = ObstacleModifierTypes.valueOf(modifiers.getString(i));
-            ObstacleModifier mod = ObstacleModifier.getModifier(type, this);
-            allModifiers.add(mod);
-            if (mod.requiredForActive())
-                requiredModifiers.add(mod);
-            else
-                optionalModifiers.add(mod);
+            allModifiers.add(ObstacleModifier.getModifier(type, this));
+        }
+        // Compiled after every modifier is added, since the alliance modifiers look
+        // at the others
+        int required = 0;
+        int optional = 0;
+        for (ObstacleModifier mod : allModifiers) {
+            int mask = mod.getActiveMask();
+            if (!mod.requiredForActive()) {
+                optional |= mask;
+            } else if (mask == 0) {
+                // A required modifier that is never active
+                required = MatchState.NEVER;
+                break;
+            } else {
+                required |= mask;
+            }
         }
+        requiredMask = required;
+        optionalMask = optional;
     }
 
     /**
@@ -68,33 +80,59 @@ public class ModifierCollection {
         return false;
     }
 
+    /**
+     * Get the types of every modifier in this collection, in the order they were
+     * added
+     * 
+     * @return The modifier types
+     */
+    public ArrayList<ObstacleModifierTypes> getModifierTypes() {
+        ArrayList<ObstacleModifierTypes> types = new ArrayList<>();
+        for (ObstacleModifier mod : allModifiers) {
+            types.add(mod.getType());
+        }
+        return types;
+    }
+
     /**
      * Command a re-calculation for if the obstacle is active or not.
+     * 
+     * @deprecated Nothing is cached anymore, {@link #isActive()} always checks the
+     *             last state published by the {@link MatchStateSource}.
      */
+    @Deprecated
     public void invalidateCache() {
-        cacheInvalid = true;
     }
 
     /**
-     * Whether or not the obstacle is active right now based on the modifiers
+     * Set where the current match state comes from. Set by the map the obstacle is
+     * on, see {@link me.nabdev.pathfinding.structures.Map#setMatchStateSource}.
+     * 
+     * @param newSource The match state source
+     */
+    public void setMatchStateSource(MatchStateSource newSource) {
+        source = newSource;
+    }
+
+    /**
+     * Whether or not the obstacle is active right now based on the modifiers, in
+     * the state last published by the match state source. Doesn't read the driver
+     * station.
      * 
      * @return true if the obstacle is active
      */
     public boolean isActive() {
-        if (cacheInvalid) {
-            boolean hasRequired = true;
-            for (ObstacleModifier mod : requiredModifiers) {
-                if (!mod.isActive())
-                    hasRequired = false;
-            }
-            boolean hasOptional = false;
-            for (ObstacleModifier mod : optionalModifiers) {
-                if (mod.isActive())
-                    hasOptional = true;
-            }
-            isActive = hasRequired && hasOptional;
-            cacheInvalid = false;
-        }
-        return isActive;
+        return isActiveIn(source.getState());
+    }
+
+    /**
+     * Whether or not the obstacle is active in a match state. Doesn't read the
+     * driver station or the cache.
+     * 
+     * @param matchState The {@link MatchState}
+     * @return true if the obstacle is active in that state
+     */
+    public boolean isActiveIn(int matchState) {
+        return MatchState.isActive(requiredMask, optionalMask, matchState);
     }
 }
\ No newline at end of file
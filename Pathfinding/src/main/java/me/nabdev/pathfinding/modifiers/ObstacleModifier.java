@@ -114,6 +114,19 @@ public abstract class ObstacleModifier {
      */
     public abstract boolean isActive();
 
+    /**
+     * The bit of the {@link MatchState} this modifier is active in. Called once
+     * when the modifier collection is compiled, so it can look at the other
+     * modifiers in the collection. Defaults to {@link MatchState#ALWAYS}, so a
+     * modifier that doesn't say which states it is active in is treated as active
+     * in every state, as it was before modifiers were compiled.
+     * 
+     * @return A single {@link MatchState} bit, or 0 if the modifier is never active
+     */
+    public int getActiveMask() {
+        return MatchState.ALWAYS;
+    }
+
     /**
      * Whether or not this modifier MUST be active to have the obstacle active.
      * If true, will use the AND operator with other modifiers, if false, uses OR.
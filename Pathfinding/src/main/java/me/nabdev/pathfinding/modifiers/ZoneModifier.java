@@ -10,6 +10,11 @@ public class ZoneModifier extends ObstacleModifier {
         return false;
     }
 
+    @Override
+    public int getActiveMask() {
+        return 0;
+    }
+
     @Override
     public boolean requiredForActive() {
         return false;
@@ -0,0 +1,227 @@
+package me.nabdev.pathfinding.structures;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import me.nabdev.pathfinding.modifiers.MatchState;
+
+/**
+ * Everything a {@link Map} computes when it is created, precomputed so that it
+ * can be written to a field artifact and loaded at boot instead (see
+ * {@link me.nabdev.pathfinding.utilities.FieldArtifact}): the inflated obstacle
+ * vertices, the static path vertices, the obstacle edges inside the field, the
+ * symmetry of the field and the static visibility graph for every state a match
+ * can be in. States with the same active obstacles share one graph, stored in
+ * compressed sparse row form.
+ *
+ * Create one with {@link Map#compile()}, and a map from one with
+ * {@link Map#Map(ArrayList, ArrayList, ArrayList, CompiledMap, double, double)}.
+ */
+public final class CompiledMap {
+    final double clearance;
+    // Interleaved x and y coordinates
+    final double[] obstacleVertices;
+    final double[] pathVertices;
+    // Indexes into the map's obstacle edges
+    final int[] validObstacleEdges;
+    final FieldSymmetry.Type symmetryType;
+    final double symmetryTolerance;
+    final int[] symmetricVertices;
+    final boolean[][] graphValidVertices;
+    final int[][][] graphAdjacency;
+    // The graph for each match state, -1 if it wasn't precomputed
+    final int[] stateGraphs;
+
+    CompiledMap(double clearance, double[] obstacleVertices, double[] pathVertices, int[] validObstacleEdges,
+            FieldSymmetry.Type symmetryType, double symmetryTolerance, int[] symmetricVertices,
+            boolean[][] graphValidVertices, int[][][] graphAdjacency, int[] stateGraphs) {
+        this.clearance = clearance;
+        this.obstacleVertices = obstacleVertices;
+        this.pathVertices = pathVertices;
+        this.validObstacleEdges = validObstacleEdges;
+        this.symmetryType = symmetryType;
+        this.symmetryTolerance = symmetryTolerance;
+        this.symmetricVertices = symmetricVertices;
+        this.graphValidVertices = graphValidVertices;
+        this.graphAdjacency = graphAdjacency;
+        this.stateGraphs = stateGraphs;
+    }
+
+    /**
+     * Get the clearance the obstacles were inflated by
+     *
+     * @return The clearance (meters)
+     */
+    public double getClearance() {
+        return clearance;
+    }
+
+    /**
+     * Get the number of distinct visibility graphs, one for each set of active
+     * obstacles a match can have
+     *
+     * @return The number of graphs
+     */
+    public int getGraphCount() {
+        return graphAdjacency.length;
+    }
+
+    /**
+     * Write the compiled map
+     *
+     * @param out Where to write it
+     * @throws IOException If writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeDouble(clearance);
+        writeDoubles(out, obstacleVertices);
+        writeDoubles(out, pathVertices);
+        writeInts(out, validObstacleEdges);
+        out.writeByte(symmetryType == null ? -1 : symmetryType.ordinal());
+        if (symmetryType != null) {
+            out.writeDouble(symmetryTolerance);
+            writeInts(out, symmetricVertices);
+        }
+        out.writeInt(graphAdjacency.length);
+        for (int g = 0; g < graphAdjacency.length; g++) {
+            boolean[] valid = graphValidVertices[g];
+            for (int i = 0; i < valid.length; i++) {
+                out.writeByte(valid[i] ? 1 : 0);
+            }
+            // Row offsets, then every row's targets back to back
+            int[][] adjacency = graphAdjacency[g];
+            int offset = 0;
+            out.writeInt(offset);
+            for (int[] row : adjacency) {
+                offset += row.length;
+                out.writeInt(offset);
+            }
+            for (int[] row : adjacency) {
+                for (int target : row) {
+                    out.writeInt(target);
+                }
+            }
+        }
+        for (int graph : stateGraphs) {
+            out.writeInt(graph);
+        }
+    }
+
+    /**
+     * Read a compiled map written by {@link #write(DataOutput)}
+     *
+     * @param in The buffer to read from, positioned at the start of the compiled
+     *           map
+     * @return The compiled map
+     * @throws IllegalArgumentException If the data is malformed
+     */
+    public static CompiledMap read(ByteBuffer in) {
+        double clearance = in.getDouble();
+        double[] obstacleVertices = readDoubles(in);
+        double[] pathVertices = readDoubles(in);
+        int[] validObstacleEdges = readInts(in);
+        int symmetry = in.get();
+        FieldSymmetry.Type symmetryType = null;
+        double symmetryTolerance = 0;
+        int[] symmetricVertices = null;
+        if (symmetry >= 0) {
+            if (symmetry >= FieldSymmetry.Type.values().length)
+                throw new IllegalArgumentException("Unknown symmetry " + symmetry);
+            symmetryType = FieldSymmetry.Type.values()[symmetry];
+            symmetryTolerance = in.getDouble();
+            symmetricVertices = readInts(in);
+        }
+        int vertexCount = pathVertices.length / 2;
+        int graphCount = in.getInt();
+        boolean[][] graphValidVertices = new boolean[graphCount][];
+        int[][][] graphAdjacency = new int[graphCount][][];
+        for (int g = 0; g < graphCount; g++) {
+            boolean[] valid = new boolean[vertexCount];
+            for (int i = 0; i < vertexCount; i++) {
+                valid[i] = in.get() != 0;
+            }
+            int[] offsets = readInts(in, vertexCount + 1);
+            int[] targets = readInts(in, offsets[vertexCount]);
+            int[][] adjacency = new int[vertexCount][];
+            for (int i = 0; i < vertexCount; i++) {
+                if (offsets[i] < 0 || offsets[i + 1] < offsets[i] || offsets[i + 1] > targets.length)
+                    throw new IllegalArgumentException("Malformed visibility graph");
+                adjacency[i] = Arrays.copyOfRange(targets, offsets[i], offsets[i + 1]);
+            }
+            for (int target : targets) {
+                if (target < 0 || target >= vertexCount)
+                    throw new IllegalArgumentException("Visibility graph vertex " + target + " out of range");
+            }
+            graphValidVertices[g] = valid;
+            graphAdjacency[g] = adjacency;
+        }
+        int[] stateGraphs = new int[MatchState.COUNT];
+        for (int i = 0; i < stateGraphs.length; i++) {
+            stateGraphs[i] = in.getInt();
+            if (stateGraphs[i] < -1 || stateGraphs[i] >= graphCount)
+                throw new IllegalArgumentException("Malformed state table");
+        }
+        if (symmetricVertices != null && symmetricVertices.length != vertexCount)
+            throw new IllegalArgumentException("Malformed symmetry");
+        return new CompiledMap(clearance, obstacleVertices, pathVertices, validObstacleEdges, symmetryType,
+                symmetryTolerance, symmetricVertices, graphValidVertices, graphAdjacency, stateGraphs);
+    }
+
+    // Creates new vertices every time, since a map writes to its vertices
+    static ArrayList<Vertex> toVertices(double[] coordinates) {
+        ArrayList<Vertex> vertices = new ArrayList<>(coordinates.length / 2);
+        for (int i = 0; i < coordinates.length; i += 2) {
+            vertices.add(new Vertex(coordinates[i], coordinates[i + 1]));
+        }
+        return vertices;
+    }
+
+    static double[] toCoordinates(ArrayList<Vertex> vertices) {
+        double[] coordinates = new double[vertices.size() * 2];
+        for (int i = 0; i < vertices.size(); i++) {
+            coordinates[i * 2] = vertices.get(i).x;
+            coordinates[i * 2 + 1] = vertices.get(i).y;
+        }
+        return coordinates;
+    }
+
+    private static void writeDoubles(DataOutput out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static void writeInts(DataOutput out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static double[] readDoubles(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining() / Double.BYTES)
+            throw new IllegalArgumentException("Malformed array length " + length);
+        double[] values = new double[length];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + length * Double.BYTES);
+        return values;
+    }
+
+    private static int[] readInts(ByteBuffer in) {
+        return readInts(in, in.getInt());
+    }
+
+    private static int[] readInts(ByteBuffer in, int length) {
+        if (length < 0 || length > in.remaining() / Integer.BYTES)
+            throw new IllegalArgumentException("Malformed array length " + length);
+        int[] values = new int[length];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + length * Integer.BYTES);
+        return values;
+    }
+}
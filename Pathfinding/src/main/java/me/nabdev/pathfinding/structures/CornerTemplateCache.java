@@ -0,0 +1,257 @@
+package me.nabdev.pathfinding.structures;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Caches the sampled points of path corners. The shape of a corner only depends
+ * on the turn angle, the lengths of the two legs of its bezier curve, the number
+ * of points and the corner point spacing, so each shape is sampled once in a
+ * canonical frame (starting at the origin with the first leg along +x) and then
+ * rotated and translated into place for every corner that uses it.
+ *
+ * The turn angle and lengths are quantized to {@link #ANGLE_QUANTUM} and
+ * {@link #LENGTH_QUANTUM}, so corners that turn by nearly the same angle (like
+ * the same obstacle corner passed by two different paths, or a corner and its
+ * image on the other half of a symmetric field) share a template. Templates are
+ * sampled from the quantized values so that the result never depends on which
+ * corner was cached first. A corner placed from a template is within about a
+ * millimeter of one sampled in place, far inside the clearance.
+ */
+public class CornerTemplateCache {
+    /**
+     * The default maximum number of cached corner templates
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+    /**
+     * The turn angle resolution of the cache (radians)
+     */
+    public static final double ANGLE_QUANTUM = 1e-3;
+    /**
+     * The leg length resolution of the cache (meters)
+     */
+    public static final double LENGTH_QUANTUM = 1e-3;
+
+    private final int maxSize;
+    private final LinkedHashMap<Key, double[]> templates;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a new corner template cache with the default maximum size.
+     */
+    public CornerTemplateCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new corner template cache.
+     *
+     * @param maxSize The maximum number of templates to keep. The least recently
+     *                used template is evicted when this is exceeded.
+     */
+    public CornerTemplateCache(int maxSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Corner template cache size must be at least 1");
+        this.maxSize = maxSize;
+        this.templates = new LinkedHashMap<Key, double[]>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Key, double[]> eldest) {
+                return size() > CornerTemplateCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Add the sampled points of a corner to a segment.
+     *
+     * @param curve      The segment to add the points to
+     * @param cornerDist The corner distance used to sample normalized corners
+     * @param p0         The first control point
+     * @param p1         The second control point (the one that won't lie on the
+     *                   curve)
+     * @param p2         The third control point
+     * @param spacing    The corner point spacing
+     * @param normalize  Whether or not to normalize the distance between points
+     */
+    public void sample(PathSegment curve, double cornerDist, Vertex p0, Vertex p1, Vertex p2, double spacing,
+            boolean normalize) {
+        double ax = p1.x - p0.x;
+        double ay = p1.y - p0.y;
+        double bx = p2.x - p1.x;
+        double by = p2.y - p1.y;
+        double legA = Math.sqrt(ax * ax + ay * ay);
+        double legB = Math.sqrt(bx * bx + by * by);
+        if (legA < 1e-6) {
+            // Degenerate corner, there is no first leg to rotate into place
+            addPoints(curve, sampleCanonical(legA, legB, Math.atan2(by, bx),
+                    countPoints(normalize ? cornerDist : 1, spacing), spacing, normalize), p0.x, p0.y, 1, 0);
+            return;
+        }
+        double turn = Math.atan2(ax * by - ay * bx, ax * bx + ay * by);
+        // The corner distance only decides how many points there are
+        Key key = new Key(Math.round(turn / ANGLE_QUANTUM), Math.round(legA / LENGTH_QUANTUM),
+                normalize ? 0 : Math.round(legB / LENGTH_QUANTUM), countPoints(normalize ? cornerDist : 1, spacing),
+                spacing, normalize);
+
+        double[] template;
+        synchronized (this) {
+            template = templates.get(key);
+            if (template != null)
+                hits++;
+            else
+                misses++;
+        }
+        if (template == null) {
+            // Normalized corners only use the direction of the second leg
+            template = sampleCanonical(key.legA * LENGTH_QUANTUM, normalize ? 1 : key.legB * LENGTH_QUANTUM,
+                    key.turn * ANGLE_QUANTUM, key.count, spacing, normalize);
+            synchronized (this) {
+                templates.put(key, template);
+            }
+        }
+        addPoints(curve, template, p0.x, p0.y, ax / legA, ay / legA);
+    }
+
+    private static void addPoints(PathSegment curve, double[] template, double x, double y, double cos,
+            double sin) {
+        for (int i = 0; i < template.length; i += 2) {
+            double tx = template[i];
+            double ty = template[i + 1];
+            curve.add(new Vertex(x + tx * cos - ty * sin, y + tx * sin + ty * cos));
+        }
+    }
+
+    /**
+     * Sample a corner with the first control point at the origin and the first leg
+     * along +x. Follows the same construction as sampling the corner in place.
+     */
+    private static double[] sampleCanonical(double legA, double legB, double turn, int count, double spacing,
+            boolean normalize) {
+        double p1x = legA;
+        double p1y = 0;
+        double bx = legB * Math.cos(turn);
+        double by = legB * Math.sin(turn);
+        double v0x = legA;
+        double v0y = 0;
+        double v1x = bx;
+        double v1y = by;
+        if (normalize) {
+            double s0 = inverseMagnitude(v0x, v0y);
+            v0x *= s0;
+            v0y *= s0;
+            double s1 = inverseMagnitude(v1x, v1y);
+            v1x *= s1;
+            v1y *= s1;
+        }
+        double[] points = new double[count * 2];
+        double t = 0;
+        for (int i = 0; i < points.length; t += spacing) {
+            double q0x = v0x * t;
+            double q0y = v0y * t;
+            double q1x = p1x + v1x * t;
+            double q1y = p1y + v1y * t;
+            double v2x = q1x - q0x;
+            double v2y = q1y - q0y;
+            if (normalize) {
+                double s2 = inverseMagnitude(v2x, v2y);
+                v2x *= s2;
+                v2y *= s2;
+            }
+            points[i++] = q0x + v2x * t;
+            points[i++] = q0y + v2y * t;
+        }
+        return points;
+    }
+
+    // Counts the samples the same way the corner is sampled, by stepping t up to
+    // the corner distance
+    private static int countPoints(double cornerDist, double spacing) {
+        int count = 0;
+        for (double t = 0; t < cornerDist; t += spacing) {
+            count++;
+        }
+        return count;
+    }
+
+    // Scale factor that normalizes a vector, zero for vectors that are too short
+    // (the same as Vector.normalize)
+    private static double inverseMagnitude(double x, double y) {
+        double magnitude = Math.sqrt(x * x + y * y);
+        return magnitude < 1e-6 ? 0 : 1 / magnitude;
+    }
+
+    /**
+     * Remove every template from the cache. Should be called when the corner
+     * settings change.
+     */
+    public synchronized void clear() {
+        templates.clear();
+    }
+
+    /**
+     * Get the number of templates in the cache
+     *
+     * @return The number of cached templates
+     */
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    /**
+     * Get the number of corners that were built from a cached template
+     *
+     * @return The number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of corners that had to be sampled
+     *
+     * @return The number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static final class Key {
+        final long turn;
+        final long legA;
+        final long legB;
+        final int count;
+        final double spacing;
+        final boolean normalize;
+
+        Key(long turn, long legA, long legB, int count, double spacing, boolean normalize) {
+            this.turn = turn;
+            this.legA = legA;
+            this.legB = legB;
+            this.count = count;
+            this.spacing = spacing;
+            this.normalize = normalize;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = Long.hashCode(turn);
+            h = 31 * h + Long.hashCode(legA);
+            h = 31 * h + Long.hashCode(legB);
+            h = 31 * h + count;
+            h = 31 * h + Double.hashCode(spacing);
+            return 31 * h + Boolean.hashCode(normalize);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return turn == other.turn && legA == other.legA && legB == other.legB
+                    && count == other.count && spacing == other.spacing && normalize == other.normalize;
+        }
+    }
+}
@@ -147,4 +147,17 @@ public class Edge {
             return true;
         return modifiers.isActive();
     }
+
+    /**
+     * Whether or not the edge is active in a match state, without reading the
+     * driver station
+     * 
+     * @param matchState The {@link me.nabdev.pathfinding.modifiers.MatchState}
+     * @return true if the edge is active in that state (or has no modifiers)
+     */
+    public boolean isActiveIn(int matchState) {
+        if (modifiers == null)
+            return true;
+        return modifiers.isActiveIn(matchState);
+    }
 }
@@ -0,0 +1,178 @@
+package me.nabdev.pathfinding.structures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.BiPredicate;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A transform that takes one alliance's half of the field onto the other's.
+ * Most fields are either mirrored across the center line or rotated 180 degrees
+ * around the center of the field.
+ *
+ * A {@link Map} on a symmetric field only builds the visibility graph for one
+ * alliance, and derives the graph for the other by mapping every path vertex to
+ * its image (see {@link Map#getSymmetry()}). Paths drawn for one alliance can be
+ * loaded for the other with
+ * {@link me.nabdev.pathfinding.utilities.PathSerializer#fromDeployFolder(String, FieldSymmetry)}.
+ */
+public class FieldSymmetry {
+    /**
+     * The default for how far (meters) a point's image may be from the point it
+     * should land on for the field to still count as symmetric. Field drawings are
+     * rarely more precise than a millimeter.
+     */
+    public static final double TOLERANCE = 1e-3;
+
+    /**
+     * The kinds of symmetry a field can have
+     */
+    public enum Type {
+        /**
+         * Mirrored across the center line, x becomes fieldx - x
+         */
+        MIRROR,
+        /**
+         * Rotated 180 degrees around the center of the field
+         */
+        ROTATION
+    }
+
+    private final Type type;
+    private final double fieldx;
+    private final double fieldy;
+    private final double tolerance;
+
+    /**
+     * Creates a new field symmetry with the default {@link #TOLERANCE}
+     *
+     * @param type   The kind of symmetry
+     * @param fieldx The x dimension of the field (meters)
+     * @param fieldy The y dimension of the field (meters)
+     */
+    public FieldSymmetry(Type type, double fieldx, double fieldy) {
+        this(type, fieldx, fieldy, TOLERANCE);
+    }
+
+    /**
+     * Creates a new field symmetry
+     *
+     * @param type      The kind of symmetry
+     * @param fieldx    The x dimension of the field (meters)
+     * @param fieldy    The y dimension of the field (meters)
+     * @param tolerance How far (meters) a point's image may be from the point it
+     *                  should land on
+     */
+    public FieldSymmetry(Type type, double fieldx, double fieldy, double tolerance) {
+        if (type == null)
+            throw new IllegalArgumentException("Symmetry type cannot be null");
+        if (tolerance <= 0)
+            throw new IllegalArgumentException("Tolerance must be positive");
+        this.type = type;
+        this.fieldx = fieldx;
+        this.fieldy = fieldy;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Get the kind of symmetry
+     *
+     * @return The symmetry type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get how far a point's image may be from the point it should land on
+     *
+     * @return The tolerance (meters)
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Get the image of a vertex on the other alliance's side of the field. The
+     * rotation is transformed too, so a robot facing the blue driver station
+     * faces the red one afterwards.
+     *
+     * @param v The vertex
+     * @return A new vertex at the image of v
+     */
+    public Vertex apply(Vertex v) {
+        Rotation2d r = v.rotation;
+        if (type == Type.MIRROR)
+            return new Vertex(fieldx - v.x, v.y, new Rotation2d(-r.getCos(), r.getSin()));
+        return new Vertex(fieldx - v.x, fieldy - v.y, new Rotation2d(-r.getCos(), -r.getSin()));
+    }
+
+    /**
+     * Find the image of every vertex in a list. Every image has to be another
+     * vertex in the same list, within the tolerance.
+     *
+     * @param vertices The vertices
+     * @return The index of the image of each vertex, or null if some image isn't in
+     *         the list
+     */
+    int[] permutation(ArrayList<Vertex> vertices) {
+        return permutation(vertices, (i, j) -> true);
+    }
+
+    /**
+     * Find the image of every vertex in a list, where vertices at the same place
+     * can be told apart. Every image has to be another vertex in the same list,
+     * within the tolerance.
+     *
+     * @param vertices The vertices
+     * @param matches  Whether the vertex at the second index can be the image of
+     *                 the vertex at the first
+     * @return The index of the image of each vertex, or null if some image isn't in
+     *         the list
+     */
+    int[] permutation(ArrayList<Vertex> vertices, BiPredicate<Integer, Integer> matches) {
+        // Bucket the vertices on a tolerance sized grid, so each image only has to
+        // be compared against the vertices in the surrounding cells
+        HashMap<Long, ArrayList<Integer>> grid = new HashMap<>();
+        for (int i = 0; i < vertices.size(); i++) {
+            Vertex v = vertices.get(i);
+            grid.computeIfAbsent(cell(Math.round(v.x / tolerance), Math.round(v.y / tolerance)),
+                    k -> new ArrayList<>()).add(i);
+        }
+        int[] images = new int[vertices.size()];
+        boolean[] taken = new boolean[vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            Vertex image = apply(vertices.get(i));
+            images[i] = find(grid, vertices, image, taken, i, matches);
+            if (images[i] == -1)
+                return null;
+            taken[images[i]] = true;
+        }
+        return images;
+    }
+
+    private int find(HashMap<Long, ArrayList<Integer>> grid, ArrayList<Vertex> vertices, Vertex image,
+            boolean[] taken, int source, BiPredicate<Integer, Integer> matches) {
+        long cx = Math.round(image.x / tolerance);
+        long cy = Math.round(image.y / tolerance);
+        for (long dx = -1; dx <= 1; dx++) {
+            for (long dy = -1; dy <= 1; dy++) {
+                ArrayList<Integer> bucket = grid.get(cell(cx + dx, cy + dy));
+                if (bucket == null)
+                    continue;
+                for (int j : bucket) {
+                    Vertex v = vertices.get(j);
+                    if (!taken[j] && Math.abs(v.x - image.x) <= tolerance && Math.abs(v.y - image.y) <= tolerance
+                            && matches.test(source, j))
+                        return j;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static long cell(long x, long y) {
+        return (x << 32) ^ (y & 0xffffffffL);
+    }
+}
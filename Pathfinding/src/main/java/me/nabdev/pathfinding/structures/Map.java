@@ -1,10 +1,50 @@
 package me.nabdev.pathfinding.structures;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.function.ToDoubleFunction;
+
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.jfr.VisibilityGraphEvent;
+import me.nabdev.pathfinding.metrics.PlannerMetrics;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Counter;
+import me.nabdev.pathfinding.modifiers.MatchState;
+import me.nabdev.pathfinding.modifiers.MatchStateSource;
 
 /**
  * Represents all the obstacles on the map as well as the visibility graph that
  * the robot can use to navigate.
+ * 
+ * A map can be shared by several pathfinders (see
+ * {@link Pathfinder#createPlanner()}). The obstacle state and visibility graph
+ * are published as immutable {@link MapSnapshot}s: a query pins the current
+ * snapshot with {@link #getSnapshot()} and plans against it, keeping its own
+ * state in a {@link me.nabdev.pathfinding.algorithms.SearchContext}. When the
+ * active obstacles change, a new snapshot is built and swapped in without
+ * waiting for running queries, so queries never take a lock.
+ * 
+ * The active obstacles follow a {@link MatchStateSource}, the driver station
+ * unless another is set. The map subscribes to it and rebuilds when a new state
+ * is published, so queries never check the match state themselves.
+ * 
+ * On a symmetric field (see {@link FieldSymmetry}), the visibility graph is only
+ * built for one alliance. The graph for the same part of the match on the other
+ * alliance is derived from it by mapping each path vertex to its image, so an
+ * alliance change doesn't have to rebuild anything.
+ * 
+ * Robots that change footprint, like one carrying a game piece with its arm
+ * out, plan on a clearance layer (see {@link #getLayer(double)}): the same
+ * obstacles inflated by another clearance, with their own visibility graph, but
+ * sharing the field geometry, modifiers and match state with this map. A
+ * rectangular robot can use heading layers instead (see
+ * {@link #getHeadingLayer(double, double, double, double)}), inflated by the
+ * robot's actual footprint over a range of headings rather than the circle
+ * around it.
  */
 public class Map {
     /**
@@ -31,6 +71,18 @@ public class Map {
      */
     public static final double eps = 0.001;
 
+    /**
+     * The clearance the obstacles were inflated by (meters). For a heading layer,
+     * the most any edge can be moved out by.
+     */
+    private final double clearance;
+
+    /**
+     * The obstacle vertices before inflation, so clearance layers can inflate them
+     * by their own clearance. Shared by every layer.
+     */
+    private final ArrayList<Vertex> rawVertices;
+
     /**
      * The vertices of the obstacles, inflated by the clearance parameter.
      * This is so that a robot won't attempt to shove its side into an obstacle.
@@ -61,23 +113,73 @@ public class Map {
      */
     ArrayList<Vertex> pathVerticesStatic = new ArrayList<>();
     /**
-     * Intended to represent dynamic obstacle detections (like another robot) but is
-     * currently unused.
-     * It is fully implemented, if you have a robot detector.
+     * The index of each static path vertex, shared by every snapshot so they can
+     * look up validity by index. Built with the first snapshot.
+     */
+    private IdentityHashMap<Vertex, Integer> pathVertexIndexes;
+    /**
+     * The static path vertices plus the vertices added by the last call to
+     * {@link #calculateDynamicVisibilityGraph(ArrayList, boolean)}.
      */
     ArrayList<Vertex> pathVertices;
 
     /**
-     * Represents the valid connections between the path vertices.
-     * If two path vertices have a valid line of sight, they are considered
-     * neighbors.
+     * The static neighbors plus the connections added by the last call to
+     * {@link #calculateDynamicVisibilityGraph(ArrayList, boolean)}.
      */
-    ArrayList<Edge> neighborsStatic = new ArrayList<>();
+    ArrayList<Edge> neighbors;
 
     /**
-     * Represents the valid connections between the non-static path vertices.
+     * The newest obstacle state and visibility graph. Replaced, never modified,
+     * whenever the set of active obstacles changes.
      */
-    ArrayList<Edge> neighbors;
+    private volatile MapSnapshot snapshot;
+
+    /**
+     * Where line of sight checks made while building the static visibility graph
+     * are counted
+     */
+    private PlannerMetrics metrics = new PlannerMetrics();
+
+    /**
+     * Held while building a new snapshot, so only one is built at a time. Shared by
+     * every clearance layer.
+     */
+    private final ReentrantLock rebuildLock;
+
+    /**
+     * The active obstacles in each {@link MatchState}, as a bitset over the
+     * obstacle indexes. Each is calculated the first time the state is seen, and
+     * never changes since the obstacles and their modifiers don't. Shared by
+     * every clearance layer, since they have the same obstacles. Guarded by
+     * rebuildLock.
+     */
+    private final long[][] activeByState;
+
+    /**
+     * Every layer built so far, this map included, by clearance, or by footprint
+     * and heading range for heading layers. Shared by every layer. Guarded by
+     * rebuildLock.
+     */
+    private final HashMap<Object, Map> layers;
+
+    /**
+     * The static visibility graph for each {@link MatchState} it has been built or
+     * derived for. States with the same active obstacles share one graph. Guarded
+     * by rebuildLock.
+     */
+    private final StaticGraph[] graphByState = new StaticGraph[MatchState.COUNT];
+
+    /**
+     * The symmetry of the field, or null if it isn't symmetric
+     */
+    private volatile FieldSymmetry symmetry;
+    // The index of the image of each static path vertex under the symmetry
+    private int[] symmetricVertices;
+
+    private volatile MatchStateSource matchStateSource = MatchStateSource.driverStation();
+    // Kept here since sources only hold weak references to their subscribers
+    private final IntConsumer matchStateSubscriber = state -> refreshObstacleState();
 
     /**
      * Create a new map with the given obstacles, vertices, and clearance parameter.
@@ -94,8 +196,14 @@ public class Map {
         obstacleEdges = obEdges;
         obstacleVertices = obVertices;
         obstacles = obs;
+        this.clearance = clearance;
         this.fieldx = fieldx;
         this.fieldy = fieldy;
+        rawVertices = copyVertices(obVertices);
+        rebuildLock = new ReentrantLock();
+        activeByState = new long[MatchState.COUNT][];
+        layers = new HashMap<>();
+        layers.put(clearance, this);
         for (int i = 0; i < obstacles.size(); i++) {
             Obstacle o = obstacles.get(i);
             if (!o.isConvexAndClockwise()) {
@@ -105,18 +213,660 @@ public class Map {
         }
         // Uses vectors to make a list of points around the vertices of obstacles,
         // offset by the clearance parameter.
-        pathVerticesStatic = calculateStaticPathVertices(clearance);
+        pathVerticesStatic = calculateStaticPathVertices(normal -> clearance);
         validObstacleEdges = getValidObstacleEdges(obstacleEdges, obstacleVertices);
+        for (FieldSymmetry.Type type : FieldSymmetry.Type.values()) {
+            FieldSymmetry candidate = new FieldSymmetry(type, fieldx, fieldy);
+            int[] images = symmetricVertices(candidate);
+            if (images != null) {
+                symmetry = candidate;
+                symmetricVertices = images;
+                break;
+            }
+        }
+        for (Obstacle o : obstacles) {
+            o.modifiers.setMatchStateSource(matchStateSource);
+        }
+        matchStateSource.subscribe(matchStateSubscriber);
         regenerateVisibilityGraph();
     }
 
+    /**
+     * Create a new map from one compiled ahead of time with {@link #compile()},
+     * skipping the obstacle inflation and, for every state the compiled map has a
+     * graph for, building the visibility graph. The obstacles are expected to be
+     * the ones it was compiled from, and aren't validated again.
+     * 
+     * @param obs        The obstacles.
+     * @param obVertices The vertices of the obstacles. Replaced with the inflated
+     *                   vertices, like the other constructor does.
+     * @param obEdges    The edges of the obstacles.
+     * @param compiled   The compiled map.
+     * @param fieldx     The x dimension of the field (meters)
+     * @param fieldy     The y dimension of the field (meters)
+     * @throws IllegalArgumentException If the compiled map doesn't fit the
+     *                                  obstacles
+     */
+    public Map(ArrayList<Obstacle> obs, ArrayList<Vertex> obVertices, ArrayList<Edge> obEdges, CompiledMap compiled,
+            double fieldx, double fieldy) {
+        obstacleEdges = obEdges;
+        obstacleVertices = obVertices;
+        obstacles = obs;
+        this.clearance = compiled.clearance;
+        this.fieldx = fieldx;
+        this.fieldy = fieldy;
+        rawVertices = copyVertices(obVertices);
+        rebuildLock = new ReentrantLock();
+        activeByState = new long[MatchState.COUNT][];
+        layers = new HashMap<>();
+        layers.put(clearance, this);
+        if (compiled.obstacleVertices.length != obVertices.size() * 2)
+            throw new IllegalArgumentException("Compiled map has a different number of obstacle vertices");
+        obstacleVertices.clear();
+        obstacleVertices.addAll(CompiledMap.toVertices(compiled.obstacleVertices));
+        pathVerticesStatic = CompiledMap.toVertices(compiled.pathVertices);
+        validObstacleEdges = new ArrayList<>(compiled.validObstacleEdges.length);
+        for (int edge : compiled.validObstacleEdges) {
+            if (edge < 0 || edge >= obstacleEdges.size())
+                throw new IllegalArgumentException("Compiled map has an obstacle edge out of range");
+            validObstacleEdges.add(obstacleEdges.get(edge));
+        }
+        if (compiled.symmetryType != null) {
+            symmetry = new FieldSymmetry(compiled.symmetryType, fieldx, fieldy, compiled.symmetryTolerance);
+            symmetricVertices = compiled.symmetricVertices;
+        }
+        for (Obstacle o : obstacles) {
+            o.modifiers.setMatchStateSource(matchStateSource);
+        }
+        rebuildLock.lock();
+        try {
+            StaticGraph[] graphs = new StaticGraph[compiled.getGraphCount()];
+            for (int state = 0; state < MatchState.COUNT; state++) {
+                int g = compiled.stateGraphs[state];
+                if (g == -1)
+                    continue;
+                if (graphs[g] == null) {
+                    int[][] adjacency = compiled.graphAdjacency[g];
+                    ArrayList<Edge> neighbors = new ArrayList<>();
+                    for (int i = 0; i < adjacency.length; i++) {
+                        for (int j : adjacency[i]) {
+                            if (j > i)
+                                neighbors.add(new Edge(i, j));
+                        }
+                    }
+                    graphs[g] = new StaticGraph(activeObstacles(state), compiled.graphValidVertices[g], neighbors,
+                            adjacency);
+                }
+                graphByState[state] = graphs[g];
+            }
+            matchStateSource.subscribe(matchStateSubscriber);
+            rebuild(matchStateSource.getState(), true);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // A layer of base, with each obstacle edge moved out by inflation (given the
+    // edge's outward normal). See getLayer. Must hold rebuildLock.
+    private Map(Map base, double clearance, ToDoubleFunction<Vector> inflation) {
+        this.clearance = clearance;
+        fieldx = base.fieldx;
+        fieldy = base.fieldy;
+        rawVertices = base.rawVertices;
+        rebuildLock = base.rebuildLock;
+        activeByState = base.activeByState;
+        layers = base.layers;
+        metrics = base.metrics;
+        matchStateSource = base.matchStateSource;
+        obstacleEdges = base.obstacleEdges;
+        // Obstacles point into the vertices they are inflated with, so the layer
+        // gets its own, sharing the edges and modifiers of the base's
+        obstacleVertices = copyVertices(rawVertices);
+        obstacles = new ArrayList<>(base.obstacles.size());
+        for (Obstacle o : base.obstacles) {
+            obstacles.add(new Obstacle(obstacleVertices, o.getEdges(), o.id, o.modifiers));
+        }
+        pathVerticesStatic = calculateStaticPathVertices(inflation);
+        validObstacleEdges = getValidObstacleEdges(obstacleEdges, obstacleVertices);
+        FieldSymmetry baseSymmetry = base.symmetry;
+        if (baseSymmetry != null) {
+            FieldSymmetry candidate = new FieldSymmetry(baseSymmetry.getType(), fieldx, fieldy,
+                    baseSymmetry.getTolerance());
+            int[] images = symmetricVertices(candidate);
+            if (images != null) {
+                symmetry = candidate;
+                symmetricVertices = images;
+            }
+        }
+        // Done by the pathfinder for the obstacles of the map it creates
+        for (Obstacle o : obstacles) {
+            o.initialize(pathVerticesStatic);
+        }
+        matchStateSource.subscribe(matchStateSubscriber);
+        rebuild(matchStateSource.getState(), true);
+    }
+
+    /**
+     * Get a clearance layer of this map, for a robot footprint that needs a
+     * different clearance (like the robot with its arm extended). The layer
+     * inflates the same obstacles by its own clearance and keeps its own
+     * visibility graphs, but shares the field geometry, the obstacle modifiers,
+     * the match state and the active obstacles of each state with this map and
+     * every other layer of it, so it never parses the field again. A layer is
+     * built the first time it is asked for, and after that builds the graph for
+     * each state the match reaches, like this map does. Plan on one with
+     * {@link Pathfinder#createPlanner(double)}.
+     * 
+     * @param layerClearance The clearance to inflate the obstacles by (meters)
+     * @return The layer, which is this map if it already has that clearance
+     */
+    public Map getLayer(double layerClearance) {
+        if (layerClearance < 0)
+            throw new IllegalArgumentException("Clearance cannot be negative");
+        rebuildLock.lock();
+        try {
+            Map layer = layers.get(layerClearance);
+            if (layer == null) {
+                layer = new Map(this, layerClearance, normal -> layerClearance);
+                layers.put(layerClearance, layer);
+            }
+            return layer;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Get a heading layer of this map for a rectangular robot. Instead of the
+     * circle around the robot, each obstacle edge is moved out by as far as the
+     * robot's rectangle reaches past it (the Minkowski sum of the obstacle and the
+     * rectangle) at the worst heading in the range, so a path on the layer is
+     * clear as long as the robot's heading stays in the range. Long robots can
+     * pass through gaps that the circle would close. Otherwise it is like a
+     * clearance layer (see {@link #getLayer(double)}). Plan over several with a
+     * {@link me.nabdev.pathfinding.HeadingPlanner}.
+     * 
+     * @param robotWidth  The width of the robot, across its heading (meters)
+     * @param robotLength The length of the robot, along its heading (meters)
+     * @param minHeading  The start of the heading range (radians)
+     * @param maxHeading  The end of the heading range (radians)
+     * @return The layer
+     */
+    public Map getHeadingLayer(double robotWidth, double robotLength, double minHeading, double maxHeading) {
+        if (robotWidth <= 0 || robotLength <= 0)
+            throw new IllegalArgumentException("Robot width and length must be greater than 0");
+        if (maxHeading < minHeading)
+            throw new IllegalArgumentException("The heading range must not be empty");
+        List<Double> key = List.of(robotWidth, robotLength, minHeading, maxHeading);
+        rebuildLock.lock();
+        try {
+            Map layer = layers.get(key);
+            if (layer == null) {
+                layer = new Map(this, Math.hypot(robotWidth, robotLength) / 2, normal -> rectangleReach(normal,
+                        robotWidth / 2, robotLength / 2, minHeading, maxHeading));
+                layers.put(key, layer);
+            }
+            return layer;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // How far a rectangle reaches along a unit normal, at the worst heading in a
+    // range. The reach only peaks where a corner points along the normal, so it
+    // is the reach at one of the ends of the range unless a corner passes the
+    // normal in between.
+    private static double rectangleReach(Vector normal, double halfWidth, double halfLength, double minHeading,
+            double maxHeading) {
+        double angle = Math.atan2(normal.y, normal.x);
+        // The normal's angle relative to the robot's heading
+        double from = angle - maxHeading;
+        double to = angle - minHeading;
+        double corner = Math.atan2(halfWidth, halfLength);
+        for (double cornerAngle : new double[] { corner, -corner }) {
+            double first = cornerAngle + Math.ceil((from - cornerAngle) / Math.PI) * Math.PI;
+            if (first <= to)
+                return Math.hypot(halfWidth, halfLength);
+        }
+        return Math.max(rectangleReach(from, halfWidth, halfLength), rectangleReach(to, halfWidth, halfLength));
+    }
+
+    private static double rectangleReach(double relativeAngle, double halfWidth, double halfLength) {
+        return halfLength * Math.abs(Math.cos(relativeAngle)) + halfWidth * Math.abs(Math.sin(relativeAngle));
+    }
+
+    /**
+     * Get the clearance the obstacles are inflated by
+     * 
+     * @return The clearance (meters)
+     */
+    public double getClearance() {
+        return clearance;
+    }
+
+    /**
+     * Precompute the static visibility graph for every state a match can be in
+     * (each alliance, or none, before the match, in autonomous, in teleop and in
+     * endgame), and package it with the inflated obstacles so a map can be created
+     * from it without building anything. Doesn't change the current snapshot.
+     * 
+     * @return The compiled map
+     */
+    public CompiledMap compile() {
+        rebuildLock.lock();
+        try {
+            int[] alliances = { 0, MatchState.ALLIANCE_KNOWN | MatchState.BLUE,
+                    MatchState.ALLIANCE_KNOWN | MatchState.RED };
+            int[] periods = { 0, MatchState.AUTO, MatchState.TELEOP, MatchState.ENDGAME };
+            for (int alliance : alliances) {
+                for (int period : periods) {
+                    int state = MatchState.ALWAYS | alliance | period;
+                    long[] activeObstacles = activeObstacles(state);
+                    StaticGraph graph = cachedGraph(state, activeObstacles);
+                    if (graph == null)
+                        graph = buildGraph(activeObstacles, activeEdgesIn(state));
+                    store(state, graph);
+                }
+            }
+            // Graphs shared between states are only written once
+            ArrayList<StaticGraph> graphs = new ArrayList<>();
+            int[] stateGraphs = new int[MatchState.COUNT];
+            for (int state = 0; state < MatchState.COUNT; state++) {
+                StaticGraph graph = graphByState[state];
+                if (graph != null && !graphs.contains(graph))
+                    graphs.add(graph);
+                stateGraphs[state] = graph == null ? -1 : graphs.indexOf(graph);
+            }
+            boolean[][] validVertices = new boolean[graphs.size()][];
+            int[][][] adjacency = new int[graphs.size()][][];
+            for (int g = 0; g < graphs.size(); g++) {
+                validVertices[g] = graphs.get(g).validVertices;
+                adjacency[g] = graphs.get(g).adjacency;
+            }
+            IdentityHashMap<Edge, Integer> edgeIndexes = new IdentityHashMap<>();
+            for (int i = 0; i < obstacleEdges.size(); i++) {
+                edgeIndexes.put(obstacleEdges.get(i), i);
+            }
+            int[] validEdges = new int[validObstacleEdges.size()];
+            for (int i = 0; i < validEdges.length; i++) {
+                validEdges[i] = edgeIndexes.get(validObstacleEdges.get(i));
+            }
+            return new CompiledMap(clearance, CompiledMap.toCoordinates(obstacleVertices),
+                    CompiledMap.toCoordinates(pathVerticesStatic), validEdges,
+                    symmetry == null ? null : symmetry.getType(), symmetry == null ? 0 : symmetry.getTolerance(),
+                    symmetricVertices, validVertices, adjacency, stateGraphs);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
     /**
      * Regenerates the visibility graph with the current path vertices and
-     * obstacles.
+     * obstacles, and publishes it as a new snapshot. Queries that already pinned
+     * the previous snapshot keep using it. The graph is always built from scratch,
+     * even if one was already built or derived for the current match state.
      */
     public void regenerateVisibilityGraph() {
-        checkPathVertices(pathVerticesStatic, obstacles);
-        neighborsStatic = calculateStaticNeighbors(pathVerticesStatic, validObstacleEdges, obstacleVertices);
+        rebuildLock.lock();
+        try {
+            rebuild(matchStateSource.getState(), false);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Polls the match state source for changes that affect which obstacles are
+     * active (the alliance, autonomous, teleop and the start of endgame), and
+     * publishes a new snapshot if anything changed. Called once per loop by
+     * {@link Pathfinder#periodic()}.
+     * 
+     * @return Whether a new snapshot was published
+     */
+    public boolean updateObstacleState() {
+        int version = snapshot.getVersion();
+        // Subscribers, this map included, rebuild before this returns
+        matchStateSource.update();
+        refreshObstacleState();
+        return snapshot.getVersion() != version;
+    }
+
+    /**
+     * Set where the match state comes from, for this map and the modifiers of its
+     * obstacles. Affects every pathfinder sharing the map, and every clearance
+     * layer of it.
+     * 
+     * @param source The match state source
+     */
+    public void setMatchStateSource(MatchStateSource source) {
+        rebuildLock.lock();
+        try {
+            for (Obstacle obs : obstacles) {
+                obs.modifiers.setMatchStateSource(source);
+            }
+            for (Map layer : layers.values()) {
+                layer.matchStateSource.unsubscribe(layer.matchStateSubscriber);
+                layer.matchStateSource = source;
+                source.subscribe(layer.matchStateSubscriber);
+            }
+            for (Map layer : layers.values()) {
+                layer.refreshObstacleState();
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Get where the match state comes from
+     * 
+     * @return The match state source
+     */
+    public MatchStateSource getMatchStateSource() {
+        return matchStateSource;
+    }
+
+    // Rebuilds if the snapshot is behind the source, waiting for any rebuild
+    // already in progress
+    private void refreshObstacleState() {
+        if (matchStateSource.getState() == snapshot.getMatchState())
+            return;
+        rebuildLock.lock();
+        try {
+            int matchState = matchStateSource.getState();
+            // Another thread may have rebuilt it while this one waited
+            if (matchState != snapshot.getMatchState())
+                rebuild(matchState, true);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Must hold rebuildLock. Everything is evaluated against the given state
+    // rather than the source's, so a change published partway through a rebuild
+    // is picked up by the next one instead of mixing two states in one snapshot.
+    private void rebuild(int matchState, boolean reuse) {
+        VisibilityGraphEvent event = new VisibilityGraphEvent();
+        event.begin();
+        long[] activeObstacles = activeObstacles(matchState);
+        Edge[] activeEdges = activeEdgesIn(matchState);
+        StaticGraph graph = reuse ? cachedGraph(matchState, activeObstacles) : null;
+        event.reused = graph != null;
+        if (graph == null)
+            graph = buildGraph(activeObstacles, activeEdges);
+        store(matchState, graph);
+
+        setStaticNeighbors(graph.neighbors);
+        // The static vertices never change after construction, so every snapshot
+        // shares one index
+        if (pathVertexIndexes == null) {
+            pathVertexIndexes = new IdentityHashMap<>();
+            for (int i = 0; i < pathVerticesStatic.size(); i++) {
+                pathVertexIndexes.put(pathVerticesStatic.get(i), i);
+            }
+        }
+        int version = snapshot == null ? 1 : snapshot.getVersion() + 1;
+        snapshot = new MapSnapshot(version, matchState, pathVerticesStatic, pathVertexIndexes, graph.validVertices,
+                graph.neighbors, graph.adjacency, obstacles, activeObstacles, obstacleVertices, activeEdges);
+        event.vertices = pathVerticesStatic.size();
+        event.edges = graph.neighbors.size();
+        event.obstacleVersion = version;
+        event.commit();
+    }
+
+    // Must hold rebuildLock
+    private void store(int matchState, StaticGraph graph) {
+        graphByState[matchState] = graph;
+        // Deriving the other alliance's graph is linear in its size, far cheaper
+        // than the line of sight checks it replaces
+        int otherAlliance = MatchState.otherAlliance(matchState);
+        if (symmetry != null && graphByState[otherAlliance] == null)
+            graphByState[otherAlliance] = reflect(graph, activeObstacles(otherAlliance));
+    }
+
+    private Edge[] activeEdgesIn(int matchState) {
+        ArrayList<Edge> activeEdges = new ArrayList<>();
+        for (Edge e : validObstacleEdges) {
+            if (e.isActiveIn(matchState))
+                activeEdges.add(e);
+        }
+        return activeEdges.toArray(new Edge[0]);
+    }
+
+    // Must hold rebuildLock. A graph built or derived for the state, or for any
+    // other state with the same active obstacles.
+    private StaticGraph cachedGraph(int matchState, long[] activeObstacles) {
+        if (graphByState[matchState] != null)
+            return graphByState[matchState];
+        for (StaticGraph graph : graphByState) {
+            if (graph != null && Arrays.equals(graph.activeObstacles, activeObstacles))
+                return graph;
+        }
+        return null;
+    }
+
+    private StaticGraph buildGraph(long[] activeObstacles, Edge[] activeEdges) {
+        boolean[] validVertices = new boolean[pathVerticesStatic.size()];
+        for (int i = 0; i < validVertices.length; i++) {
+            Vertex v = pathVerticesStatic.get(i);
+            validVertices[i] = v.x >= originx && v.x <= fieldx && v.y >= originy && v.y <= fieldy
+                    && !insideActiveObstacle(v, activeObstacles);
+        }
+        ArrayList<Edge> neighbors = findStaticNeighbors(pathVerticesStatic, validVertices, activeEdges,
+                obstacleVertices);
+        return new StaticGraph(activeObstacles, validVertices, neighbors,
+                buildAdjacency(pathVerticesStatic.size(), neighbors));
+    }
+
+    // The graph on the other alliance's side of the field, with every vertex
+    // replaced by its image under the symmetry
+    private StaticGraph reflect(StaticGraph graph, long[] reflectedObstacles) {
+        boolean[] validVertices = new boolean[symmetricVertices.length];
+        for (int i = 0; i < symmetricVertices.length; i++) {
+            validVertices[symmetricVertices[i]] = graph.validVertices[i];
+        }
+        ArrayList<Edge> neighbors = new ArrayList<>(graph.neighbors.size());
+        for (Edge e : graph.neighbors) {
+            int v1 = symmetricVertices[e.getVertexOne()];
+            int v2 = symmetricVertices[e.getVertexTwo()];
+            neighbors.add(new Edge(Math.min(v1, v2), Math.max(v1, v2)));
+        }
+        return new StaticGraph(reflectedObstacles, validVertices, neighbors,
+                buildAdjacency(symmetricVertices.length, neighbors));
+    }
+
+    // The image of each static path vertex under a symmetry, or null if the
+    // field isn't symmetric under it. Each obstacle has to land on one with the
+    // same number of vertices that is active in the same states with the
+    // alliances swapped.
+    private int[] symmetricVertices(FieldSymmetry candidate) {
+        int[] images = candidate.permutation(pathVerticesStatic);
+        if (images == null)
+            return null;
+        ArrayList<Vertex> centers = new ArrayList<>();
+        for (Obstacle obs : obstacles) {
+            centers.add(center(obs));
+        }
+        // Obstacles can share a center (like a zone around a field element), so
+        // they are told apart by shape and modifiers
+        if (candidate.permutation(centers, (i, j) -> isImage(obstacles.get(i), obstacles.get(j))) == null)
+            return null;
+        return images;
+    }
+
+    private static boolean isImage(Obstacle obs, Obstacle image) {
+        if (obs.getVertices().size() != image.getVertices().size())
+            return false;
+        for (int state = MatchState.ALWAYS; state < MatchState.COUNT; state += 2) {
+            if (obs.modifiers.isActiveIn(state) != image.modifiers.isActiveIn(MatchState.otherAlliance(state)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the symmetry of the field, detected when the map is created. On a
+     * symmetric field, paths drawn for one alliance can be used by the other by
+     * applying the symmetry to them.
+     * 
+     * @return The symmetry of the field, or null if it isn't symmetric
+     */
+    public FieldSymmetry getSymmetry() {
+        return symmetry;
+    }
+
+    /**
+     * Set the symmetry of the field, for fields that are only symmetric within a
+     * looser tolerance than {@link FieldSymmetry#TOLERANCE}, which detection uses.
+     * The field still has to be symmetric within the given symmetry's tolerance,
+     * since the graph for one alliance is derived from the other's.
+     * 
+     * @param newSymmetry The symmetry of the field, or null to build the graph for
+     *                    each alliance separately
+     * @throws IllegalArgumentException If the field isn't symmetric under the
+     *                                  given symmetry
+     */
+    public void setSymmetry(FieldSymmetry newSymmetry) {
+        int[] images = null;
+        if (newSymmetry != null) {
+            images = symmetricVertices(newSymmetry);
+            if (images == null)
+                throw new IllegalArgumentException("The field is not symmetric under " + newSymmetry.getType());
+        }
+        rebuildLock.lock();
+        try {
+            symmetry = newSymmetry;
+            symmetricVertices = images;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Must hold rebuildLock
+    private long[] activeObstacles(int matchState) {
+        long[] active = activeByState[matchState];
+        if (active == null) {
+            active = new long[(obstacles.size() + 63) >>> 6];
+            for (int i = 0; i < obstacles.size(); i++) {
+                if (obstacles.get(i).modifiers.isActiveIn(matchState))
+                    active[i >>> 6] |= 1L << i;
+            }
+            activeByState[matchState] = active;
+        }
+        return active;
+    }
+
+    private boolean insideActiveObstacle(Vertex v, long[] activeObstacles) {
+        for (int i = 0; i < obstacles.size(); i++) {
+            if ((activeObstacles[i >>> 6] & (1L << i)) != 0 && obstacles.get(i).isInside(v))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the newest obstacle state and visibility graph. A query should call
+     * this once and use the returned snapshot for everything it does, so that it
+     * sees one consistent obstacle state even if a new snapshot is published
+     * while it runs.
+     * 
+     * @return The current snapshot
+     */
+    public MapSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private static int[][] buildAdjacency(int vertexCount, ArrayList<Edge> edges) {
+        int[] counts = new int[vertexCount];
+        for (Edge e : edges) {
+            counts[e.getVertexOne()]++;
+            counts[e.getVertexTwo()]++;
+        }
+        int[][] adjacency = new int[vertexCount][];
+        for (int i = 0; i < vertexCount; i++) {
+            adjacency[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (Edge e : edges) {
+            int v1 = e.getVertexOne();
+            int v2 = e.getVertexTwo();
+            adjacency[v1][counts[v1]++] = v2;
+            adjacency[v2][counts[v2]++] = v1;
+        }
+        return adjacency;
+    }
+
+    /**
+     * Set where line of sight checks made while building the static visibility
+     * graph, or through {@link #hasLineOfSight(Vertex, Vertex)}, are counted
+     * 
+     * @param newMetrics The metrics to count into
+     */
+    public void setMetrics(PlannerMetrics newMetrics) {
+        metrics = newMetrics;
+    }
+
+    /**
+     * Get the static visibility graph of the current snapshot as adjacency lists.
+     * Entry i holds the indexes (into {@link #getPathVerticesStatic()}) of every
+     * vertex visible from vertex i.
+     * 
+     * @return The static adjacency lists
+     * @see MapSnapshot#getAdjacency()
+     */
+    public int[][] getStaticAdjacency() {
+        return snapshot.getAdjacency();
+    }
+
+    /**
+     * Checks if there is a line of sight between two vertices that avoids every
+     * obstacle active in the current snapshot.
+     * 
+     * @param v1 The first vertex.
+     * @param v2 The second vertex.
+     * @return Whether there is a line of sight between the two vertices.
+     */
+    public boolean hasLineOfSight(Vertex v1, Vertex v2) {
+        return snapshot.hasLineOfSight(v1, v2, metrics);
+    }
+
+    /**
+     * Checks if there is a line of sight between two vertices that avoids every
+     * obstacle active in the current snapshot, counting the check into the given
+     * metrics.
+     * 
+     * @param v1        The first vertex.
+     * @param v2        The second vertex.
+     * @param countInto The metrics to count the check into, usually those of the
+     *                  pathfinder making the query
+     * @return Whether there is a line of sight between the two vertices.
+     */
+    public boolean hasLineOfSight(Vertex v1, Vertex v2, PlannerMetrics countInto) {
+        return snapshot.hasLineOfSight(v1, v2, countInto);
+    }
+
+    /**
+     * Get the obstacle state version. This changes every time the visibility graph
+     * is regenerated, so a path planned at an older version may cross obstacles
+     * that have since become active.
+     * 
+     * @return The version of the current snapshot
+     */
+    public int getObstacleVersion() {
+        return snapshot.getVersion();
+    }
+
+    /**
+     * Checks if a segment crosses any obstacle edge active in the current
+     * snapshot. Unlike the visibility graph checks, this does not care whether the
+     * endpoints are valid path vertices, so it can be used on any two points.
+     * 
+     * @param v1 The start of the segment.
+     * @param v2 The end of the segment.
+     * @return Whether the segment crosses an active obstacle edge.
+     */
+    public boolean crossesActiveEdge(Vertex v1, Vertex v2) {
+        return snapshot.crossesActiveEdge(v1, v2);
     }
 
     /**
@@ -168,25 +918,17 @@ public class Map {
      * with.
      * Generated with a modifed Minowski Sums approach.
      * 
-     * @param clearance The clearance parameter to inflate the obstacles by.
+     * @param inflation How far to move each edge out, given its outward normal
      * @return The obstacle vertices inflated by clearance + eps (also modifies
      *         obstacleVertices to be inflated by the clearance parameter)
      */
-    private ArrayList<Vertex> calculateStaticPathVertices(double clearance) {
+    private ArrayList<Vertex> calculateStaticPathVertices(ToDoubleFunction<Vector> inflation) {
         ArrayList<Vertex> inflated = new ArrayList<>();
         ArrayList<Vertex> inflatedPlusEps = new ArrayList<>();
 
         for (Obstacle obs : obstacles) {
             // Calculate the center of the obstacle.
-            double avgX = 0;
-            double avgY = 0;
-            for (Vertex v : obs.getVertices()) {
-                avgX += v.x;
-                avgY += v.y;
-            }
-            avgX /= obs.getVertices().size();
-            avgY /= obs.getVertices().size();
-            Vertex center = new Vertex(avgX, avgY);
+            Vertex center = center(obs);
 
             for (Vertex v : obs.getVertices()) {
                 // Get the two vertices connected to the current vertex.
@@ -204,10 +946,10 @@ public class Map {
                 }
 
                 // Calculate the normals of the two edges connected to the current vertex
-                Vector normal1 = Vector.calculateNormalWithRespectToShape(center, v, connection1).normalize()
-                        .scale(clearance);
-                Vector normal2 = Vector.calculateNormalWithRespectToShape(center, v, connection2).normalize()
-                        .scale(clearance);
+                Vector normal1 = Vector.calculateNormalWithRespectToShape(center, v, connection1).normalize();
+                normal1 = normal1.scale(inflation.applyAsDouble(normal1));
+                Vector normal2 = Vector.calculateNormalWithRespectToShape(center, v, connection2).normalize();
+                normal2 = normal2.scale(inflation.applyAsDouble(normal2));
 
                 // Move out the edges by those normals
                 Vertex conn1Inflated = connection1.moveByVector(normal1);
@@ -237,11 +979,34 @@ public class Map {
         return inflatedPlusEps;
     }
 
+    private static ArrayList<Vertex> copyVertices(ArrayList<Vertex> vertices) {
+        ArrayList<Vertex> copies = new ArrayList<>(vertices.size());
+        for (Vertex v : vertices) {
+            copies.add(new Vertex(v.x, v.y));
+        }
+        return copies;
+    }
+
+    // The average of the obstacle's vertices
+    private static Vertex center(Obstacle obs) {
+        double avgX = 0;
+        double avgY = 0;
+        for (Vertex v : obs.getVertices()) {
+            avgX += v.x;
+            avgY += v.y;
+        }
+        avgX /= obs.getVertices().size();
+        avgY /= obs.getVertices().size();
+        return new Vertex(avgX, avgY);
+    }
+
     /**
      * Calculates the neighbors of the static path vertices (regenerates cached
      * visibility graph)
      * 
-     * Will save the neighbors to the vertices themselves.
+     * Will save the neighbors to the vertices themselves. Each vertex is given a
+     * new list rather than having its old one cleared, so anything still reading
+     * the old lists is not affected.
      * 
      * @param vertices    The vertices to calculate the neighbors of.
      * @param obsEdges    The edges of the obstacles.
@@ -251,27 +1016,49 @@ public class Map {
      */
     public ArrayList<Edge> calculateStaticNeighbors(ArrayList<Vertex> vertices, ArrayList<Edge> obsEdges,
             ArrayList<Vertex> obsVertices) {
+        boolean[] valid = new boolean[vertices.size()];
+        for (int i = 0; i < valid.length; i++) {
+            valid[i] = vertices.get(i).validVisibility;
+        }
+        ArrayList<Edge> newNeighbors = findStaticNeighbors(vertices, valid, activeEdges(obsEdges), obsVertices);
+        setStaticNeighbors(newNeighbors);
+        return newNeighbors;
+    }
+
+    private ArrayList<Edge> findStaticNeighbors(ArrayList<Vertex> vertices, boolean[] valid, Edge[] activeEdges,
+            ArrayList<Vertex> obsVertices) {
         ArrayList<Edge> newNeighbors = new ArrayList<>();
         for (int i = 0; i < vertices.size(); i++) {
+            if (!valid[i])
+                continue;
             for (int j = i + 1; j < vertices.size(); j++) {
+                if (!valid[j])
+                    continue;
                 Vertex v1 = vertices.get(i);
                 Vertex v2 = vertices.get(j);
-                boolean visible = lineOfSight(v1, v2, obsEdges, obsVertices);
+                boolean visible = unobstructed(v1, v2, activeEdges, obsVertices, metrics);
                 if (visible) {
                     newNeighbors.add(new Edge(i, j));
                 }
             }
         }
-        for (Vertex v : pathVerticesStatic) {
-            v.staticNeighbors.clear();
+        return newNeighbors;
+    }
+
+    // Each vertex is given a new list, so anything still reading the old lists
+    // is not affected
+    private void setStaticNeighbors(ArrayList<Edge> newNeighbors) {
+        ArrayList<ArrayList<Vertex>> vertexNeighbors = new ArrayList<>();
+        for (int i = 0; i < pathVerticesStatic.size(); i++) {
+            vertexNeighbors.add(new ArrayList<>());
         }
         for (Edge e : newNeighbors) {
-            Vertex v1 = e.getVertexOne(pathVerticesStatic);
-            Vertex v2 = e.getVertexTwo(pathVerticesStatic);
-            v1.staticNeighbors.add(v2);
-            v2.staticNeighbors.add(v1);
+            vertexNeighbors.get(e.getVertexOne()).add(e.getVertexTwo(pathVerticesStatic));
+            vertexNeighbors.get(e.getVertexTwo()).add(e.getVertexOne(pathVerticesStatic));
+        }
+        for (int i = 0; i < pathVerticesStatic.size(); i++) {
+            pathVerticesStatic.get(i).staticNeighbors = vertexNeighbors.get(i);
         }
-        return newNeighbors;
     }
 
     /**
@@ -281,12 +1068,18 @@ public class Map {
      * @param reset              Whether or not to reset the path vertices and
      *                           neighbors to their static values (For when
      *                           generating a new path)
+     * @deprecated This stores the result on the map and its vertices, so only one
+     *             query can use the map at a time. Use a
+     *             {@link me.nabdev.pathfinding.algorithms.SearchContext} instead.
      */
+    @Deprecated
     public void calculateDynamicVisibilityGraph(ArrayList<Vertex> additionalVertices, boolean reset) {
+        MapSnapshot current = snapshot;
+        markStaticVertices(current);
         if (reset || pathVertices == null)
             pathVertices = new ArrayList<>(pathVerticesStatic);
         if (reset || neighbors == null)
-            neighbors = new ArrayList<>(neighborsStatic);
+            neighbors = new ArrayList<>(current.getNeighbors());
         pathVertices.addAll(additionalVertices);
         if (reset) {
             for (Vertex v : pathVertices) {
@@ -304,6 +1097,14 @@ public class Map {
         neighbors.addAll(dynamicNeighbors);
     }
 
+    // The vertex based search reads validity from the vertices, so the deprecated
+    // API is the only place the static vertices are marked for a snapshot
+    private void markStaticVertices(MapSnapshot current) {
+        for (int i = 0; i < pathVerticesStatic.size(); i++) {
+            pathVerticesStatic.get(i).validVisibility = current.isValid(i);
+        }
+    }
+
     /**
      * Calculates the neighbors of the non-static path vertices.
      * 
@@ -315,6 +1116,7 @@ public class Map {
             ArrayList<Edge> obsEdges,
             ArrayList<Vertex> obsVertices) {
         ArrayList<Edge> dynamicNeighbors = new ArrayList<>();
+        Edge[] activeEdges = activeEdges(obsEdges);
 
         for (int i = vertices.size() - numAdditional; i < vertices.size(); i++) {
             for (int j = 0; j < vertices.size(); j++) {
@@ -322,7 +1124,7 @@ public class Map {
                     continue;
                 Vertex v1 = vertices.get(i);
                 Vertex v2 = vertices.get(j);
-                boolean visible = lineOfSight(v1, v2, obsEdges, obsVertices);
+                boolean visible = lineOfSight(v1, v2, activeEdges, obsVertices, metrics);
                 if (visible) {
                     dynamicNeighbors.add(new Edge(i, j));
                 }
@@ -331,37 +1133,67 @@ public class Map {
         return dynamicNeighbors;
     }
 
+    // The edges that are active right now, so line of sight checks don't have to
+    // ask each edge
+    private static Edge[] activeEdges(ArrayList<Edge> obsEdges) {
+        ArrayList<Edge> active = new ArrayList<>();
+        for (Edge e : obsEdges) {
+            if (e.isActive())
+                active.add(e);
+        }
+        return active.toArray(new Edge[0]);
+    }
+
     /**
      * Checks if there is a line of sight between two vertices.
      * 
      * @param v1          The first vertex.
      * @param v2          The second vertex.
-     * @param obsEdges    The edges of the obstacles.
+     * @param activeEdges The active edges of the obstacles.
      * @param obsVertices The vertices of the obstacles.
+     * @param countInto   The metrics to count the check into
      * @return Whether there is a line of sight between the two vertices.
      */
-    private boolean lineOfSight(Vertex v1, Vertex v2, ArrayList<Edge> obsEdges, ArrayList<Vertex> obsVertices) {
+    private static boolean lineOfSight(Vertex v1, Vertex v2, Edge[] activeEdges, ArrayList<Vertex> obsVertices,
+            PlannerMetrics countInto) {
         if (!v1.validVisibility || !v2.validVisibility)
             return false;
+        return unobstructed(v1, v2, activeEdges, obsVertices, countInto);
+    }
 
+    // Whether the segment between two vertices crosses none of the edges,
+    // regardless of whether the vertices themselves are valid
+    private static boolean unobstructed(Vertex v1, Vertex v2, Edge[] activeEdges, ArrayList<Vertex> obsVertices,
+            PlannerMetrics countInto) {
         boolean intersect = false;
+        int tested = 0;
 
-        for (Edge e : obsEdges) {
-            if (!e.isActive())
-                continue;
+        for (Edge e : activeEdges) {
+            tested++;
             if (Vector.dotIntersectFast(v1, v2, e.getVertexOne(obsVertices), e.getVertexTwo(obsVertices))) {
                 intersect = true;
                 break;
             }
         }
+        if (countInto.isEnabled()) {
+            countInto.count(Counter.LOS_TESTS, 1);
+            countInto.count(Counter.EDGES_TESTED, tested);
+        }
         return !intersect;
     }
 
     /**
-     * Get the uninflated vertices of the obstacles.
+     * Get the static path vertices plus the vertices added by the last call to
+     * {@link #calculateDynamicVisibilityGraph(ArrayList, boolean)}.
      * 
-     * @return The vertices of the obstacles.
+     * @return The path vertices, or null if the dynamic visibility graph was never
+     *         calculated.
+     * @deprecated Only updated by the deprecated
+     *             {@link #calculateDynamicVisibilityGraph(ArrayList, boolean)}.
+     *             Use {@link me.nabdev.pathfinding.algorithms.SearchContext}
+     *             instead.
      */
+    @Deprecated
     public ArrayList<Vertex> getPathVertices() {
         return pathVertices;
     }
@@ -376,21 +1208,29 @@ public class Map {
     }
 
     /**
-     * Get the neighbors of the vertices of the static obstacles.
+     * Get the static neighbors plus the connections added by the last call to
+     * {@link #calculateDynamicVisibilityGraph(ArrayList, boolean)}.
      * 
-     * @return The neighbors of the vertices of the static obstacles.
+     * @return The neighbors, or null if the dynamic visibility graph was never
+     *         calculated.
+     * @deprecated Only updated by the deprecated
+     *             {@link #calculateDynamicVisibilityGraph(ArrayList, boolean)}.
+     *             Use {@link me.nabdev.pathfinding.algorithms.SearchContext}
+     *             instead.
      */
+    @Deprecated
     public ArrayList<Edge> getNeighbors() {
         return neighbors;
     }
 
     /**
-     * Get the neighbors of the dynamic vertices.
+     * Get the connections between the static path vertices (the static visibility
+     * graph) in the current snapshot.
      * 
-     * @return The neighbors of the dynamic vertices.
+     * @return The static neighbors.
      */
     public ArrayList<Edge> getNeighborsStatic() {
-        return neighborsStatic;
+        return snapshot.getNeighbors();
     }
 
     /**
@@ -410,4 +1250,21 @@ public class Map {
     public ArrayList<Edge> getValidObstacleEdges() {
         return validObstacleEdges;
     }
+
+    /**
+     * The static visibility graph for one set of active obstacles
+     */
+    private static final class StaticGraph {
+        final long[] activeObstacles;
+        final boolean[] validVertices;
+        final ArrayList<Edge> neighbors;
+        final int[][] adjacency;
+
+        StaticGraph(long[] activeObstacles, boolean[] validVertices, ArrayList<Edge> neighbors, int[][] adjacency) {
+            this.activeObstacles = activeObstacles;
+            this.validVertices = validVertices;
+            this.neighbors = neighbors;
+            this.adjacency = adjacency;
+        }
+    }
 }
@@ -0,0 +1,232 @@
+package me.nabdev.pathfinding.structures;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import me.nabdev.pathfinding.metrics.PlannerMetrics;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Counter;
+import me.nabdev.pathfinding.modifiers.ObstacleModifier.ObstacleModifierTypes;
+
+/**
+ * The obstacle state and static visibility graph of a {@link Map} at one
+ * obstacle version. A snapshot is never modified after it is published: when
+ * the active obstacles change, the map builds a new snapshot and swaps it in, so
+ * a query that pinned the old one keeps planning against a consistent graph
+ * until it finishes. The old snapshot is garbage collected once no query is
+ * using it.
+ *
+ * Everything a query needs to know about the obstacles is captured here, so
+ * queries never read the obstacle modifiers (or the driver station behind them).
+ */
+public final class MapSnapshot {
+    private final int version;
+    private final int matchState;
+    private final ArrayList<Vertex> pathVertices;
+    private final IdentityHashMap<Vertex, Integer> pathVertexIndexes;
+    private final boolean[] validVertices;
+    private final ArrayList<Edge> neighbors;
+    private final int[][] adjacency;
+    private final ArrayList<Obstacle> obstacles;
+    private final long[] activeObstacles;
+    private final ArrayList<Vertex> obstacleVertices;
+    private final Edge[] activeEdges;
+
+    /**
+     * Creates a new snapshot. The arrays and lists are owned by the snapshot from
+     * here on, and must not be modified by the caller.
+     *
+     * @param version           The obstacle version
+     * @param matchState        The match state the obstacles were evaluated for
+     * @param pathVertices      The static path vertices
+     * @param pathVertexIndexes The index of each static path vertex
+     * @param validVertices     Whether each static path vertex can be used for
+     *                          line of sight (inside the field and outside of
+     *                          every active obstacle)
+     * @param neighbors         The static visibility graph as edges
+     * @param adjacency         The static visibility graph as adjacency lists
+     * @param obstacles         Every obstacle on the map
+     * @param activeObstacles   The active obstacles, as a bitset over the obstacle
+     *                          indexes
+     * @param obstacleVertices  The inflated obstacle vertices
+     * @param activeEdges       The obstacle edges inside the field that belong to
+     *                          active obstacles
+     */
+    MapSnapshot(int version, int matchState, ArrayList<Vertex> pathVertices,
+            IdentityHashMap<Vertex, Integer> pathVertexIndexes, boolean[] validVertices, ArrayList<Edge> neighbors,
+            int[][] adjacency, ArrayList<Obstacle> obstacles, long[] activeObstacles,
+            ArrayList<Vertex> obstacleVertices, Edge[] activeEdges) {
+        this.version = version;
+        this.matchState = matchState;
+        this.pathVertices = pathVertices;
+        this.pathVertexIndexes = pathVertexIndexes;
+        this.validVertices = validVertices;
+        this.neighbors = neighbors;
+        this.adjacency = adjacency;
+        this.obstacles = obstacles;
+        this.activeObstacles = activeObstacles;
+        this.obstacleVertices = obstacleVertices;
+        this.activeEdges = activeEdges;
+    }
+
+    /**
+     * Get the obstacle version this snapshot was built at. A newer snapshot always
+     * has a greater version.
+     *
+     * @return The obstacle version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * The match state (alliance, autonomous, teleop and endgame) the obstacles
+     * were evaluated for, packed by the map that built this snapshot
+     */
+    int getMatchState() {
+        return matchState;
+    }
+
+    /**
+     * Get the static path vertices. The vertices are shared between snapshots,
+     * since their positions never change.
+     *
+     * @return The static path vertices, not to be modified
+     */
+    public ArrayList<Vertex> getPathVertices() {
+        return pathVertices;
+    }
+
+    /**
+     * Get the static visibility graph as edges between indexes into
+     * {@link #getPathVertices()}
+     *
+     * @return The static visibility graph, not to be modified
+     */
+    public ArrayList<Edge> getNeighbors() {
+        return neighbors;
+    }
+
+    /**
+     * Get the static visibility graph as adjacency lists. Entry i holds the
+     * indexes (into {@link #getPathVertices()}) of every vertex visible from
+     * vertex i.
+     *
+     * @return The static adjacency lists, not to be modified
+     */
+    public int[][] getAdjacency() {
+        return adjacency;
+    }
+
+    /**
+     * Whether a static path vertex can be used for line of sight in this snapshot
+     *
+     * @param pathVertex The index of the static path vertex
+     * @return false if the vertex is outside the field or inside an active obstacle
+     */
+    public boolean isValid(int pathVertex) {
+        return validVertices[pathVertex];
+    }
+
+    /**
+     * Whether an obstacle is active in this snapshot
+     *
+     * @param obstacle The index of the obstacle in the map's obstacles
+     * @return Whether the obstacle is active
+     */
+    public boolean isActive(int obstacle) {
+        return (activeObstacles[obstacle >>> 6] & (1L << obstacle)) != 0;
+    }
+
+    /**
+     * Checks if there is a line of sight between two vertices that avoids every
+     * obstacle active in this snapshot. Static path vertices are valid or not as
+     * of this snapshot; any other vertex is valid unless its
+     * {@link Vertex#validVisibility} says otherwise.
+     *
+     * @param v1        The first vertex
+     * @param v2        The second vertex
+     * @param countInto The metrics to count the check into, or null
+     * @return Whether there is a line of sight between the two vertices
+     */
+    public boolean hasLineOfSight(Vertex v1, Vertex v2, PlannerMetrics countInto) {
+        if (!isValid(v1) || !isValid(v2))
+            return false;
+        return clear(v1, v2, countInto);
+    }
+
+    private boolean isValid(Vertex v) {
+        Integer index = pathVertexIndexes.get(v);
+        return index == null ? v.validVisibility : validVertices[index];
+    }
+
+    /**
+     * Checks if there is a line of sight between a vertex and a static path vertex
+     * that avoids every obstacle active in this snapshot
+     *
+     * @param v          The vertex
+     * @param pathVertex The index of the static path vertex
+     * @param countInto  The metrics to count the check into, or null
+     * @return Whether there is a line of sight between the two vertices
+     */
+    public boolean hasLineOfSight(Vertex v, int pathVertex, PlannerMetrics countInto) {
+        if (!v.validVisibility || !validVertices[pathVertex])
+            return false;
+        return clear(v, pathVertices.get(pathVertex), countInto);
+    }
+
+    private boolean clear(Vertex v1, Vertex v2, PlannerMetrics countInto) {
+        boolean intersect = false;
+        int tested = 0;
+        for (Edge e : activeEdges) {
+            tested++;
+            if (Vector.dotIntersectFast(v1, v2, e.getVertexOne(obstacleVertices), e.getVertexTwo(obstacleVertices))) {
+                intersect = true;
+                break;
+            }
+        }
+        if (countInto != null && countInto.isEnabled()) {
+            countInto.count(Counter.LOS_TESTS, 1);
+            countInto.count(Counter.EDGES_TESTED, tested);
+        }
+        return !intersect;
+    }
+
+    /**
+     * Checks if a segment crosses any obstacle edge active in this snapshot. Unlike
+     * the line of sight checks, this does not care whether the endpoints are valid
+     * path vertices, so it can be used on any two points.
+     *
+     * @param v1 The start of the segment
+     * @param v2 The end of the segment
+     * @return Whether the segment crosses an active obstacle edge
+     */
+    public boolean crossesActiveEdge(Vertex v1, Vertex v2) {
+        for (Edge e : activeEdges) {
+            if (Vector.dotIntersectFast(v1, v2, e.getVertexOne(obstacleVertices), e.getVertexTwo(obstacleVertices)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Detect if a vertex is inside any obstacle active in this snapshot
+     *
+     * @param vertex  The vertex to check
+     * @param notZone If true, ignores obstacles with the zone modifier
+     * @return The obstacles that the vertex is inside, empty if none
+     */
+    public ArrayList<Obstacle> isRobotInObstacle(Vertex vertex, boolean notZone) {
+        ArrayList<Obstacle> inside = new ArrayList<Obstacle>();
+        for (int i = 0; i < obstacles.size(); i++) {
+            if (!isActive(i))
+                continue;
+            Obstacle obs = obstacles.get(i);
+            if (notZone && obs.modifiers.hasModifier(ObstacleModifierTypes.ZONE_MODIFIER))
+                continue;
+            if (obs.isInside(vertex)) {
+                inside.add(obs);
+            }
+        }
+        return inside;
+    }
+}
@@ -1,5 +1,7 @@
 package me.nabdev.pathfinding.structures;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 
 import edu.wpi.first.math.geometry.Pose2d;
@@ -10,6 +12,8 @@ import edu.wpi.first.math.trajectory.TrajectoryGenerator;
 import edu.wpi.first.math.trajectory.TrajectoryParameterizer.TrajectoryGenerationException;
 import me.nabdev.pathfinding.Pathfinder;
 import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.jfr.TrajectoryEvent;
+import me.nabdev.pathfinding.utilities.TrajectoryProfiler;
 
 /**
  * A Path is a list of Vertices that represent a path from a start point to a
@@ -45,6 +49,34 @@ public class Path extends ArrayList<Vertex> {
      */
     private Pathfinder pathfinder;
 
+    /**
+     * The route found by the search algorithm (start, the visibility graph vertices
+     * it passed through, and target) before any smoothing.
+     */
+    private ArrayList<Vertex> route = new ArrayList<Vertex>();
+
+    /**
+     * The version of the pathfinder's path settings when this path was processed.
+     */
+    private int settingsVersion = -1;
+
+    /**
+     * The version of the map snapshot this path was planned against.
+     */
+    private int obstacleVersion = -1;
+
+    /**
+     * The range of segments [splicedFrom, splicedTo) that were reused from a
+     * previous path and are already fully processed.
+     */
+    private int splicedFrom = 0;
+    private int splicedTo = 0;
+
+    /**
+     * The arc-length index of the path, built lazily by {@link #getIndex()}.
+     */
+    private PathIndex index;
+
     /**
      * The snap mode used to create this path.
      */
@@ -127,9 +159,26 @@ public class Path extends ArrayList<Vertex> {
      * @param snapMode The snap mode to use.
      */
     public void processPath(PathfindSnapMode snapMode) {
+        processPath(snapMode, null);
+    }
+
+    /**
+     * Apply all processing to the path to prepare it for use, reusing the
+     * processed segments of a previous path where the routes are the same. Only
+     * the corners before the point where the routes join (and the straightaway
+     * leading into it) are smoothed again, and the rest of the path is identical
+     * to the previous one.
+     * 
+     * @param snapMode The snap mode to use.
+     * @param previous The previous path to the same target, or null to process the
+     *                 whole path.
+     */
+    public void processPath(PathfindSnapMode snapMode, Path previous) {
         this.snapMode = snapMode;
         createFullPath();
-        bezierSmoothing();
+        route = new ArrayList<Vertex>(fullPath);
+        settingsVersion = pathfinder.getPathSettingsVersion();
+        bezierSmoothing(previous);
         addFinalSegment(snapMode);
         if (pathfinder.getInjectPoints())
             injectPoints();
@@ -146,17 +195,18 @@ public class Path extends ArrayList<Vertex> {
         }
     }
 
-    private void bezierSmoothing() {
+    private void bezierSmoothing(Path previous) {
         // "this" does not include the start and endpoint, so in the case where the
         // shortest path is a straight line it would be empty.
         if (this.size() < 1) {
             segments.add(new PathSegment(start, target));
             return;
         }
-        // Iterate over every vertex other than the start and end.
-        for (int i = 0; i < this.size(); i++) {
+        int splice = findSplice(previous);
+        // Iterate over every vertex other than the start and end, up to the first
+        // corner that can be reused.
+        for (int i = 0; i < splice; i++) {
             Vertex p1 = this.get(i);
-            PathSegment curve = new PathSegment();
             Vertex prev = fullPath.get(i);
             // fullPath takes into account the start and endpoint while this does not, so we
             // can garuntee that i + 2 will never be out of bounds.
@@ -198,6 +248,7 @@ public class Path extends ArrayList<Vertex> {
             // curve.
             Vertex p0 = p1.moveByVector(prevVector);
             Vertex p2 = p1.moveByVector(nextVector);
+            PathSegment curve = new PathSegment();
 
             // This is the actual bezier curve.
             generateBezierCorner(curve, cornerDist * 0.5, p0, p1, p2);
@@ -210,10 +261,59 @@ public class Path extends ArrayList<Vertex> {
             }
             segments.add(curve);
         }
+        if (splice < this.size()) {
+            // Connect to the first reused corner, then copy the rest of the previous
+            // path's segments (corners and straightaways alternate, ending with the
+            // straightaway to the target).
+            int prevCorners = previous.route.size() - 2;
+            int first = 2 * (splice + prevCorners - this.size()) + 1;
+            Vertex from = splice == 0 ? start : segments.get(segments.size() - 1).end();
+            segments.add(new PathSegment(from, previous.segments.get(first).start()));
+            splicedFrom = segments.size();
+            for (int i = first; i <= 2 * prevCorners; i++) {
+                segments.add(previous.segments.get(i));
+            }
+            splicedTo = segments.size();
+            return;
+        }
         // Finally, add a segment between the point before the target and the target.
         segments.add(new PathSegment(segments.get(segments.size() - 1).end(), target));
     }
 
+    /**
+     * Find the first corner from which this path's route is the same as the
+     * previous path's route all the way to the target. A corner only depends on
+     * the route vertex it is at, the two route vertices around it, and whether it
+     * is the first or last corner, so a matching corner would be smoothed exactly
+     * the same way again.
+     * 
+     * @param previous The previous path, may be null
+     * @return The index of the first reusable corner, or the number of corners if
+     *         none can be reused
+     */
+    private int findSplice(Path previous) {
+        int corners = this.size();
+        if (previous == null || previous.pathfinder != pathfinder || previous.settingsVersion != settingsVersion)
+            return corners;
+        int prevCorners = previous.route.size() - 2;
+        if (prevCorners < 1 || previous.segments.size() < 2 * prevCorners + 1)
+            return corners;
+        int offset = prevCorners - corners;
+        int splice = corners;
+        for (int i = corners - 1; i >= 0; i--) {
+            int j = i + offset;
+            // The first corner is smoothed differently, so it only matches another first
+            // corner
+            if (j < 0 || (i == 0) != (j == 0))
+                break;
+            if (!route.get(i).equals(previous.route.get(j)) || !route.get(i + 1).equals(previous.route.get(j + 1))
+                    || !route.get(i + 2).equals(previous.route.get(j + 2)))
+                break;
+            splice = i;
+        }
+        return splice;
+    }
+
     /**
      * Generates a bezier curve between the three given points.
      * 
@@ -223,29 +323,14 @@ public class Path extends ArrayList<Vertex> {
      * @param p2    The third point.
      */
     private void generateBezierCorner(PathSegment curve, double cornerDist, Vertex p0, Vertex p1, Vertex p2) {
-        // Want to understand how this function works?
+        // Want to understand how this works?
         // I highly recomend checking out the visualization at
         // https://en.wikipedia.org/wiki/B%C3%A9zier_curve#Quadratic_curves
         // It's a lot easier to understand when you can see it.
-        double realCornerDist = pathfinder.getNormalizeCorners() ? cornerDist : 1;
-        for (double t = 0; t < realCornerDist; t += pathfinder.getCornerPointSpacing()) {
-            Vector v0 = p1.createVectorFrom(p0);
-            if (pathfinder.getNormalizeCorners())
-                v0 = v0.normalize();
-            Vertex q0 = p0.moveByVector(v0.scale(t));
-
-            Vector v1 = p2.createVectorFrom(p1);
-            if (pathfinder.getNormalizeCorners())
-                v1 = v1.normalize();
-            Vertex q1 = p1.moveByVector(v1.scale(t));
-
-            Vector v2 = q1.createVectorFrom(q0);
-            if (pathfinder.getNormalizeCorners())
-                v2 = v2.normalize();
-            Vertex pos = q0.moveByVector(v2.scale(t));
-
-            curve.add(pos);
-        }
+        // The corner shape is sampled once per turn angle and leg lengths, then moved
+        // into place (see CornerTemplateCache).
+        pathfinder.getCornerCache().sample(curve, cornerDist, p0, p1, p2, pathfinder.getCornerPointSpacing(),
+                pathfinder.getNormalizeCorners());
     }
 
     // Just add all the points from the segments to the path in order.
@@ -253,7 +338,8 @@ public class Path extends ArrayList<Vertex> {
         this.clear();
         for (PathSegment seg : segments) {
             for (int i = 0; i < seg.points.size(); i++) {
-                if (!this.contains(seg.get(i))) // Weeding out potential duplicates
+                // Weeding out duplicates where segments meet
+                if (this.size() == 0 || !this.get(this.size() - 1).equals(seg.get(i)))
                     this.add(seg.get(i));
             }
         }
@@ -266,6 +352,7 @@ public class Path extends ArrayList<Vertex> {
 
     // Create the full path including the start and endpoint.
     private void createFullPath() {
+        index = null;
         fullPath.clear();
         fullPath.add(start);
         fullPath.addAll(this);
@@ -276,6 +363,9 @@ public class Path extends ArrayList<Vertex> {
     // work its magic.
     private void injectPoints() {
         for (int x = 0; x < segments.size(); x++) {
+            // Segments reused from a previous path already have their points
+            if (x >= splicedFrom && x < splicedTo)
+                continue;
             ArrayList<Vertex> newPoints = new ArrayList<Vertex>();
             PathSegment seg = segments.get(x);
             if (seg.corner)
@@ -312,6 +402,38 @@ public class Path extends ArrayList<Vertex> {
         return new Rotation2d(Math.atan2(target.y - end.y, target.x - end.x));
     }
 
+    /**
+     * The size of one pose in the WPILib Pose2d struct format (x, y, and rotation
+     * in radians, as little-endian doubles)
+     */
+    public static final int POSE_STRUCT_SIZE = 24;
+
+    /**
+     * Get the number of points the path exports, including the start and target
+     * (or the unsnapped target for the THEN_LINE snap modes).
+     * 
+     * @return The number of exported points
+     */
+    public int getExportPointCount() {
+        return this.size() + 2;
+    }
+
+    // The last exported point, the unsnapped target for the THEN_LINE snap modes
+    private Vertex exportTarget() {
+        if (snapMode == PathfindSnapMode.SNAP_ALL_THEN_LINE || snapMode == PathfindSnapMode.SNAP_TARGET_THEN_LINE)
+            return unsnappedTarget;
+        return target;
+    }
+
+    // The exported point at index i, from start to target
+    private Vertex exportPoint(int i) {
+        if (i == 0)
+            return start;
+        if (i <= this.size())
+            return this.get(i - 1);
+        return exportTarget();
+    }
+
     /**
      * Get the path as a double array [x, y, rotation, x, y, rotation, ...].
      * Rotation is in degrees.
@@ -319,29 +441,72 @@ public class Path extends ArrayList<Vertex> {
      * @return The path as a double array.
      */
     public double[] toDoubleArray() {
-        ArrayList<Double> temp = new ArrayList<Double>();
-        temp.add(start.x);
-        temp.add(start.y);
-        temp.add(start.rotation.getDegrees());
-        for (Vertex v : this) {
-            temp.add(v.x);
-            temp.add(v.y);
-            temp.add(v.rotation.getDegrees());
-        }
-        if (snapMode == PathfindSnapMode.SNAP_ALL_THEN_LINE || snapMode == PathfindSnapMode.SNAP_TARGET_THEN_LINE) {
-            temp.add(unsnappedTarget.x);
-            temp.add(unsnappedTarget.y);
-            temp.add(unsnappedTarget.rotation.getDegrees());
-        } else {
-            temp.add(target.x);
-            temp.add(target.y);
-            temp.add(target.rotation.getDegrees());
+        double[] finalArr = new double[getExportPointCount() * 3];
+        toDoubleArray(finalArr);
+        return finalArr;
+    }
+
+    /**
+     * Write the path into an existing double array as [x, y, rotation, x, y,
+     * rotation, ...], the same format as {@link #toDoubleArray()}. Rotation is in
+     * degrees. Lets telemetry reuse one array instead of allocating every loop.
+     * 
+     * @param out The array to write to, must hold at least
+     *            {@link #getExportPointCount()} * 3 values
+     * @return The number of values written
+     */
+    public int toDoubleArray(double[] out) {
+        int count = getExportPointCount();
+        if (out.length < count * 3)
+            throw new IllegalArgumentException(
+                    "Array of length " + out.length + " is too small for " + count * 3 + " values");
+        for (int i = 0; i < count; i++) {
+            Vertex v = exportPoint(i);
+            out[i * 3] = v.x;
+            out[i * 3 + 1] = v.y;
+            out[i * 3 + 2] = v.rotation.getDegrees();
         }
-        double[] finalArr = new double[temp.size()];
-        for (int i = 0; i < temp.size(); i++) {
-            finalArr[i] = temp.get(i);
+        return count * 3;
+    }
+
+    /**
+     * Write the path into a buffer as an array of WPILib Pose2d structs, starting
+     * at the buffer's position, which is moved past the written poses. Headings
+     * are calculated the same way as {@link #asPose2dList()}, in radians. The
+     * result can be published to a "struct:Pose2d[]" topic with no allocation
+     * (see {@link me.nabdev.pathfinding.utilities.PathPublisher}).
+     * 
+     * @param buffer The buffer to write to, must have at least
+     *               {@link #getExportPointCount()} * {@link #POSE_STRUCT_SIZE}
+     *               bytes remaining
+     * @return The number of bytes written
+     */
+    public int writePoses(ByteBuffer buffer) {
+        int count = getExportPointCount();
+        int bytes = count * POSE_STRUCT_SIZE;
+        if (buffer.remaining() < bytes)
+            throw new IllegalArgumentException(
+                    "Buffer with " + buffer.remaining() + " bytes remaining is too small for " + bytes + " bytes");
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        Vertex prev = start;
+        for (int i = 0; i < count; i++) {
+            Vertex v = exportPoint(i);
+            double heading;
+            if (i == 0) {
+                // The start faces the first point (or the target)
+                Vertex next = this.size() > 0 ? this.get(0) : target;
+                heading = Math.atan2(next.y - v.y, next.x - v.x);
+            } else {
+                heading = Math.atan2(v.y - prev.y, v.x - prev.x);
+            }
+            buffer.putDouble(v.x);
+            buffer.putDouble(v.y);
+            buffer.putDouble(heading);
+            prev = v;
         }
-        return finalArr;
+        buffer.order(order);
+        return bytes;
     }
 
     /**
@@ -375,18 +540,74 @@ public class Path extends ArrayList<Vertex> {
     }
 
     /**
-     * Get the path as a Trajectory.
+     * Get the path as a Trajectory. If the path was processed by a Pathfinder with
+     * native trajectories enabled, the trajectory is profiled directly from the
+     * path geometry (see {@link TrajectoryProfiler}), otherwise WPILib's
+     * TrajectoryGenerator fits splines through every point.
      * 
      * @param config The TrajectoryConfig to use.
      * @return The path as a Trajectory.
      * @throws ImpossiblePathException if the trajectory could not be generated.
      */
     public Trajectory asTrajectory(TrajectoryConfig config) throws ImpossiblePathException {
+        TrajectoryEvent event = new TrajectoryEvent();
+        event.begin();
+        event.points = this.size();
         try {
-            return TrajectoryGenerator.generateTrajectory(asPose2dList(), config);
-        } catch (TrajectoryGenerationException e) {
-            throw new ImpossiblePathException("Failed to generate trajectory for path. Error: " + e.getMessage());
+            Trajectory trajectory;
+            if (pathfinder != null && pathfinder.getNativeTrajectories() && TrajectoryProfiler.canProfile(this)) {
+                event.nativeProfile = true;
+                trajectory = TrajectoryProfiler.profile(this, config);
+            } else {
+                try {
+                    trajectory = TrajectoryGenerator.generateTrajectory(asPose2dList(), config);
+                } catch (TrajectoryGenerationException e) {
+                    throw new ImpossiblePathException(
+                            "Failed to generate trajectory for path. Error: " + e.getMessage());
+                }
+            }
+            event.states = trajectory.getStates().size();
+            event.success = true;
+            return trajectory;
+        } catch (ImpossiblePathException | RuntimeException e) {
+            event.failure = e.getMessage();
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    /**
+     * Get the arc-length index of this path, which stores the cumulative distance,
+     * heading and curvature at every point for fast lookups by path followers.
+     * Built the first time it is requested after the path changes, so this should
+     * be called after the path is processed.
+     * 
+     * @return The arc-length index of the path
+     */
+    public PathIndex getIndex() {
+        if (index == null) {
+            ArrayList<Vertex> points = new ArrayList<Vertex>(this.size() + 2);
+            points.add(start);
+            points.addAll(this);
+            if (snapMode == PathfindSnapMode.SNAP_ALL_THEN_LINE || snapMode == PathfindSnapMode.SNAP_TARGET_THEN_LINE) {
+                points.add(unsnappedTarget);
+            } else {
+                points.add(target);
+            }
+            index = new PathIndex(points);
         }
+        return index;
+    }
+
+    /**
+     * Create a tracker that follows this path from its start, see
+     * {@link PathTracker}.
+     * 
+     * @return A new tracker for this path
+     */
+    public PathTracker createTracker() {
+        return getIndex().createTracker();
     }
 
     /**
@@ -407,6 +628,143 @@ public class Path extends ArrayList<Vertex> {
         return target;
     }
 
+    /**
+     * Get the segments (straightaways and corners) this path was built from. Empty
+     * if the path has not been processed, for example if it was loaded from disk.
+     * 
+     * @return The segments of the path.
+     */
+    public ArrayList<PathSegment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Get the route found by the search algorithm before smoothing: the start, the
+     * visibility graph vertices the path passes around, and the target. Every
+     * segment of the route had line of sight when the path was created. Empty if
+     * the path has not been processed.
+     * 
+     * @return The unsmoothed route
+     */
+    public ArrayList<Vertex> getRoute() {
+        return route;
+    }
+
+    /**
+     * Get the part of this path that is left after travelling the given distance
+     * along it, starting from the given position. The returned path keeps this
+     * path's pathfinder and the segments still ahead, with the segment the
+     * distance falls in cut short, so it is profiled natively like this path. If
+     * this path has not been processed, the returned path only contains points.
+     * 
+     * @param position The position the remaining path should start from, usually
+     *                 the robot's current position
+     * @param distance The distance already travelled along this path (meters)
+     * @return A new path from the position to the end of this path
+     */
+    public Path remainingFrom(Vertex position, double distance) {
+        int corners = route.size() - 2;
+        if (pathfinder == null || corners < 0 || segments.size() < 2 * corners + 1)
+            return remainingPointsFrom(position, distance);
+
+        Path remaining = new Path(position, target, pathfinder);
+        remaining.snapMode = snapMode;
+        remaining.unsnappedTarget = unsnappedTarget;
+        remaining.settingsVersion = settingsVersion;
+        remaining.obstacleVersion = obstacleVersion;
+        // Segments are laid out as straightaway, corner, straightaway, ..., so corner
+        // k is segment 2k + 1 and route vertex k + 1
+        double travelled = 0;
+        Vertex prev = start;
+        for (int s = 0; s < segments.size(); s++) {
+            PathSegment seg = segments.get(s);
+            ArrayList<Vertex> ahead = new ArrayList<Vertex>();
+            for (Vertex v : seg.points) {
+                travelled += prev.distance(v);
+                prev = v;
+                if (travelled > distance)
+                    ahead.add(v);
+            }
+            if (ahead.isEmpty())
+                continue;
+            if (s > 2 * corners)
+                break;
+            if (seg.corner) {
+                // Part way around a corner, the rest of it is still a corner
+                remaining.segments.add(new PathSegment(position, ahead.get(0)));
+                PathSegment rest = new PathSegment();
+                rest.points.addAll(ahead);
+                remaining.segments.add(rest);
+            } else {
+                ahead.add(0, position);
+                PathSegment rest = new PathSegment(position, seg.end());
+                rest.replace(ahead);
+                remaining.segments.add(rest);
+            }
+            remaining.segments.addAll(segments.subList(s + 1, segments.size()));
+            remaining.route.add(position);
+            remaining.route.addAll(route.subList(s / 2 + 1, route.size()));
+            remaining.updateFromSegments();
+            remaining.createFullPath();
+            return remaining;
+        }
+
+        // Past the last corner and the target, only the line to the end is left
+        Vertex end = exportTarget();
+        Path rest = new Path(position, end, pathfinder);
+        rest.unsnappedTarget = unsnappedTarget;
+        rest.settingsVersion = settingsVersion;
+        rest.obstacleVersion = obstacleVersion;
+        rest.segments.add(new PathSegment(position, end));
+        rest.route.add(position);
+        rest.route.add(end);
+        rest.createFullPath();
+        return rest;
+    }
+
+    // The remaining part of a path without segments, as points only
+    private Path remainingPointsFrom(Vertex position, double distance) {
+        PathIndex pathIndex = getIndex();
+        ArrayList<Vertex> points = new ArrayList<Vertex>();
+        int last = pathIndex.size() - 1;
+        for (int i = 1; i < last; i++) {
+            if (pathIndex.getDistance(i) > distance)
+                points.add(new Vertex(pathIndex.getX(i), pathIndex.getY(i)));
+        }
+        Path remaining = new Path(position, exportTarget(), points);
+        remaining.setUnsnappedTarget(unsnappedTarget);
+        return remaining;
+    }
+
+    /**
+     * Set the version of the map snapshot this path was planned against, see
+     * {@link MapSnapshot#getVersion()}. Set by the pathfinder.
+     * 
+     * @param obstacleVersion The snapshot version
+     */
+    public void setObstacleVersion(int obstacleVersion) {
+        this.obstacleVersion = obstacleVersion;
+    }
+
+    /**
+     * Get the version of the map snapshot this path was planned against. Obstacle
+     * changes published after that version may block the path.
+     * 
+     * @return The snapshot version, or -1 if it is not known
+     */
+    public int getObstacleVersion() {
+        return obstacleVersion;
+    }
+
+    /**
+     * Get the Pathfinder that created this path.
+     * 
+     * @return The pathfinder, or null if the path was not created by one.
+     */
+    public Pathfinder getPathfinder() {
+        return pathfinder;
+    }
+
     /**
      * Get the full path including the start and target vertices.
      * 
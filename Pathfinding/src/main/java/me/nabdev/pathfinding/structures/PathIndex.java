@@ -0,0 +1,304 @@
+package me.nabdev.pathfinding.structures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A precomputed arc-length index over the points of a path. Stores the
+ * cumulative distance, heading and curvature at every point so that path
+ * followers can look up points by distance with a binary search instead of
+ * scanning the whole path every loop.
+ *
+ * Get one from {@link Path#getIndex()} after the path has been processed.
+ */
+public class PathIndex {
+    private final double[] xs;
+    private final double[] ys;
+    /**
+     * Cumulative distance along the path at each point (meters)
+     */
+    private final double[] distances;
+    /**
+     * Heading of the segment leaving each point (radians). The last point uses the
+     * heading of the segment arriving at it.
+     */
+    private final double[] headings;
+    /**
+     * Signed curvature at each point (radians per meter), positive when turning
+     * counter-clockwise. Zero at the endpoints.
+     */
+    private final double[] curvatures;
+
+    /**
+     * Creates a new path index from the given points, in order. Consecutive
+     * duplicate points are dropped.
+     *
+     * @param points The points of the path, including the start and target
+     */
+    public PathIndex(ArrayList<Vertex> points) {
+        if (points.size() < 1) {
+            throw new IllegalArgumentException("Cannot index a path with no points");
+        }
+        double[] x = new double[points.size()];
+        double[] y = new double[points.size()];
+        int n = 0;
+        for (Vertex v : points) {
+            if (n > 0 && x[n - 1] == v.x && y[n - 1] == v.y)
+                continue;
+            x[n] = v.x;
+            y[n] = v.y;
+            n++;
+        }
+        xs = Arrays.copyOf(x, n);
+        ys = Arrays.copyOf(y, n);
+        distances = new double[n];
+        headings = new double[n];
+        curvatures = new double[n];
+
+        for (int i = 1; i < n; i++) {
+            double dx = xs[i] - xs[i - 1];
+            double dy = ys[i] - ys[i - 1];
+            distances[i] = distances[i - 1] + Math.sqrt(dx * dx + dy * dy);
+            headings[i - 1] = Math.atan2(dy, dx);
+        }
+        if (n > 1)
+            headings[n - 1] = headings[n - 2];
+
+        // Discrete curvature: change in heading over the average length of the two
+        // segments touching the point.
+        for (int i = 1; i < n - 1; i++) {
+            double turn = wrapAngle(headings[i] - headings[i - 1]);
+            double avgLength = (distances[i + 1] - distances[i - 1]) / 2;
+            curvatures[i] = avgLength > 0 ? turn / avgLength : 0;
+        }
+    }
+
+    /**
+     * Wrap an angle to the range [-pi, pi]
+     *
+     * @param angle The angle to wrap (radians)
+     * @return The wrapped angle (radians)
+     */
+    static double wrapAngle(double angle) {
+        return Math.atan2(Math.sin(angle), Math.cos(angle));
+    }
+
+    /**
+     * Get the number of points in the index
+     *
+     * @return The number of points
+     */
+    public int size() {
+        return xs.length;
+    }
+
+    /**
+     * Get the total length of the path
+     *
+     * @return The length of the path (meters)
+     */
+    public double getLength() {
+        return distances[distances.length - 1];
+    }
+
+    /**
+     * Get the x coordinate of a point
+     *
+     * @param i The index of the point
+     * @return The x coordinate of the point
+     */
+    public double getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Get the y coordinate of a point
+     *
+     * @param i The index of the point
+     * @return The y coordinate of the point
+     */
+    public double getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Get the distance along the path at a point
+     *
+     * @param i The index of the point
+     * @return The cumulative distance at the point (meters)
+     */
+    public double getDistance(int i) {
+        return distances[i];
+    }
+
+    /**
+     * Get the heading of the path at a point
+     *
+     * @param i The index of the point
+     * @return The heading of the segment leaving the point (radians)
+     */
+    public double getHeading(int i) {
+        return headings[i];
+    }
+
+    /**
+     * Get the curvature of the path at a point
+     *
+     * @param i The index of the point
+     * @return The signed curvature at the point (radians per meter)
+     */
+    public double getCurvature(int i) {
+        return curvatures[i];
+    }
+
+    /**
+     * Find the segment containing the given distance along the path with a binary
+     * search.
+     *
+     * @param distance The distance along the path (meters)
+     * @return The index of the last point at or before the given distance, clamped
+     *         so that it is always the start of a segment when the path has more
+     *         than one point
+     */
+    public int indexAtDistance(double distance) {
+        int last = Math.max(0, xs.length - 2);
+        if (distance <= 0)
+            return 0;
+        if (distance >= distances[distances.length - 1])
+            return last;
+        int lo = 0;
+        int hi = distances.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (distances[mid] <= distance)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        return Math.min(lo, last);
+    }
+
+    /**
+     * Get the point at the given distance along the path, interpolating between
+     * the surrounding points. Distances outside of the path are clamped to the
+     * start or end.
+     *
+     * @param distance The distance along the path (meters)
+     * @return The point at that distance
+     */
+    public Vertex pointAtDistance(double distance) {
+        int i = indexAtDistance(distance);
+        if (xs.length == 1)
+            return new Vertex(xs[0], ys[0]);
+        double segLength = distances[i + 1] - distances[i];
+        double t = segLength > 0 ? (distance - distances[i]) / segLength : 0;
+        t = Math.max(0, Math.min(1, t));
+        return new Vertex(xs[i] + (xs[i + 1] - xs[i]) * t, ys[i] + (ys[i + 1] - ys[i]) * t);
+    }
+
+    /**
+     * Get the heading of the path at the given distance along it.
+     *
+     * @param distance The distance along the path (meters)
+     * @return The heading of the segment containing that distance (radians)
+     */
+    public double headingAtDistance(double distance) {
+        return headings[indexAtDistance(distance)];
+    }
+
+    /**
+     * Get the distance left to travel from the given distance along the path.
+     *
+     * @param distance The distance along the path (meters)
+     * @return The distance remaining until the end of the path (meters), never
+     *         negative
+     */
+    public double remainingDistance(double distance) {
+        return Math.max(0, getLength() - distance);
+    }
+
+    /**
+     * Project a position onto one segment of the path.
+     *
+     * @param segment The index of the point the segment starts at
+     * @param x       The x coordinate of the position
+     * @param y       The y coordinate of the position
+     * @return The fraction along the segment (0 to 1) of the closest point to the
+     *         position
+     */
+    double projectOnSegment(int segment, double x, double y) {
+        if (segment >= xs.length - 1)
+            return 0;
+        double sx = xs[segment + 1] - xs[segment];
+        double sy = ys[segment + 1] - ys[segment];
+        double lengthSq = sx * sx + sy * sy;
+        if (lengthSq == 0)
+            return 0;
+        double t = ((x - xs[segment]) * sx + (y - ys[segment]) * sy) / lengthSq;
+        return Math.max(0, Math.min(1, t));
+    }
+
+    /**
+     * Get the squared distance from a position to a point on a segment.
+     *
+     * @param segment The index of the point the segment starts at
+     * @param t       The fraction along the segment
+     * @param x       The x coordinate of the position
+     * @param y       The y coordinate of the position
+     * @return The squared distance (meters squared)
+     */
+    double distanceSqToSegment(int segment, double t, double x, double y) {
+        double px = xs[segment];
+        double py = ys[segment];
+        if (segment < xs.length - 1) {
+            px += (xs[segment + 1] - px) * t;
+            py += (ys[segment + 1] - py) * t;
+        }
+        double dx = x - px;
+        double dy = y - py;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Get the distance along the path of a point on a segment.
+     *
+     * @param segment The index of the point the segment starts at
+     * @param t       The fraction along the segment
+     * @return The distance along the path (meters)
+     */
+    double distanceOnSegment(int segment, double t) {
+        if (segment >= xs.length - 1)
+            return distances[segment];
+        return distances[segment] + (distances[segment + 1] - distances[segment]) * t;
+    }
+
+    /**
+     * Find the closest point on the whole path to a position. This is O(n), use a
+     * {@link PathTracker} to follow the path every loop.
+     *
+     * @param position The position to find the closest point to
+     * @return The distance along the path of the closest point (meters)
+     */
+    public double nearestDistance(Vertex position) {
+        double best = Double.MAX_VALUE;
+        double bestDistance = 0;
+        for (int i = 0; i < Math.max(1, xs.length - 1); i++) {
+            double t = projectOnSegment(i, position.x, position.y);
+            double d = distanceSqToSegment(i, t, position.x, position.y);
+            if (d < best) {
+                best = d;
+                bestDistance = distanceOnSegment(i, t);
+            }
+        }
+        return bestDistance;
+    }
+
+    /**
+     * Create a new tracker that follows this path from the start.
+     *
+     * @return A new PathTracker
+     */
+    public PathTracker createTracker() {
+        return new PathTracker(this);
+    }
+}
@@ -0,0 +1,183 @@
+package me.nabdev.pathfinding.structures;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * Tracks a robot's progress along a {@link PathIndex}. Each update only searches
+ * a short window ahead of the last known position instead of the whole path, and
+ * never moves backwards, so following a path costs amortized O(1) per loop.
+ */
+public class PathTracker {
+    /**
+     * The default distance ahead of the last known position to search (meters)
+     */
+    public static final double DEFAULT_SEARCH_DISTANCE = 1.0;
+
+    private final PathIndex index;
+    private final double searchDistance;
+
+    private int segment = 0;
+    private double progress = 0;
+    private double deviation = 0;
+
+    /**
+     * Creates a new tracker at the start of the path with the default search
+     * distance.
+     *
+     * @param index The path index to track along
+     */
+    public PathTracker(PathIndex index) {
+        this(index, DEFAULT_SEARCH_DISTANCE);
+    }
+
+    /**
+     * Creates a new tracker at the start of the path.
+     *
+     * @param index          The path index to track along
+     * @param searchDistance How far ahead of the last known position to search for
+     *                       the nearest point each update (meters). Should be more
+     *                       than the robot can travel in one update.
+     */
+    public PathTracker(PathIndex index, double searchDistance) {
+        if (searchDistance <= 0)
+            throw new IllegalArgumentException("Search distance must be greater than 0");
+        this.index = index;
+        this.searchDistance = searchDistance;
+    }
+
+    /**
+     * Update the tracker with the robot's current position.
+     *
+     * @param x The x coordinate of the robot
+     * @param y The y coordinate of the robot
+     * @return The distance along the path of the nearest point (meters)
+     */
+    public double update(double x, double y) {
+        int lastSegment = Math.max(0, index.size() - 2);
+        double bestDistSq = Double.MAX_VALUE;
+        int bestSegment = segment;
+        double bestT = 0;
+        double limit = progress + searchDistance;
+        for (int i = segment; i <= lastSegment; i++) {
+            if (i > segment && index.getDistance(i) > limit)
+                break;
+            double t = index.projectOnSegment(i, x, y);
+            // Never move backwards along the segment we are already on
+            if (i == segment && index.distanceOnSegment(i, t) < progress) {
+                t = segmentFraction(i, progress);
+            }
+            double distSq = index.distanceSqToSegment(i, t, x, y);
+            if (distSq < bestDistSq) {
+                bestDistSq = distSq;
+                bestSegment = i;
+                bestT = t;
+            }
+        }
+        segment = bestSegment;
+        progress = Math.max(progress, index.distanceOnSegment(bestSegment, bestT));
+        deviation = Math.sqrt(bestDistSq);
+        return progress;
+    }
+
+    /**
+     * Update the tracker with the robot's current position.
+     *
+     * @param position The position of the robot
+     * @return The distance along the path of the nearest point (meters)
+     */
+    public double update(Vertex position) {
+        return update(position.x, position.y);
+    }
+
+    /**
+     * Update the tracker with the robot's current pose.
+     *
+     * @param pose The pose of the robot
+     * @return The distance along the path of the nearest point (meters)
+     */
+    public double update(Pose2d pose) {
+        return update(pose.getX(), pose.getY());
+    }
+
+    private double segmentFraction(int i, double distance) {
+        if (i >= index.size() - 1)
+            return 0;
+        double length = index.getDistance(i + 1) - index.getDistance(i);
+        return length > 0 ? Math.max(0, Math.min(1, (distance - index.getDistance(i)) / length)) : 0;
+    }
+
+    /**
+     * Get the distance along the path of the nearest point found by the last
+     * update.
+     *
+     * @return The progress along the path (meters)
+     */
+    public double getProgress() {
+        return progress;
+    }
+
+    /**
+     * Get the index of the point at the start of the segment the robot is on.
+     *
+     * @return The current segment index
+     */
+    public int getSegmentIndex() {
+        return segment;
+    }
+
+    /**
+     * Get how far the robot was from the path at the last update.
+     *
+     * @return The distance from the robot to the nearest point (meters)
+     */
+    public double getDeviation() {
+        return deviation;
+    }
+
+    /**
+     * Get the nearest point on the path found by the last update.
+     *
+     * @return The nearest point
+     */
+    public Vertex getNearestPoint() {
+        return index.pointAtDistance(progress);
+    }
+
+    /**
+     * Get the lookahead point, a fixed distance further along the path than the
+     * nearest point. Clamped to the end of the path.
+     *
+     * @param lookahead The lookahead distance (meters)
+     * @return The lookahead point
+     */
+    public Vertex getLookaheadPoint(double lookahead) {
+        return index.pointAtDistance(progress + lookahead);
+    }
+
+    /**
+     * Get the distance left to travel along the path.
+     *
+     * @return The remaining distance (meters)
+     */
+    public double getRemainingDistance() {
+        return index.remainingDistance(progress);
+    }
+
+    /**
+     * Get the index this tracker follows.
+     *
+     * @return The path index
+     */
+    public PathIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Move the tracker back to the start of the path.
+     */
+    public void reset() {
+        segment = 0;
+        progress = 0;
+        deviation = 0;
+    }
+}
@@ -61,7 +61,9 @@ public class Vertex implements Comparable<Vertex> {
 
     /**
      * This will be set to false if the point is inside of an obstacle or outside of
-     * the field bounds, since the robot could never be there.
+     * the field bounds, since the robot could never be there. The map only marks
+     * its static path vertices for the deprecated vertex based search; snapshots
+     * keep their own validity for them.
      */
     public boolean validVisibility = true;
 
@@ -8,7 +8,8 @@ import java.util.Optional;
 /**
  * A wrapper class for the DriverStation class that allows for the use of the
  * DriverStation class in an environment where wpiHalJNI is unavailable (I.E.
- * OxplorerGUI). Returns default values if -Dnohaljni=true is given to the JVM.
+ * OxplorerGUI). Returns default values if -Dnohaljni=true is given to the JVM,
+ * or the values of a {@link SimulatedMatch} if one has been set.
  */
 public class DriverStationWrapper {
     private static boolean canUseJni;
@@ -16,15 +17,76 @@ public class DriverStationWrapper {
         canUseJni = !Boolean.getBoolean("nohaljni");
     }
 
+    /**
+     * The match state to report when HALJNI is disabled, for running a match
+     * without a robot or simulator. Implementations should read time from a clock
+     * they are given rather than the system clock, so a match can be replayed
+     * faster than real time.
+     */
+    public interface SimulatedMatch {
+        /**
+         * Whether the simulated robot is in autonomous
+         * 
+         * @return true if in autonomous
+         */
+        boolean isAutonomous();
+
+        /**
+         * Whether the simulated robot is in teleop
+         * 
+         * @return true if in teleop
+         */
+        boolean isTeleop();
+
+        /**
+         * The time remaining in the current period, as the Driver Station reports it
+         * 
+         * @return The match time (seconds)
+         */
+        double getMatchTime();
+
+        /**
+         * The alliance the simulated robot is on
+         * 
+         * @return The alliance, or an empty Optional if not yet assigned
+         */
+        Optional<Alliance> getAlliance();
+    }
+
+    private static volatile SimulatedMatch simulatedMatch = null;
+
+    /**
+     * Set the match state to report when HALJNI is disabled. Has no effect when
+     * HALJNI is available.
+     * 
+     * @param match The simulated match, or null to go back to the default values
+     */
+    public static void setSimulatedMatch(SimulatedMatch match) {
+        simulatedMatch = match;
+    }
+
+    /**
+     * Get the match state reported when HALJNI is disabled
+     * 
+     * @return The simulated match, or null if the default values are used
+     */
+    public static SimulatedMatch getSimulatedMatch() {
+        return simulatedMatch;
+    }
+
     /**
      * Returns whether the Driver Station is currently enabled. False if HALJNI is
-     * disabled.
+     * disabled, unless a match is being simulated.
      * 
      * @return true if the Driver Station is currently enabled, false otherwise
      */
     public static boolean isAutonomous() {
         if (canUseJni) {
             return DriverStation.isAutonomous();
+        }
+        SimulatedMatch match = simulatedMatch;
+        if (match != null) {
+            return match.isAutonomous();
         } else {
             return false;
         }
@@ -32,13 +94,17 @@ public class DriverStationWrapper {
 
     /**
      * Returns whether the Driver Station is currently enabled. True if HALJNI is
-     * disabled.
+     * disabled, unless a match is being simulated.
      * 
      * @return true if the Driver Station is currently enabled, false otherwise
      */
     public static boolean isTeleop() {
         if (canUseJni) {
             return DriverStation.isTeleop();
+        }
+        SimulatedMatch match = simulatedMatch;
+        if (match != null) {
+            return match.isTeleop();
         } else {
             return true;
         }
@@ -46,13 +112,17 @@ public class DriverStationWrapper {
 
     /**
      * Returns whether the Driver Station is currently enabled. False if HALJNI is
-     * disabled.
+     * disabled, unless a match is being simulated.
      * 
      * @return true if the Driver Station is currently enabled, false otherwise
      */
     public static double getMatchTime() {
         if (canUseJni) {
             return DriverStation.getMatchTime();
+        }
+        SimulatedMatch match = simulatedMatch;
+        if (match != null) {
+            return match.getMatchTime();
         } else {
             return 0;
         }
@@ -60,13 +130,18 @@ public class DriverStationWrapper {
 
     /**
      * Returns the alliance that the driver station is on. If HALJNI is disabled,
-     * returns an empty Optional.
+     * returns an empty Optional unless a match is being
+     * simulated.
      * 
      * @return the alliance that the driver station is on
      */
     public static Optional<Alliance> getAlliance() {
         if (canUseJni) {
             return DriverStation.getAlliance();
+        }
+        SimulatedMatch match = simulatedMatch;
+        if (match != null) {
+            return match.getAlliance();
         } else {
             return Optional.empty();
         }
@@ -0,0 +1,295 @@
+package me.nabdev.pathfinding.utilities;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.json.JSONArray;
+
+import me.nabdev.pathfinding.PathfinderBuilder;
+import me.nabdev.pathfinding.jfr.FieldLoadEvent;
+import me.nabdev.pathfinding.modifiers.ModifierCollection;
+import me.nabdev.pathfinding.modifiers.ObstacleModifier.ObstacleModifierTypes;
+import me.nabdev.pathfinding.structures.CompiledMap;
+import me.nabdev.pathfinding.utilities.FieldLoader.CornerCutting;
+import me.nabdev.pathfinding.utilities.FieldLoader.Field;
+import me.nabdev.pathfinding.utilities.FieldLoader.FieldData;
+import me.nabdev.pathfinding.utilities.FieldLoader.ObstacleData;
+
+/**
+ * Reads and writes compiled field artifacts. An artifact holds a processed field
+ * and its {@link CompiledMap} (the inflated obstacles and the visibility graph
+ * for every state a match can be in), so a robot can load its map at boot
+ * instead of parsing the field JSON and building the map.
+ *
+ * Every artifact starts with a hash of what it was compiled from: the field
+ * JSON, the clearance and the corner cutting mode. If any of them change, the
+ * hash no longer matches and the artifact is ignored, so a stale artifact can
+ * never be loaded. Artifacts are written by
+ * {@link PathfinderBuilder#writeFieldArtifact(String)}, or by the
+ * {@code compileFields} Gradle task, which runs {@link #main(String[])}.
+ */
+public class FieldArtifact {
+    /**
+     * The first bytes of every artifact ("OXPF")
+     */
+    public static final int MAGIC = 0x4F585046;
+    /**
+     * The current artifact format version. Part of the input hash, so artifacts
+     * written by an older version are rebuilt rather than misread.
+     */
+    public static final int VERSION = 1;
+    /**
+     * The file extension used for artifacts
+     */
+    public static final String EXTENSION = ".oxf";
+
+    private static final int HASH_BYTES = 32;
+
+    private FieldArtifact() {
+    }
+
+    /**
+     * Read the JSON of a bundled field
+     *
+     * @param field The field
+     * @return The field JSON
+     * @throws IOException If the field can't be read
+     */
+    public static byte[] readField(Field field) throws IOException {
+        try (InputStream input = FieldArtifact.class.getClassLoader()
+                .getResourceAsStream(field.name().toLowerCase() + ".json")) {
+            if (input == null)
+                throw new IOException("Field " + field + " is not bundled");
+            return input.readAllBytes();
+        }
+    }
+
+    /**
+     * Read the JSON of a field from a file
+     *
+     * @param fieldPath The path to the field JSON file
+     * @return The field JSON
+     * @throws IOException If the file can't be read
+     */
+    public static byte[] readField(String fieldPath) throws IOException {
+        return Files.readAllBytes(Paths.get(fieldPath));
+    }
+
+    /**
+     * Hash everything an artifact is compiled from
+     *
+     * @param fieldJson     The field JSON
+     * @param clearance     The clearance the obstacles are inflated by
+     * @param cornerCutting The corner cutting mode
+     * @return The hash
+     */
+    public static byte[] inputHash(byte[] fieldJson, double clearance, CornerCutting cornerCutting) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        digest.update(ByteBuffer.allocate(Integer.BYTES + Double.BYTES + Integer.BYTES).putInt(VERSION)
+                .putDouble(clearance).putInt(cornerCutting.ordinal()).array());
+        digest.update(fieldJson);
+        return digest.digest();
+    }
+
+    /**
+     * Write an artifact
+     *
+     * @param path     Where to write the artifact
+     * @param hash     The hash of what it was compiled from, see
+     *                 {@link #inputHash(byte[], double, CornerCutting)}
+     * @param field    The processed field
+     * @param compiled The map compiled from the field
+     * @throws IOException If the file can't be written
+     */
+    public static void write(String path, byte[] hash, FieldData field, CompiledMap compiled) throws IOException {
+        if (hash.length != HASH_BYTES)
+            throw new IllegalArgumentException("Hash must be " + HASH_BYTES + " bytes");
+        java.nio.file.Path parent = Paths.get(path).toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.write(hash);
+            out.writeDouble(field.fieldX);
+            out.writeDouble(field.fieldY);
+            out.writeInt(field.vertices.size());
+            for (Double[] vertex : field.vertices) {
+                out.writeDouble(vertex[0]);
+                out.writeDouble(vertex[1]);
+            }
+            out.writeInt(field.obstacles.size());
+            for (ObstacleData obstacle : field.obstacles) {
+                writeString(out, obstacle.id);
+                ArrayList<ObstacleModifierTypes> modifiers = obstacle.modifiers.getModifierTypes();
+                out.writeInt(modifiers.size());
+                for (ObstacleModifierTypes modifier : modifiers) {
+                    writeString(out, modifier.name());
+                }
+                out.writeInt(obstacle.edges.size());
+                for (Integer[] edge : obstacle.edges) {
+                    out.writeInt(edge[0]);
+                    out.writeInt(edge[1]);
+                }
+            }
+            compiled.write(out);
+        }
+    }
+
+    /**
+     * Load an artifact, memory mapping the file instead of reading it through a
+     * stream
+     *
+     * @param path The path to the artifact
+     * @param hash The hash of what the field should have been compiled from, see
+     *             {@link #inputHash(byte[], double, CornerCutting)}
+     * @return The processed field with its compiled map, or null if the artifact
+     *         doesn't exist, was compiled from something else, or is corrupt
+     */
+    public static FieldData load(String path, byte[] hash) {
+        FieldLoadEvent event = new FieldLoadEvent();
+        event.begin();
+        event.source = path;
+        event.compiled = true;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != MAGIC || in.getInt() != VERSION)
+                return null;
+            byte[] fileHash = new byte[HASH_BYTES];
+            in.get(fileHash);
+            if (!Arrays.equals(fileHash, hash))
+                return null;
+            FieldData field = read(in);
+            event.obstacles = field.obstacles.size();
+            event.vertices = field.vertices.size();
+            event.success = true;
+            return field;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Warning: Field artifact " + path + " could not be loaded (" + e
+                    + "), building the map from the field instead");
+            return null;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private static FieldData read(ByteBuffer in) {
+        double fieldX = in.getDouble();
+        double fieldY = in.getDouble();
+        int vertexCount = count(in);
+        ArrayList<Double[]> vertices = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            vertices.add(new Double[] { in.getDouble(), in.getDouble() });
+        }
+        int obstacleCount = count(in);
+        ArrayList<ObstacleData> obstacles = new ArrayList<>(obstacleCount);
+        for (int i = 0; i < obstacleCount; i++) {
+            String id = readString(in);
+            JSONArray modifiers = new JSONArray();
+            int modifierCount = count(in);
+            for (int j = 0; j < modifierCount; j++) {
+                modifiers.put(readString(in));
+            }
+            int edgeCount = count(in);
+            ArrayList<Integer[]> edges = new ArrayList<>(edgeCount);
+            for (int j = 0; j < edgeCount; j++) {
+                Integer[] edge = new Integer[] { in.getInt(), in.getInt() };
+                if (edge[0] < 0 || edge[0] >= vertexCount || edge[1] < 0 || edge[1] >= vertexCount)
+                    throw new IllegalArgumentException("Obstacle edge out of range");
+                edges.add(edge);
+            }
+            obstacles.add(new ObstacleData(edges, id, new ModifierCollection(modifiers)));
+        }
+        FieldData field = new FieldData(vertices, obstacles, fieldX, fieldY);
+        field.compiled = CompiledMap.read(in);
+        return field;
+    }
+
+    private static int count(ByteBuffer in) {
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining())
+            throw new IllegalArgumentException("Malformed count " + count);
+        return count;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[count(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compile fields into artifacts, for the {@code compileFields} Gradle task.
+     *
+     * Arguments: the output directory, the field (a {@link Field} name, ALL for
+     * every bundled field, or the path to a field JSON file), and optionally the
+     * robot width and length (meters) and the corner cutting mode, which default to
+     * the {@link PathfinderBuilder} defaults. Each artifact is named after its
+     * field, with the {@link #EXTENSION} extension.
+     *
+     * @param args The arguments
+     * @throws IOException If a field can't be read or an artifact can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: FieldArtifact <output dir> <field|ALL|field.json> [width length cornerCutting]");
+            return;
+        }
+        java.nio.file.Path output = Paths.get(args[0]);
+        ArrayList<PathfinderBuilder> builders = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        if (args[1].equals("ALL")) {
+            for (Field field : Field.values()) {
+                builders.add(new PathfinderBuilder(field));
+                names.add(field.name().toLowerCase());
+            }
+        } else if (args[1].toLowerCase().endsWith(".json")) {
+            builders.add(new PathfinderBuilder(args[1]));
+            String fileName = Paths.get(args[1]).getFileName().toString();
+            names.add(fileName.substring(0, fileName.length() - ".json".length()));
+        } else {
+            builders.add(new PathfinderBuilder(Field.valueOf(args[1])));
+            names.add(args[1].toLowerCase());
+        }
+        for (int i = 0; i < builders.size(); i++) {
+            PathfinderBuilder builder = builders.get(i);
+            if (args.length > 3)
+                builder.setRobotWidth(Double.parseDouble(args[2])).setRobotLength(Double.parseDouble(args[3]));
+            if (args.length > 4)
+                builder.setCornerCuttingType(CornerCutting.valueOf(args[4]));
+            String path = output.resolve(names.get(i) + EXTENSION).toString();
+            builder.writeFieldArtifact(path);
+            System.out.println("Compiled " + names.get(i) + " to " + path + " (" + Files.size(Paths.get(path))
+                    + " bytes)");
+        }
+    }
+}
@@ -8,7 +8,9 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
+import me.nabdev.pathfinding.jfr.FieldLoadEvent;
 import me.nabdev.pathfinding.modifiers.ModifierCollection;
+import me.nabdev.pathfinding.structures.CompiledMap;
 import me.nabdev.pathfinding.structures.Vector;
 import me.nabdev.pathfinding.structures.Vertex;
 
@@ -102,6 +104,12 @@ public class FieldLoader {
          */
         public double fieldY;
 
+        /**
+         * The map compiled ahead of time, if the field was loaded from a
+         * {@link FieldArtifact}, otherwise null
+         */
+        public CompiledMap compiled;
+
         /**
          * Creates a new FieldData
          * 
@@ -162,7 +170,7 @@ public class FieldLoader {
     public static FieldData loadField(Field field, CornerCutting cornerCutMode) {
         JSONTokener tokener = new JSONTokener(
                 FieldLoader.class.getClassLoader().getResourceAsStream(field.name().toLowerCase() + ".json"));
-        return processField(new JSONObject(tokener), cornerCutMode);
+        return loadField(tokener, cornerCutMode, field.name());
     }
 
     /**
@@ -178,7 +186,24 @@ public class FieldLoader {
         JSONTokener tokener;
         FileInputStream input = new FileInputStream(fieldPath);
         tokener = new JSONTokener(input);
-        return processField(new JSONObject(tokener), cornerCutMode);
+        return loadField(tokener, cornerCutMode, fieldPath);
+    }
+
+    // Parses and processes a field, recording how long it took for JFR
+    private static FieldData loadField(JSONTokener tokener, CornerCutting cornerCutMode, String source) {
+        FieldLoadEvent event = new FieldLoadEvent();
+        event.begin();
+        try {
+            FieldData data = processField(new JSONObject(tokener), cornerCutMode);
+            event.obstacles = data.obstacles.size();
+            event.vertices = data.vertices.size();
+            event.success = true;
+            return data;
+        } finally {
+            event.source = source;
+            event.cornerCutting = cornerCutMode.name();
+            event.commit();
+        }
     }
 
     /**
@@ -0,0 +1,71 @@
+package me.nabdev.pathfinding.utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.RawPublisher;
+import me.nabdev.pathfinding.structures.Path;
+
+/**
+ * Publishes paths to NetworkTables as a Pose2d struct array, the same format as
+ * a WPILib StructArrayPublisher&lt;Pose2d&gt;, so they show up as poses in
+ * AdvantageScope and other dashboards. The poses are written straight from the
+ * path into a reused direct buffer, so publishing every loop does not allocate
+ * unless the path is longer than any path published before.
+ */
+public class PathPublisher implements AutoCloseable {
+    /**
+     * The NetworkTables type string of a Pose2d struct array
+     */
+    public static final String TYPE_STRING = "struct:Pose2d[]";
+
+    private final RawPublisher publisher;
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a new path publisher on the default NetworkTables instance
+     *
+     * @param topic The name of the topic to publish to
+     */
+    public PathPublisher(String topic) {
+        this(NetworkTableInstance.getDefault(), topic);
+    }
+
+    /**
+     * Creates a new path publisher
+     *
+     * @param instance The NetworkTables instance to publish on
+     * @param topic    The name of the topic to publish to
+     */
+    public PathPublisher(NetworkTableInstance instance, String topic) {
+        // Dashboards need the schema to decode the struct
+        instance.addSchema(Pose2d.struct);
+        publisher = instance.getRawTopic(topic).publish(TYPE_STRING);
+        buffer = ByteBuffer.allocateDirect(Path.POSE_STRUCT_SIZE * 64).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Publish a path
+     *
+     * @param path The path to publish
+     */
+    public void publish(Path path) {
+        int bytes = path.getExportPointCount() * Path.POSE_STRUCT_SIZE;
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocateDirect(Math.max(bytes, buffer.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buffer.clear();
+        path.writePoses(buffer);
+        publisher.set(buffer, 0, bytes);
+    }
+
+    /**
+     * Stop publishing
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
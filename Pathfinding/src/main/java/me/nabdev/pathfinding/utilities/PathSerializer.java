@@ -12,6 +12,7 @@ import org.json.JSONObject;
 import org.json.JSONTokener;
 
 import edu.wpi.first.wpilibj.Filesystem;
+import me.nabdev.pathfinding.structures.FieldSymmetry;
 import me.nabdev.pathfinding.structures.Path;
 import me.nabdev.pathfinding.structures.Vertex;
 
@@ -32,10 +33,24 @@ public class PathSerializer {
      * @throws FileNotFoundException If the file does not exist
      */
     public static Path fromDisk(String path) throws FileNotFoundException {
+        return fromDisk(path, null);
+    }
+
+    /**
+     * Load a path from disk, reflected onto the other alliance's side of the field
+     * 
+     * @param path     The path of the JSON file to load
+     * @param symmetry The symmetry of the field (see
+     *                 {@link me.nabdev.pathfinding.Pathfinder#getFieldSymmetry()}),
+     *                 or null to load the path as it was saved
+     * @return The path
+     * @throws FileNotFoundException If the file does not exist
+     */
+    public static Path fromDisk(String path, FieldSymmetry symmetry) throws FileNotFoundException {
         // Load like a normal file, not a resource
         FileInputStream input = new FileInputStream(path);
         JSONTokener tokener = new JSONTokener(input);
-        return fromJSON(new JSONObject(tokener));
+        return fromJSON(new JSONObject(tokener), symmetry);
     }
 
     /**
@@ -64,13 +79,30 @@ public class PathSerializer {
      * @throws FileNotFoundException If the file could not be found
      */
     public static Path fromDeployFolder(String displayName) throws FileNotFoundException, IOException {
+        return fromDeployFolder(displayName, null);
+    }
+
+    /**
+     * Load a path from the deploy folder via its display name, reflected onto the
+     * other alliance's side of the field. This way a path only has to be drawn for
+     * one alliance.
+     * 
+     * @param displayName The name of the path to load (without the .json extension)
+     * @param symmetry    The symmetry of the field (see
+     *                    {@link me.nabdev.pathfinding.Pathfinder#getFieldSymmetry()}),
+     *                    or null to load the path as it was saved
+     * @return The path
+     * @throws FileNotFoundException If the file could not be found
+     */
+    public static Path fromDeployFolder(String displayName, FieldSymmetry symmetry)
+            throws FileNotFoundException, IOException {
         java.nio.file.Path containingFolder = Filesystem.getDeployDirectory().toPath().resolve("oxplorer/paths/");
         String fileName = displayName.replaceAll("[^a-zA-Z0-9.-]", "_").toLowerCase() + ".json";
         // Ensures that oxplorer/paths exists
         Files.createDirectories(containingFolder);
         FileInputStream input = new FileInputStream(containingFolder.resolve(fileName).toString());
         JSONTokener tokener = new JSONTokener(input);
-        return fromJSON(new JSONObject(tokener));
+        return fromJSON(new JSONObject(tokener), symmetry);
     }
 
     /**
@@ -138,6 +170,19 @@ public class PathSerializer {
      * @return The path
      */
     public static Path fromJSON(JSONObject jsonObject) {
+        return fromJSON(jsonObject, null);
+    }
+
+    /**
+     * Load a path from a JSON object, reflected onto the other alliance's side of
+     * the field
+     * 
+     * @param jsonObject The JSON object to load from
+     * @param symmetry   The symmetry of the field, or null to load the path as it
+     *                   was saved
+     * @return The path
+     */
+    public static Path fromJSON(JSONObject jsonObject, FieldSymmetry symmetry) {
         if (jsonObject.getInt("version") != VERSION) {
             throw new IllegalArgumentException("Invalid version! This version of oxplorer uses the v" + VERSION
                     + " JSON format, found v" + jsonObject.getInt("version") + " instead");
@@ -155,6 +200,8 @@ public class PathSerializer {
         for (int i = 0; i < pathJsonArray.length(); i++) {
             JSONObject pointJsonObject = pathJsonArray.getJSONObject(i);
             Vertex v = deserializeVertex(pointJsonObject);
+            if (symmetry != null)
+                v = symmetry.apply(v);
             if (i == 0) {
                 start = v;
             } else if (i == pathJsonArray.length() - 1) {
@@ -0,0 +1,215 @@
+package me.nabdev.pathfinding.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.constraint.TrajectoryConstraint;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.PathIndex;
+
+/**
+ * A bounded, least-recently-used cache of generated trajectories, keyed by the
+ * content of the path and the fields of the {@link TrajectoryConfig} that affect
+ * the result. Lets a command that restarts with the same path skip trajectory
+ * generation entirely.
+ *
+ * Trajectories returned from the cache are shared, so they should not be
+ * modified.
+ */
+public class TrajectoryCache {
+    private final int maxSize;
+    private final LinkedHashMap<Key, Trajectory> entries;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * Creates a new trajectory cache
+     *
+     * @param maxSize The maximum number of trajectories to keep. The least recently
+     *                used trajectory is evicted when this is exceeded. A size of 0
+     *                disables caching.
+     */
+    public TrajectoryCache(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("Trajectory cache size must be positive");
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Key, Trajectory>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(java.util.Map.Entry<Key, Trajectory> eldest) {
+                if (size() > TrajectoryCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the trajectory for the given path and config, generating it with
+     * {@link Path#asTrajectory(TrajectoryConfig)} if it is not cached.
+     *
+     * @param path   The path to follow
+     * @param config The trajectory config to use
+     * @return The trajectory
+     * @throws ImpossiblePathException If the trajectory could not be generated
+     */
+    public Trajectory get(Path path, TrajectoryConfig config) throws ImpossiblePathException {
+        if (maxSize == 0) {
+            synchronized (this) {
+                misses++;
+            }
+            return path.asTrajectory(config);
+        }
+        Key key = new Key(path, config);
+        synchronized (this) {
+            Trajectory cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        // Generate outside of the lock so other threads can still hit the cache
+        Trajectory trajectory = path.asTrajectory(config);
+        synchronized (this) {
+            entries.put(key, trajectory);
+        }
+        return trajectory;
+    }
+
+    /**
+     * Remove every trajectory from the cache. Does not reset the statistics.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Get the number of trajectories in the cache
+     *
+     * @return The number of cached trajectories
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get the maximum number of trajectories the cache will hold
+     *
+     * @return The maximum size of the cache
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the number of requests that were served from the cache
+     *
+     * @return The number of cache hits
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of requests that had to generate a new trajectory
+     *
+     * @return The number of cache misses
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Get the number of trajectories that were evicted to stay within the maximum
+     * size
+     *
+     * @return The number of evictions
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the fraction of requests that were served from the cache
+     *
+     * @return The hit rate (0 to 1), or 0 if there have been no requests
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Identifies a trajectory by the points of the path and the config values at
+     * the time it was generated.
+     */
+    private static class Key {
+        private final double[] points;
+        private final double maxVelocity;
+        private final double maxAcceleration;
+        private final double startVelocity;
+        private final double endVelocity;
+        private final boolean reversed;
+        // Constraints don't implement equals, so they are compared by identity
+        private final List<TrajectoryConstraint> constraints;
+        private final int hash;
+
+        Key(Path path, TrajectoryConfig config) {
+            PathIndex index = path.getIndex();
+            points = new double[index.size() * 2];
+            for (int i = 0; i < index.size(); i++) {
+                points[i * 2] = index.getX(i);
+                points[i * 2 + 1] = index.getY(i);
+            }
+            maxVelocity = config.getMaxVelocity();
+            maxAcceleration = config.getMaxAcceleration();
+            startVelocity = config.getStartVelocity();
+            endVelocity = config.getEndVelocity();
+            reversed = config.isReversed();
+            constraints = new ArrayList<>(config.getConstraints());
+
+            int h = Arrays.hashCode(points);
+            h = 31 * h + Double.hashCode(maxVelocity);
+            h = 31 * h + Double.hashCode(maxAcceleration);
+            h = 31 * h + Double.hashCode(startVelocity);
+            h = 31 * h + Double.hashCode(endVelocity);
+            h = 31 * h + Boolean.hashCode(reversed);
+            for (TrajectoryConstraint constraint : constraints) {
+                h = 31 * h + System.identityHashCode(constraint);
+            }
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            if (hash != other.hash || reversed != other.reversed || maxVelocity != other.maxVelocity
+                    || maxAcceleration != other.maxAcceleration || startVelocity != other.startVelocity
+                    || endVelocity != other.endVelocity || constraints.size() != other.constraints.size())
+                return false;
+            for (int i = 0; i < constraints.size(); i++) {
+                if (constraints.get(i) != other.constraints.get(i))
+                    return false;
+            }
+            return Arrays.equals(points, other.points);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package me.nabdev.pathfinding.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.constraint.TrajectoryConstraint;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.PathSegment;
+import me.nabdev.pathfinding.structures.Vertex;
+
+/**
+ * Time-parameterizes a processed {@link Path} directly from its geometry
+ * (straightaways and the sampled points of its corners) instead of refitting
+ * splines through every point with WPILib's TrajectoryGenerator. The corners
+ * are followed through the same points the pathfinder checked and published,
+ * so the trajectory never leaves the path.
+ *
+ * The geometry is sampled once, then a forward and a backward pass enforce the
+ * velocity and acceleration limits of the {@link TrajectoryConfig} (including
+ * its constraints), the same way WPILib's TrajectoryParameterizer does.
+ */
+public class TrajectoryProfiler {
+    /**
+     * The maximum distance between samples (meters)
+     */
+    private static final double MAX_SAMPLE_SPACING = 0.05;
+    private static final double EPSILON = 1E-6;
+
+    private TrajectoryProfiler() {
+    }
+
+    /**
+     * A point along the path with everything the velocity profile needs to know
+     * about it.
+     */
+    private static class Sample {
+        double x;
+        double y;
+        double heading;
+        double curvature;
+        double distance;
+
+        double maxVelocity;
+        double minAcceleration;
+        double maxAcceleration;
+
+        Sample(double x, double y, double heading, double curvature) {
+            this.x = x;
+            this.y = y;
+            this.heading = heading;
+            this.curvature = curvature;
+        }
+    }
+
+    /**
+     * Whether or not the given path has the geometry needed to be profiled
+     * natively (it has been processed by a Pathfinder).
+     *
+     * @param path The path to check
+     * @return True if {@link #profile(Path, TrajectoryConfig)} can be used
+     */
+    public static boolean canProfile(Path path) {
+        return path.getSegments().size() > 0;
+    }
+
+    /**
+     * Generate a trajectory that follows the given processed path.
+     *
+     * @param path   The path to follow. Must have been processed.
+     * @param config The trajectory config to respect
+     * @return The trajectory
+     * @throws ImpossiblePathException If the path has not been processed or the
+     *                                 constraints cannot be satisfied
+     */
+    public static Trajectory profile(Path path, TrajectoryConfig config) throws ImpossiblePathException {
+        if (!canProfile(path)) {
+            throw new ImpossiblePathException("Cannot profile a path that has not been processed");
+        }
+        ArrayList<Sample> samples = sample(path);
+        applyLimits(samples, config);
+        return timeParameterize(samples, config.isReversed());
+    }
+
+    /**
+     * Sample the geometry of the path. Straightaways are implied between the end
+     * of one corner and the start of the next.
+     */
+    private static ArrayList<Sample> sample(Path path) {
+        ArrayList<Sample> samples = new ArrayList<>();
+        Vertex current = path.getStart();
+        for (PathSegment seg : path.getSegments()) {
+            if (!seg.corner || seg.points.size() == 0)
+                continue;
+            sampleLine(samples, current, seg.start());
+            sampleCorner(samples, seg.points);
+            current = seg.end();
+        }
+        sampleLine(samples, current, path.getTarget());
+        if (path.snapMode == PathfindSnapMode.SNAP_ALL_THEN_LINE
+                || path.snapMode == PathfindSnapMode.SNAP_TARGET_THEN_LINE) {
+            sampleLine(samples, path.getTarget(), path.getUnsnappedTarget());
+        }
+        if (samples.size() == 0) {
+            Vertex start = path.getStart();
+            samples.add(new Sample(start.x, start.y, 0, 0));
+        }
+        if (samples.size() == 1) {
+            // Always end on the target, even when it is on top of the start
+            Vertex end = path.getTarget();
+            samples.add(new Sample(end.x, end.y, samples.get(0).heading, 0));
+        }
+        return samples;
+    }
+
+    private static void sampleLine(ArrayList<Sample> samples, Vertex from, Vertex to) {
+        double dx = to.x - from.x;
+        double dy = to.y - from.y;
+        double length = Math.sqrt(dx * dx + dy * dy);
+        if (length < EPSILON)
+            return;
+        double heading = Math.atan2(dy, dx);
+        int count = (int) Math.ceil(length / MAX_SAMPLE_SPACING);
+        // Skip the first point if the previous piece already ended there
+        int first = samples.size() > 0 ? 1 : 0;
+        for (int i = first; i <= count; i++) {
+            double t = (double) i / count;
+            samples.add(new Sample(from.x + dx * t, from.y + dy * t, heading, 0));
+        }
+    }
+
+    /**
+     * Sample a corner through its points. Normalized corners are not the bezier
+     * curve they were generated from, and every corner is sampled from a quantized
+     * template, so the points are the only exact description of the corner.
+     * Headings and curvatures come from each point's neighbors.
+     */
+    private static void sampleCorner(ArrayList<Sample> samples, ArrayList<Vertex> points) {
+        int n = points.size();
+        double[] headings = new double[n];
+        double[] curvatures = new double[n];
+        for (int i = 0; i < n; i++) {
+            Vertex before = points.get(Math.max(0, i - 1));
+            Vertex after = points.get(Math.min(n - 1, i + 1));
+            double dx = after.x - before.x;
+            double dy = after.y - before.y;
+            if (Math.hypot(dx, dy) < EPSILON) {
+                // Degenerate corner (a point on top of another)
+                headings[i] = i > 0 ? headings[i - 1]
+                        : samples.size() > 0 ? samples.get(samples.size() - 1).heading : 0;
+            } else {
+                headings[i] = Math.atan2(dy, dx);
+            }
+            if (i > 0 && i < n - 1)
+                curvatures[i] = curvature(before, points.get(i), after);
+        }
+        // The ends have no neighbor on one side, so they take the curvature next to
+        // them
+        if (n > 2) {
+            curvatures[0] = curvatures[1];
+            curvatures[n - 1] = curvatures[n - 2];
+        }
+
+        for (int i = 0; i < n; i++) {
+            Vertex p = points.get(i);
+            if (samples.size() > 0) {
+                Sample last = samples.get(samples.size() - 1);
+                double dx = p.x - last.x;
+                double dy = p.y - last.y;
+                double length = Math.sqrt(dx * dx + dy * dy);
+                // Skip repeated points on degenerate corners
+                if (length < EPSILON)
+                    continue;
+                // Fill in between the points along the chord, so samples stay as close
+                // together as on straightaways
+                int count = (int) Math.ceil(length / MAX_SAMPLE_SPACING);
+                double heading = Math.atan2(dy, dx);
+                double fromCurvature = i > 0 ? curvatures[i - 1] : curvatures[i];
+                for (int k = 1; k < count; k++) {
+                    double t = (double) k / count;
+                    samples.add(new Sample(last.x + dx * t, last.y + dy * t, heading,
+                            fromCurvature + (curvatures[i] - fromCurvature) * t));
+                }
+            }
+            samples.add(new Sample(p.x, p.y, headings[i], curvatures[i]));
+        }
+    }
+
+    /**
+     * Signed curvature of the circle through three points, positive when turning
+     * counter-clockwise
+     */
+    private static double curvature(Vertex a, Vertex b, Vertex c) {
+        double abx = b.x - a.x;
+        double aby = b.y - a.y;
+        double bcx = c.x - b.x;
+        double bcy = c.y - b.y;
+        double product = Math.hypot(abx, aby) * Math.hypot(bcx, bcy) * Math.hypot(c.x - a.x, c.y - a.y);
+        if (product < EPSILON * EPSILON * EPSILON)
+            return 0;
+        return 2 * (abx * bcy - aby * bcx) / product;
+    }
+
+    private static Pose2d poseOf(Sample s) {
+        return new Pose2d(s.x, s.y, new Rotation2d(s.heading));
+    }
+
+    private static void enforceAccelerationLimits(boolean reversed, List<TrajectoryConstraint> constraints,
+            Sample s) throws ImpossiblePathException {
+        if (constraints.size() > 0) {
+            Pose2d pose = poseOf(s);
+            double factor = reversed ? -1.0 : 1.0;
+            for (TrajectoryConstraint constraint : constraints) {
+                TrajectoryConstraint.MinMax minMax = constraint.getMinMaxAccelerationMetersPerSecondSq(pose,
+                        s.curvature, s.maxVelocity * factor);
+                s.minAcceleration = Math.max(s.minAcceleration,
+                        reversed ? -minMax.maxAccelerationMetersPerSecondSq : minMax.minAccelerationMetersPerSecondSq);
+                s.maxAcceleration = Math.min(s.maxAcceleration,
+                        reversed ? -minMax.minAccelerationMetersPerSecondSq : minMax.maxAccelerationMetersPerSecondSq);
+            }
+        }
+        if (s.minAcceleration > s.maxAcceleration) {
+            throw new ImpossiblePathException(
+                    "Infeasible trajectory constraint. Minimum acceleration is greater than maximum acceleration.");
+        }
+    }
+
+    private static double constrainedMaxVelocity(List<TrajectoryConstraint> constraints, Sample s, double velocity) {
+        double max = velocity;
+        if (constraints.size() > 0) {
+            Pose2d pose = poseOf(s);
+            for (TrajectoryConstraint constraint : constraints) {
+                max = Math.min(max, constraint.getMaxVelocityMetersPerSecond(pose, s.curvature, max));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forward and backward passes over the samples, respecting the velocity and
+     * acceleration limits of the config.
+     */
+    private static void applyLimits(ArrayList<Sample> samples, TrajectoryConfig config)
+            throws ImpossiblePathException {
+        double maxVelocity = Math.abs(config.getMaxVelocity());
+        double maxAcceleration = Math.abs(config.getMaxAcceleration());
+        boolean reversed = config.isReversed();
+        List<TrajectoryConstraint> constraints = config.getConstraints();
+
+        // Forward pass: accelerate as hard as possible from the start velocity
+        Sample predecessor = new Sample(0, 0, 0, 0);
+        Sample first = samples.get(0);
+        predecessor.x = first.x;
+        predecessor.y = first.y;
+        predecessor.maxVelocity = Math.abs(config.getStartVelocity());
+        predecessor.minAcceleration = -maxAcceleration;
+        predecessor.maxAcceleration = maxAcceleration;
+
+        for (int i = 0; i < samples.size(); i++) {
+            Sample s = samples.get(i);
+            double ds = Math.hypot(s.x - predecessor.x, s.y - predecessor.y);
+            s.distance = ds + predecessor.distance;
+
+            while (true) {
+                s.maxVelocity = Math.min(maxVelocity,
+                        Math.sqrt(predecessor.maxVelocity * predecessor.maxVelocity
+                                + predecessor.maxAcceleration * ds * 2.0));
+                s.minAcceleration = -maxAcceleration;
+                s.maxAcceleration = maxAcceleration;
+                s.maxVelocity = constrainedMaxVelocity(constraints, s, s.maxVelocity);
+                enforceAccelerationLimits(reversed, constraints, s);
+
+                if (ds < EPSILON)
+                    break;
+
+                // If the acceleration we actually need is more than we are allowed,
+                // lower the predecessor's max acceleration and try again.
+                double actualAcceleration = (s.maxVelocity * s.maxVelocity
+                        - predecessor.maxVelocity * predecessor.maxVelocity) / (ds * 2.0);
+                if (s.maxAcceleration < actualAcceleration - EPSILON) {
+                    predecessor.maxAcceleration = s.maxAcceleration;
+                } else {
+                    if (actualAcceleration > predecessor.minAcceleration) {
+                        predecessor.maxAcceleration = actualAcceleration;
+                    }
+                    break;
+                }
+            }
+            predecessor = s;
+        }
+
+        // Backward pass: decelerate as hard as possible into the end velocity
+        Sample successor = new Sample(0, 0, 0, 0);
+        Sample last = samples.get(samples.size() - 1);
+        successor.distance = last.distance;
+        successor.maxVelocity = Math.abs(config.getEndVelocity());
+        successor.minAcceleration = -maxAcceleration;
+        successor.maxAcceleration = maxAcceleration;
+
+        for (int i = samples.size() - 1; i >= 0; i--) {
+            Sample s = samples.get(i);
+            double ds = s.distance - successor.distance;
+
+            while (true) {
+                double newMaxVelocity = Math.sqrt(successor.maxVelocity * successor.maxVelocity
+                        + successor.minAcceleration * ds * 2.0);
+                if (newMaxVelocity >= s.maxVelocity)
+                    break;
+                s.maxVelocity = newMaxVelocity;
+                enforceAccelerationLimits(reversed, constraints, s);
+
+                if (ds > -EPSILON)
+                    break;
+
+                double actualAcceleration = (s.maxVelocity * s.maxVelocity
+                        - successor.maxVelocity * successor.maxVelocity) / (ds * 2.0);
+                if (s.minAcceleration > actualAcceleration + EPSILON) {
+                    successor.minAcceleration = s.minAcceleration;
+                } else {
+                    successor.minAcceleration = actualAcceleration;
+                    break;
+                }
+            }
+            successor = s;
+        }
+    }
+
+    private static Trajectory timeParameterize(ArrayList<Sample> samples, boolean reversed)
+            throws ImpossiblePathException {
+        ArrayList<Trajectory.State> states = new ArrayList<>(samples.size());
+        double time = 0;
+        double distance = 0;
+        double velocity = 0;
+        double sign = reversed ? -1.0 : 1.0;
+
+        for (int i = 0; i < samples.size(); i++) {
+            Sample s = samples.get(i);
+            double ds = s.distance - distance;
+            double accel = ds > EPSILON ? (s.maxVelocity * s.maxVelocity - velocity * velocity) / (ds * 2) : 0;
+            double dt = 0;
+            if (i > 0) {
+                states.get(i - 1).accelerationMetersPerSecondSq = accel * sign;
+                if (Math.abs(accel) > EPSILON) {
+                    dt = (s.maxVelocity - velocity) / accel;
+                } else if (Math.abs(velocity) > EPSILON) {
+                    dt = ds / velocity;
+                } else if (ds > EPSILON) {
+                    throw new ImpossiblePathException(
+                            "Failed to generate trajectory for path. Something went wrong at iteration " + i
+                                    + " of time parameterization.");
+                }
+            }
+            velocity = s.maxVelocity;
+            distance = s.distance;
+            time += dt;
+
+            double heading = reversed ? s.heading + Math.PI : s.heading;
+            states.add(new Trajectory.State(time, velocity * sign, accel * sign,
+                    new Pose2d(s.x, s.y, new Rotation2d(heading)), reversed ? -s.curvature : s.curvature));
+        }
+        return new Trajectory(states);
+    }
+}
@@ -0,0 +1,167 @@
+package me.nabdev.pathfinding;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.algorithms.Astar;
+import me.nabdev.pathfinding.algorithms.SearchContext;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Obstacle;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.Vertex;
+import me.nabdev.pathfinding.utilities.FieldLoader.Field;
+
+/**
+ * Allocation budgets for the planning hot path. Garbage collection pauses are
+ * the largest source of jitter on the roboRIO, so the average number of bytes
+ * allocated per query is held under a committed budget on the three game
+ * fields: {@link Field#REEFSCAPE_2025}, {@link Field#CRESCENDO_2024} and
+ * {@link Field#CHARGED_UP_2023}. The other bundled fields are variants or test
+ * fields and have no budget. If a change needs more, raise the budget in the
+ * same change and say why in the commit.
+ */
+public class AllocationBudgetTest {
+    private static final long SEED = 3044;
+    private static final int PAIRS = 32;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 5;
+
+    // Budgets are about 25% over what was measured on JDK 17, to leave room for
+    // differences in escape analysis between JVMs. Average bytes per generatePath
+    // call:
+    private static final EnumMap<Field, Long> GENERATE_PATH_BUDGET = new EnumMap<>(Field.class);
+    // Average bytes per processPath call
+    private static final EnumMap<Field, Long> PROCESS_PATH_BUDGET = new EnumMap<>(Field.class);
+    static {
+        GENERATE_PATH_BUDGET.put(Field.REEFSCAPE_2025, 10_000L);
+        GENERATE_PATH_BUDGET.put(Field.CRESCENDO_2024, 10_000L);
+        GENERATE_PATH_BUDGET.put(Field.CHARGED_UP_2023, 8_000L);
+        PROCESS_PATH_BUDGET.put(Field.REEFSCAPE_2025, 8_500L);
+        PROCESS_PATH_BUDGET.put(Field.CRESCENDO_2024, 8_500L);
+        PROCESS_PATH_BUDGET.put(Field.CHARGED_UP_2023, 6_500L);
+    }
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    static void enableAllocationCounting() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Thread allocation counting is unavailable");
+        threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "Thread allocation counting is unsupported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    @DisplayName("generatePath stays within its allocation budget")
+    void generatePathBudget() throws ImpossiblePathException {
+        for (Field field : GENERATE_PATH_BUDGET.keySet()) {
+            Pathfinder pathfinder = new PathfinderBuilder(field).build();
+            Vertex[][] pairs = pairs(pathfinder);
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                generateAll(pathfinder, pairs);
+            }
+            long before = allocatedBytes();
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                generateAll(pathfinder, pairs);
+            }
+            long perQuery = (allocatedBytes() - before) / (MEASURED_ROUNDS * PAIRS);
+            assertWithinBudget("generatePath", field, perQuery, GENERATE_PATH_BUDGET.get(field));
+        }
+    }
+
+    @Test
+    @DisplayName("processPath stays within its allocation budget")
+    void processPathBudget() throws ImpossiblePathException {
+        for (Field field : PROCESS_PATH_BUDGET.keySet()) {
+            Pathfinder pathfinder = new PathfinderBuilder(field).build();
+            Vertex[][] pairs = pairs(pathfinder);
+            Path[] routes = new Path[PAIRS];
+            for (int i = 0; i < PAIRS; i++) {
+                ArrayList<Vertex> extra = new ArrayList<>();
+                extra.add(pairs[i][0]);
+                extra.add(pairs[i][1]);
+                SearchContext context = new SearchContext(pathfinder.map, extra);
+                routes[i] = new Astar(pathfinder).run(context, context.extraIndex(0), context.extraIndex(1));
+            }
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                processAll(copyAll(pathfinder, routes));
+            }
+            long total = 0;
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                // Copy first, processing modifies the path
+                Path[] copies = copyAll(pathfinder, routes);
+                long before = allocatedBytes();
+                processAll(copies);
+                total += allocatedBytes() - before;
+            }
+            long perQuery = total / (MEASURED_ROUNDS * PAIRS);
+            assertWithinBudget("processPath", field, perQuery, PROCESS_PATH_BUDGET.get(field));
+        }
+    }
+
+    private static void assertWithinBudget(String name, Field field, long perQuery, long budget) {
+        assertTrue(perQuery <= budget, name + " on " + field + " allocated " + perQuery
+                + " bytes per query, over its budget of " + budget);
+    }
+
+    private static long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void generateAll(Pathfinder pathfinder, Vertex[][] pairs) throws ImpossiblePathException {
+        for (Vertex[] pair : pairs) {
+            pathfinder.generatePath(pair[0], pair[1], PathfindSnapMode.NONE);
+        }
+    }
+
+    private static Path[] copyAll(Pathfinder pathfinder, Path[] routes) {
+        Path[] copies = new Path[routes.length];
+        for (int i = 0; i < routes.length; i++) {
+            copies[i] = new Path(routes[i].getStart(), routes[i].getTarget(), pathfinder);
+            copies[i].addAll(routes[i]);
+        }
+        return copies;
+    }
+
+    private static void processAll(Path[] copies) {
+        for (Path copy : copies) {
+            copy.processPath(PathfindSnapMode.NONE);
+        }
+    }
+
+    // Seeded start and target pairs, outside every obstacle and with a path
+    // between them
+    private static Vertex[][] pairs(Pathfinder pathfinder) {
+        Random random = new Random(SEED);
+        ArrayList<Obstacle> obstacles = pathfinder.map.getObstacles();
+        Vertex[][] pairs = new Vertex[PAIRS][];
+        int found = 0;
+        while (found < PAIRS) {
+            Vertex start = new Vertex(random.nextDouble() * pathfinder.map.fieldx,
+                    random.nextDouble() * pathfinder.map.fieldy);
+            Vertex target = new Vertex(random.nextDouble() * pathfinder.map.fieldx,
+                    random.nextDouble() * pathfinder.map.fieldy);
+            if (!Obstacle.isRobotInObstacle(obstacles, start, true).isEmpty()
+                    || !Obstacle.isRobotInObstacle(obstacles, target, true).isEmpty())
+                continue;
+            try {
+                pathfinder.generatePath(start, target, PathfindSnapMode.NONE);
+            } catch (ImpossiblePathException e) {
+                continue;
+            }
+            pairs[found++] = new Vertex[] { start, target };
+        }
+        return pairs;
+    }
+}
@@ -1,17 +1,77 @@
 package me.nabdev.pathfinding;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import me.nabdev.pathfinding.algorithms.WaypointOrder;
+import me.nabdev.pathfinding.metrics.LatencyHistogram;
+import me.nabdev.pathfinding.metrics.MetricsSink;
+import me.nabdev.pathfinding.metrics.PlannerMetrics;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Counter;
+import me.nabdev.pathfinding.metrics.PlannerMetrics.Stage;
+import me.nabdev.pathfinding.modifiers.ManualMatchState;
+import me.nabdev.pathfinding.modifiers.MatchState;
+import me.nabdev.pathfinding.modifiers.MatchStateSource;
+import me.nabdev.pathfinding.modifiers.ModifierCollection;
+import me.nabdev.pathfinding.modifiers.ObstacleModifier;
+import me.nabdev.pathfinding.modifiers.ObstacleModifier.ObstacleModifierTypes;
+import me.nabdev.pathfinding.structures.Edge;
+import me.nabdev.pathfinding.structures.FieldSymmetry;
 import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.MapSnapshot;
+import me.nabdev.pathfinding.structures.Obstacle;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.PathIndex;
+import me.nabdev.pathfinding.structures.PathTracker;
 import me.nabdev.pathfinding.structures.Vector;
 import me.nabdev.pathfinding.structures.Vertex;
+import me.nabdev.pathfinding.Pathfinder.PathfindSnapMode;
+import me.nabdev.pathfinding.Pathfinder.PlanPriority;
+import me.nabdev.pathfinding.ReplanGovernor.ReplanReason;
+import me.nabdev.pathfinding.utilities.DriverStationWrapper;
+import me.nabdev.pathfinding.utilities.DriverStationWrapper.SimulatedMatch;
+import me.nabdev.pathfinding.utilities.FieldArtifact;
+import me.nabdev.pathfinding.utilities.PathSerializer;
+import me.nabdev.pathfinding.utilities.TrajectoryCache;
+import me.nabdev.pathfinding.utilities.TrajectoryProfiler;
+import me.nabdev.pathfinding.utilities.FieldLoader.CornerCutting;
 import me.nabdev.pathfinding.utilities.FieldLoader.Field;
 
 public class PathfinderTest {
@@ -35,6 +95,821 @@ public class PathfinderTest {
         assertDoesNotThrow(() -> pathfinder.generatePath(new Vertex(2, 2), new Vertex(4, 4)));
     }
 
+    @Test
+    @DisplayName("Path index lookups by distance")
+    void pathIndexLookup() throws ImpossiblePathException {
+        Path path = pathfinder.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        PathIndex index = path.getIndex();
+        assertEquals(0, index.pointAtDistance(0).distance(path.getStart()), 1e-9);
+        assertEquals(0, index.pointAtDistance(index.getLength()).distance(path.getTarget()), 1e-9);
+        assertEquals(0, index.remainingDistance(index.getLength() + 1), 1e-9);
+        for (int i = 1; i < index.size(); i++) {
+            assertTrue(index.getDistance(i) > index.getDistance(i - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Path tracker only moves forwards")
+    void pathTrackerMonotone() throws ImpossiblePathException {
+        Path path = pathfinder.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        PathIndex index = path.getIndex();
+        PathTracker tracker = path.createTracker();
+        double last = 0;
+        for (double d = 0; d <= index.getLength(); d += 0.1) {
+            double progress = tracker.update(index.pointAtDistance(d));
+            assertTrue(progress >= last);
+            assertEquals(d, progress, 1e-6);
+            last = progress;
+        }
+        // Moving back to the start should not move the tracker backwards
+        assertEquals(last, tracker.update(path.getStart()), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Native trajectory respects config limits")
+    void nativeTrajectoryLimits() throws ImpossiblePathException {
+        TrajectoryConfig config = new TrajectoryConfig(3, 2);
+        Path path = pathfinder.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        Trajectory trajectory = path.asTrajectory(config);
+        Trajectory.State first = trajectory.getStates().get(0);
+        Trajectory.State last = trajectory.getStates().get(trajectory.getStates().size() - 1);
+        assertEquals(0, path.getStart().distance(first.poseMeters), 1e-9);
+        assertEquals(0, path.getTarget().distance(last.poseMeters), 1e-9);
+        assertEquals(0, last.velocityMetersPerSecond, 1e-9);
+        double lastTime = -1;
+        for (Trajectory.State state : trajectory.getStates()) {
+            assertTrue(state.timeSeconds > lastTime);
+            assertTrue(state.velocityMetersPerSecond <= 3 + 1e-9);
+            assertTrue(Math.abs(state.accelerationMetersPerSecondSq) <= 2 + 1e-6);
+            lastTime = state.timeSeconds;
+        }
+        assertFollowsPath(path, trajectory);
+
+        Pathfinder exactCorners = new PathfinderBuilder(Field.REEFSCAPE_2025).setNormalizeCorners(false).build();
+        Path exactPath = exactCorners.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        assertFollowsPath(exactPath, exactPath.asTrajectory(config));
+    }
+
+    // Every state of the trajectory should be on the path that was checked for
+    // collisions and published
+    private void assertFollowsPath(Path path, Trajectory trajectory) {
+        PathIndex index = path.getIndex();
+        for (Trajectory.State state : trajectory.getStates()) {
+            Vertex position = new Vertex(state.poseMeters);
+            assertEquals(0, index.pointAtDistance(index.nearestDistance(position)).distance(position), 1e-3);
+        }
+    }
+
+    @Test
+    @DisplayName("Trajectory cache")
+    void trajectoryCache() throws ImpossiblePathException {
+        TrajectoryCache cache = pathfinder.getTrajectoryCache();
+        TrajectoryConfig config = new TrajectoryConfig(3, 2);
+        Trajectory first = pathfinder.generateTrajectory(new Pose2d(2, 2, new Rotation2d()),
+                new Pose2d(14, 6, new Rotation2d()), config);
+        Trajectory second = pathfinder.generateTrajectory(new Pose2d(2, 2, new Rotation2d()),
+                new Pose2d(14, 6, new Rotation2d()), new TrajectoryConfig(3, 2));
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        Trajectory slower = pathfinder.generateTrajectory(new Pose2d(2, 2, new Rotation2d()),
+                new Pose2d(14, 6, new Rotation2d()), new TrajectoryConfig(2, 2));
+        assertNotSame(first, slower);
+    }
+
+    @Test
+    @DisplayName("Replan governor reuses valid paths")
+    void replanGovernor() throws ImpossiblePathException {
+        ReplanGovernor governor = new ReplanGovernor(pathfinder);
+        Pose2d target = new Pose2d(14, 6, new Rotation2d());
+        Path first = governor.getPath(new Pose2d(2, 2, new Rotation2d()), target);
+        assertEquals(ReplanReason.NEW_TARGET, governor.getLastReason());
+
+        Vertex along = first.getIndex().pointAtDistance(0.5);
+        Path trimmed = governor.getPath(new Pose2d(along.x, along.y, new Rotation2d()), target);
+        assertEquals(ReplanReason.NONE, governor.getLastReason());
+        assertEquals(first.getIndex().getLength() - 0.5, trimmed.getIndex().getLength(), 1e-6);
+
+        governor.getPath(new Pose2d(along.x, along.y + 2, new Rotation2d()), target);
+        assertEquals(ReplanReason.DEVIATED, governor.getLastReason());
+        assertEquals(2, governor.getReplanCount());
+        assertEquals(pathfinder.map.getObstacleVersion(), first.getObstacleVersion());
+    }
+
+    @Test
+    @DisplayName("Remaining paths keep their segments")
+    void remainingPath() throws ImpossiblePathException {
+        Path path = pathfinder.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        TrajectoryConfig config = new TrajectoryConfig(3, 2);
+        double length = path.getIndex().getLength();
+        // Cuts through straightaways and part way around corners
+        for (double d = 0.3; d < length; d += 0.3) {
+            Path remaining = path.remainingFrom(path.getIndex().pointAtDistance(d), d);
+            assertSame(pathfinder, remaining.getPathfinder());
+            assertTrue(TrajectoryProfiler.canProfile(remaining));
+            assertEquals(length - d, remaining.getIndex().getLength(), 1e-6);
+            assertEquals(path.getTarget(), remaining.getTarget());
+            assertFollowsPath(path, remaining.asTrajectory(config));
+        }
+    }
+
+    @Test
+    @DisplayName("Background planner publishes paths")
+    void backgroundPlanner() throws InterruptedException {
+        BackgroundPlanner planner = new BackgroundPlanner(pathfinder);
+        planner.start();
+        try {
+            planner.setPose(new Pose2d(2, 2, new Rotation2d()));
+            planner.setGoal(new Pose2d(14, 6, new Rotation2d()));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (planner.getLatest() == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(planner.getLatest() != null);
+            // Handed to the planner thread instead of touching the map here
+            assertDoesNotThrow(() -> pathfinder.periodic());
+            assertThrows(IllegalStateException.class, () -> new BackgroundPlanner(pathfinder).start());
+        } finally {
+            planner.stop();
+        }
+        assertFalse(planner.isRunning());
+    }
+
+    @Test
+    @DisplayName("Background planner hands periodic back when its thread dies")
+    void backgroundPlannerFailure() throws InterruptedException {
+        // Throws the first time it is read, which is on the planner thread
+        AtomicInteger reads = new AtomicInteger();
+        AtomicReference<Thread> reader = new AtomicReference<>();
+        MatchStateSource failing = new MatchStateSource(MatchState.ALWAYS) {
+            @Override
+            protected int read() {
+                reader.set(Thread.currentThread());
+                if (reads.getAndIncrement() == 0)
+                    throw new IllegalStateException("Driver station unavailable");
+                return MatchState.ALWAYS;
+            }
+        };
+        pathfinder.setMatchStateSource(failing);
+        BackgroundPlanner planner = new BackgroundPlanner(pathfinder);
+        planner.start();
+        pathfinder.periodic();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (planner.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(planner.isRunning());
+        assertNull(pathfinder.getBackgroundPlanner());
+        assertTrue(planner.getLastError() instanceof IllegalStateException);
+        // Now runs inline, on this thread
+        pathfinder.periodic();
+        assertEquals(2, reads.get());
+        assertSame(Thread.currentThread(), reader.get());
+        planner.stop();
+    }
+
+    @Test
+    @DisplayName("Path splicing matches a full replan")
+    void pathSplicing() throws ImpossiblePathException {
+        Pathfinder splicing = new PathfinderBuilder(Field.REEFSCAPE_2025).setPathSplicing(true).build();
+        Path first = splicing.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        Path spliced = splicing.generatePath(new Vertex(2.2, 2.1), new Vertex(14, 6));
+        Path full = pathfinder.generatePath(new Vertex(2.2, 2.1), new Vertex(14, 6));
+
+        assertTrue(first.getSegments().size() > 1);
+        assertSame(first.getSegments().get(first.getSegments().size() - 1),
+                spliced.getSegments().get(spliced.getSegments().size() - 1));
+        assertEquals(full.size(), spliced.size());
+        for (int i = 0; i < full.size(); i++) {
+            assertEquals(full.get(i), spliced.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Corner templates are reused")
+    void cornerTemplates() throws ImpossiblePathException {
+        Path first = pathfinder.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        long misses = pathfinder.getCornerCache().getMisses();
+        Path second = pathfinder.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        assertEquals(misses, pathfinder.getCornerCache().getMisses());
+        assertEquals(first, second);
+
+        // The same path rotated onto the other half of the field turns through the
+        // same corners, up to the field's rounding, so it reuses their templates
+        FieldSymmetry symmetry = pathfinder.getFieldSymmetry();
+        long hits = pathfinder.getCornerCache().getHits();
+        Path rotated = pathfinder.generatePath(symmetry.apply(new Vertex(2, 2)), symmetry.apply(new Vertex(14, 6)));
+        assertTrue(pathfinder.getCornerCache().getHits() > hits);
+        assertEquals(first.getIndex().getLength(), rotated.getIndex().getLength(), 1e-2);
+
+        pathfinder.setCornerDist(pathfinder.getCornerDist() / 2);
+        assertEquals(0, pathfinder.getCornerCache().size());
+    }
+
+    @Test
+    @DisplayName("Multi-waypoint legs are planned independently")
+    void parallelLegs() throws ImpossiblePathException {
+        ArrayList<Pose2d> waypoints = new ArrayList<>();
+        waypoints.add(new Pose2d(14, 6, new Rotation2d()));
+        waypoints.add(new Pose2d(3, 7, new Rotation2d()));
+        waypoints.add(new Pose2d(15, 1, new Rotation2d()));
+        Path path = pathfinder.generatePath(new Pose2d(2, 2, new Rotation2d()), waypoints);
+        ArrayList<Vertex> route = path.getRoute();
+        for (Pose2d waypoint : waypoints) {
+            assertTrue(route.contains(new Vertex(waypoint)));
+        }
+        for (int i = 0; i < route.size() - 1; i++) {
+            assertFalse(pathfinder.map.crossesActiveEdge(route.get(i), route.get(i + 1)));
+        }
+    }
+
+    @Test
+    @DisplayName("Waypoint ordering matches brute force")
+    void waypointOrdering() {
+        double[][] points = { { 0, 5 }, { 9, 1 }, { 2, 2 }, { 7, 7 }, { 4, 0 }, { 8, 4 } };
+        double[] startCost = new double[points.length];
+        double[][] cost = new double[points.length][points.length];
+        for (int i = 0; i < points.length; i++) {
+            startCost[i] = Math.hypot(points[i][0], points[i][1]);
+            for (int j = 0; j < points.length; j++) {
+                cost[i][j] = Math.hypot(points[i][0] - points[j][0], points[i][1] - points[j][1]);
+            }
+        }
+        double best = bruteForceOrder(new int[points.length], 0, new boolean[points.length], startCost, cost);
+        assertEquals(best, WaypointOrder.orderCost(WaypointOrder.heldKarp(startCost, cost), startCost, cost), 1e-9);
+        assertTrue(WaypointOrder.orderCost(WaypointOrder.twoOpt(startCost, cost), startCost, cost) <= best * 1.2);
+    }
+
+    private double bruteForceOrder(int[] order, int depth, boolean[] used, double[] startCost, double[][] cost) {
+        if (depth == order.length)
+            return WaypointOrder.orderCost(order, startCost, cost);
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < order.length; i++) {
+            if (used[i])
+                continue;
+            used[i] = true;
+            order[depth] = i;
+            best = Math.min(best, bruteForceOrder(order, depth + 1, used, startCost, cost));
+            used[i] = false;
+        }
+        return best;
+    }
+
+    @Test
+    @DisplayName("Ordered path visits every waypoint")
+    void orderedPath() throws ImpossiblePathException {
+        ArrayList<Pose2d> waypoints = new ArrayList<>();
+        waypoints.add(new Pose2d(15, 1, new Rotation2d()));
+        waypoints.add(new Pose2d(3, 7, new Rotation2d()));
+        waypoints.add(new Pose2d(14, 6, new Rotation2d()));
+        Path path = pathfinder.generateOrderedPath(new Pose2d(2, 2, new Rotation2d()), waypoints);
+        for (Pose2d waypoint : waypoints) {
+            assertTrue(path.getRoute().contains(new Vertex(waypoint)));
+        }
+        Path given = pathfinder.generatePath(new Pose2d(2, 2, new Rotation2d()), waypoints);
+        assertTrue(path.getIndex().getLength() <= given.getIndex().getLength() + 1e-9);
+    }
+
+    @Test
+    @DisplayName("Ordered path throws when a waypoint is walled off")
+    void orderedPathUnreachable() {
+        double inf = Double.POSITIVE_INFINITY;
+        double[] startCost = { 1, inf, 2 };
+        double[][] cost = { { 0, inf, 1 }, { inf, 0, inf }, { 1, inf, 0 } };
+        assertNull(WaypointOrder.heldKarp(startCost, cost));
+        assertThrows(ImpossiblePathException.class, () -> WaypointOrder.solve(startCost, cost));
+
+        // Outside of the field walls, and not inside any obstacle to be snapped out of
+        ArrayList<Pose2d> waypoints = new ArrayList<>();
+        waypoints.add(new Pose2d(14, 6, new Rotation2d()));
+        waypoints.add(new Pose2d(-2, -2, new Rotation2d()));
+        waypoints.add(new Pose2d(3, 7, new Rotation2d()));
+        assertThrows(ImpossiblePathException.class,
+                () -> pathfinder.generateOrderedPath(new Pose2d(2, 2, new Rotation2d()), waypoints));
+    }
+
+    @Test
+    @DisplayName("Async planning cancels superseded requests")
+    void asyncPlanning() throws Exception {
+        PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>();
+        pathfinder.setAsyncExecutor(queue::add);
+        Pose2d start = new Pose2d(2, 2, new Rotation2d());
+        CompletableFuture<Path> prefetch = pathfinder.generatePathAsync(start, new Pose2d(14, 6, new Rotation2d()),
+                PathfindSnapMode.SNAP_ALL, PlanPriority.PREFETCH, "prefetch");
+        CompletableFuture<Path> stale = pathfinder.generatePathAsync(start, new Pose2d(4, 4, new Rotation2d()),
+                PathfindSnapMode.SNAP_ALL, PlanPriority.DRIVER, "drive");
+        CompletableFuture<Path> fresh = pathfinder.generatePathAsync(start, new Pose2d(15, 1, new Rotation2d()),
+                PathfindSnapMode.SNAP_ALL, PlanPriority.DRIVER, "drive");
+        assertTrue(stale.isCancelled());
+
+        // Driver requests run before prefetches
+        queue.poll().run();
+        queue.poll().run();
+        assertTrue(fresh.isDone());
+        assertFalse(prefetch.isDone());
+        queue.poll().run();
+        assertTrue(prefetch.isDone());
+        assertTrue(queue.isEmpty());
+        assertEquals(0, fresh.get().getTarget().distance(new Vertex(15, 1)), 0.5);
+
+        CompletableFuture<Path> impossible = pathfinder.generatePathAsync(new Pose2d(-2, -2, new Rotation2d()),
+                new Pose2d(2, 2, new Rotation2d()), PathfindSnapMode.NONE, PlanPriority.DRIVER, null);
+        queue.poll().run();
+        assertTrue(impossible.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Planner metrics time stages and count work")
+    void plannerMetrics() throws ImpossiblePathException {
+        PlannerMetrics metrics = pathfinder.getMetrics();
+        pathfinder.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        assertFalse(metrics.isEnabled());
+        assertEquals(0, metrics.getHistogram(Stage.TOTAL).getSampleCount());
+        assertEquals(0, metrics.getCount(Counter.LOS_TESTS));
+
+        long[] published = new long[2];
+        metrics.setSink(new MetricsSink() {
+            @Override
+            public void recordLatency(Stage stage, double p50Ms, double p99Ms, double maxMs, long samples) {
+                assertTrue(p50Ms <= p99Ms && p99Ms <= maxMs);
+                published[0]++;
+            }
+
+            @Override
+            public void recordCounter(Counter counter, long total) {
+                published[1]++;
+            }
+        });
+        Path path = pathfinder.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        for (Stage stage : Stage.values()) {
+            assertEquals(1, metrics.getHistogram(stage).getSampleCount());
+        }
+        assertTrue(metrics.getCount(Counter.VERTICES_EXPANDED) > 0);
+        assertTrue(metrics.getCount(Counter.EDGES_TESTED) >= metrics.getCount(Counter.LOS_TESTS));
+        assertEquals(path.size(), metrics.getCount(Counter.POINTS_EMITTED));
+        pathfinder.periodic();
+        assertEquals(Stage.values().length, published[0]);
+        assertEquals(Counter.values().length, published[1]);
+
+        LatencyHistogram histogram = new LatencyHistogram(4);
+        for (int i = 1; i <= 6; i++) {
+            histogram.record(i * 1000000L);
+        }
+        // Only the last 4 samples are kept
+        assertEquals(6, histogram.getSampleCount());
+        assertEquals(4, histogram.getPercentileMs(0.5), 1e-9);
+        assertEquals(6, histogram.getMaxMs(), 1e-9);
+        assertEquals(3, histogram.getPercentileMs(0), 1e-9);
+    }
+
+    @Test
+    @DisplayName("JFR events record pathfinding")
+    void jfrEvents() throws Exception {
+        java.nio.file.Path file = Files.createTempFile("oxplorer", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("me.nabdev.pathfinding.Pathfind");
+            recording.enable("me.nabdev.pathfinding.PlanningStage");
+            recording.enable("me.nabdev.pathfinding.Trajectory");
+            recording.start();
+            pathfinder.generateTrajectory(new Pose2d(2, 2, new Rotation2d()), new Pose2d(14, 6, new Rotation2d()),
+                    new TrajectoryConfig(4, 3));
+            assertThrows(ImpossiblePathException.class,
+                    () -> pathfinder.generatePath(new Vertex(-2, -2), new Vertex(2, 2)));
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        int successes = 0;
+        int failures = 0;
+        int stages = 0;
+        int trajectories = 0;
+        for (RecordedEvent event : events) {
+            String name = event.getEventType().getName();
+            if (name.equals("me.nabdev.pathfinding.Pathfind")) {
+                if (event.getBoolean("success")) {
+                    successes++;
+                    assertTrue(event.getLong("verticesExpanded") > 0);
+                    assertEquals(14, event.getDouble("targetX"), 1e-9);
+                } else {
+                    failures++;
+                    assertTrue(event.getString("failure").startsWith("ImpossiblePathException"));
+                }
+            } else if (name.equals("me.nabdev.pathfinding.PlanningStage")) {
+                stages++;
+            } else if (name.equals("me.nabdev.pathfinding.Trajectory")) {
+                trajectories++;
+                assertTrue(event.getBoolean("success"));
+            }
+        }
+        assertEquals(1, successes);
+        assertEquals(1, failures);
+        assertTrue(stages >= 4);
+        assertEquals(1, trajectories);
+    }
+
+    @Test
+    @DisplayName("Path export into caller buffers")
+    void pathExport() throws ImpossiblePathException {
+        Path path = pathfinder.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        double[] expected = path.toDoubleArray();
+        double[] out = new double[expected.length + 3];
+        assertEquals(expected.length, path.toDoubleArray(out));
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], out[i], 1e-12);
+        }
+        assertThrows(IllegalArgumentException.class, () -> path.toDoubleArray(new double[2]));
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(path.getExportPointCount() * Path.POSE_STRUCT_SIZE);
+        assertEquals(buffer.capacity(), path.writePoses(buffer));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < path.getExportPointCount(); i++) {
+            assertEquals(expected[i * 3], buffer.getDouble(i * Path.POSE_STRUCT_SIZE), 1e-12);
+            assertEquals(expected[i * 3 + 1], buffer.getDouble(i * Path.POSE_STRUCT_SIZE + 8), 1e-12);
+        }
+    }
+
+    @Test
+    @DisplayName("Planners sharing a map plan concurrently")
+    void sharedPlanners() throws Exception {
+        Vertex[][] pairs = { { new Vertex(2, 2), new Vertex(14, 6) }, { new Vertex(2, 6), new Vertex(14, 2) },
+                { new Vertex(3, 4), new Vertex(15, 4) }, { new Vertex(14, 7), new Vertex(3, 1) } };
+        double[][] expected = new double[pairs.length][];
+        for (int i = 0; i < pairs.length; i++) {
+            expected[i] = pathfinder.generatePath(pairs[i][0], pairs[i][1]).toDoubleArray();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Pathfinder planner = pathfinder.createPlanner();
+                assertSame(pathfinder.map, planner.map);
+                results.add(executor.submit(() -> {
+                    for (int round = 0; round < 10; round++) {
+                        for (int i = 0; i < pairs.length; i++) {
+                            assertArrayEquals(expected[i],
+                                    planner.generatePath(pairs[i][0], pairs[i][1]).toDoubleArray(), 1e-9);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            // Rebuilding publishes a new snapshot without disturbing running queries
+            for (int i = 0; i < 5; i++) {
+                pathfinder.map.regenerateVisibilityGraph();
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Obstacle state changes publish a new snapshot")
+    void obstacleSnapshots() {
+        Pathfinder reefscape = new PathfinderBuilder(Field.REEFSCAPE_2025).build();
+        ManualMatchState match = new ManualMatchState();
+        match.set(Optional.of(Alliance.Blue), false, true, 100);
+        match.update();
+        reefscape.setMatchStateSource(match);
+        MapSnapshot blue = reefscape.map.getSnapshot();
+        assertFalse(reefscape.map.updateObstacleState());
+        assertSame(blue, reefscape.map.getSnapshot());
+
+        // Publishing a change rebuilds the map straight away
+        match.set(Optional.of(Alliance.Red), false, true, 100);
+        assertTrue(match.update());
+        MapSnapshot red = reefscape.map.getSnapshot();
+        assertTrue(red.getVersion() > blue.getVersion());
+
+        int redZone = -1;
+        int blueZone = -1;
+        ArrayList<Obstacle> obstacles = reefscape.map.getObstacles();
+        for (int i = 0; i < obstacles.size(); i++) {
+            if (obstacles.get(i).id.equals("Red Barge Zone"))
+                redZone = i;
+            if (obstacles.get(i).id.equals("Blue Barge Zone"))
+                blueZone = i;
+        }
+        // The old snapshot still sees the obstacles as they were when it was built
+        assertTrue(blue.isActive(redZone));
+        assertFalse(blue.isActive(blueZone));
+        assertFalse(red.isActive(redZone));
+        assertTrue(red.isActive(blueZone));
+        assertTrue(obstacles.get(blueZone).modifiers.isActive());
+
+        // Line of sight between static vertices follows each snapshot's own validity
+        ArrayList<Vertex> vertices = blue.getPathVertices();
+        int changed = 0;
+        for (int i = 0; i < vertices.size(); i++) {
+            if (blue.isValid(i) == red.isValid(i))
+                continue;
+            changed++;
+            MapSnapshot valid = blue.isValid(i) ? blue : red;
+            MapSnapshot invalid = blue.isValid(i) ? red : blue;
+            for (int j : valid.getAdjacency()[i]) {
+                assertTrue(valid.hasLineOfSight(vertices.get(i), vertices.get(j), null));
+                assertFalse(invalid.hasLineOfSight(vertices.get(i), vertices.get(j), null));
+            }
+        }
+        assertTrue(changed > 0);
+
+        // Set but not yet published
+        match.set(Optional.of(Alliance.Blue), false, true, 100);
+        assertSame(red, reefscape.map.getSnapshot());
+        assertTrue(obstacles.get(blueZone).modifiers.isActive());
+        reefscape.periodic();
+        assertFalse(obstacles.get(blueZone).modifiers.isActive());
+        assertTrue(reefscape.map.getSnapshot().getVersion() > red.getVersion());
+    }
+
+    @Test
+    @DisplayName("Compiled modifier masks match the modifiers")
+    void modifierMasks() {
+        String[][] collections = { { "ALWAYS_ACTIVE" }, { "ACTIVE_AUTO" }, { "ACTIVE_TELE", "ACTIVE_ENDGAME" },
+                { "ACTIVE_MY_ALLIANCE", "BLUE_ALLIANCE", "ALWAYS_ACTIVE" },
+                { "ACTIVE_OTHER_ALLIANCE", "RED_ALLIANCE", "ACTIVE_TELE" },
+                { "ACTIVE_MY_ALLIANCE", "BLUE_ALLIANCE", "RED_ALLIANCE", "ACTIVE_AUTO" },
+                { "ACTIVE_MY_ALLIANCE", "ALWAYS_ACTIVE" }, { "ZONE_MODIFIER", "ALWAYS_ACTIVE" }, { "BLUE_ALLIANCE" } };
+        List<Optional<Alliance>> alliances = List.of(Optional.empty(), Optional.of(Alliance.Blue),
+                Optional.of(Alliance.Red));
+        // Pre-match, autonomous, teleop and endgame
+        boolean[][] periods = { { false, false }, { true, false }, { false, true }, { false, true } };
+        double[] matchTimes = { -1, 10, 100, 10 };
+        for (Optional<Alliance> alliance : alliances) {
+            for (int period = 0; period < periods.length; period++) {
+                boolean auto = periods[period][0];
+                boolean teleop = periods[period][1];
+                double matchTime = matchTimes[period];
+                DriverStationWrapper.setSimulatedMatch(new SimulatedMatch() {
+                    @Override
+                    public boolean isAutonomous() {
+                        return auto;
+                    }
+
+                    @Override
+                    public boolean isTeleop() {
+                        return teleop;
+                    }
+
+                    @Override
+                    public double getMatchTime() {
+                        return matchTime;
+                    }
+
+                    @Override
+                    public Optional<Alliance> getAlliance() {
+                        return alliance;
+                    }
+                });
+                try {
+                    for (String[] names : collections) {
+                        JSONArray json = new JSONArray();
+                        for (String name : names) {
+                            json.put(name);
+                        }
+                        ModifierCollection collection = new ModifierCollection(json);
+                        // Evaluate the modifiers one at a time, the way they were before
+                        // being compiled
+                        boolean required = true;
+                        boolean optional = false;
+                        for (String name : names) {
+                            ObstacleModifier mod = ObstacleModifier.getModifier(ObstacleModifierTypes.valueOf(name),
+                                    collection);
+                            if (mod.requiredForActive())
+                                required &= mod.isActive();
+                            else
+                                optional |= mod.isActive();
+                        }
+                        assertEquals(required && optional, collection.isActiveIn(MatchState.current()),
+                                String.join(",", names) + " in period " + period + " on " + alliance);
+                    }
+                } finally {
+                    DriverStationWrapper.setSimulatedMatch(null);
+                }
+            }
+        }
+
+        // A modifier that doesn't give a mask is active in every state
+        ObstacleModifier custom = new ObstacleModifier() {
+            @Override
+            public boolean isActive() {
+                return true;
+            }
+
+            @Override
+            public boolean requiredForActive() {
+                return false;
+            }
+
+            @Override
+            public ObstacleModifierTypes getType() {
+                return ObstacleModifierTypes.ALWAYS_ACTIVE;
+            }
+        };
+        assertEquals(MatchState.ALWAYS, custom.getActiveMask());
+    }
+
+    @Test
+    @DisplayName("Symmetric fields derive the other alliance's graph")
+    void fieldSymmetry() {
+        Pathfinder reefscape = new PathfinderBuilder(Field.REEFSCAPE_2025).build();
+        FieldSymmetry symmetry = reefscape.getFieldSymmetry();
+        // The barge zones swap alliances, so the field is rotated rather than mirrored
+        assertEquals(FieldSymmetry.Type.ROTATION, symmetry.getType());
+        assertNull(new PathfinderBuilder(Field.REEFSCAPE_2025_NO_STATIONS).build().getFieldSymmetry());
+
+        ManualMatchState match = new ManualMatchState();
+        match.set(Optional.of(Alliance.Blue), false, true, 100);
+        match.update();
+        reefscape.setMatchStateSource(match);
+        MapSnapshot blueTeleop = reefscape.map.getSnapshot();
+        // Same obstacles in autonomous, so the graph is shared
+        match.set(Optional.of(Alliance.Blue), true, false, 10);
+        match.update();
+        assertSame(blueTeleop.getAdjacency(), reefscape.map.getSnapshot().getAdjacency());
+
+        match.set(Optional.of(Alliance.Red), false, true, 100);
+        match.update();
+        MapSnapshot derived = reefscape.map.getSnapshot();
+        reefscape.map.regenerateVisibilityGraph();
+        MapSnapshot built = reefscape.map.getSnapshot();
+        assertNotSame(derived.getAdjacency(), built.getAdjacency());
+        HashSet<Long> derivedEdges = new HashSet<>();
+        for (Edge e : derived.getNeighbors()) {
+            derivedEdges.add(((long) e.getVertexOne() << 32) | e.getVertexTwo());
+        }
+        HashSet<Long> builtEdges = new HashSet<>();
+        for (Edge e : built.getNeighbors()) {
+            builtEdges.add(((long) e.getVertexOne() << 32) | e.getVertexTwo());
+        }
+        assertEquals(builtEdges, derivedEdges);
+        for (int i = 0; i < reefscape.map.getPathVerticesStatic().size(); i++) {
+            assertEquals(built.isValid(i), derived.isValid(i));
+        }
+
+        // Paths drawn for blue load on the red side
+        ArrayList<Vertex> points = new ArrayList<>();
+        points.add(new Vertex(3, 2));
+        Path path = new Path(new Vertex(2, 1, 30), new Vertex(4, 3, 90), points);
+        JSONObject json = PathSerializer.toJSON(path, "Symmetry");
+        Path rotated = PathSerializer.fromJSON(json, symmetry);
+        assertEquals(reefscape.map.fieldx - 2, rotated.getStart().x, 1e-9);
+        assertEquals(reefscape.map.fieldy - 1, rotated.getStart().y, 1e-9);
+        assertEquals(-150, rotated.getStart().rotation.getDegrees(), 1e-9);
+        assertEquals(reefscape.map.fieldx - 3, rotated.get(0).x, 1e-9);
+        assertEquals(-90, rotated.getTarget().rotation.getDegrees(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Compiled field artifacts load without rebuilding")
+    void fieldArtifacts() throws Exception {
+        java.nio.file.Path file = Files.createTempFile("oxplorer", FieldArtifact.EXTENSION);
+        try {
+            PathfinderBuilder builder = new PathfinderBuilder(Field.REEFSCAPE_2025);
+            builder.writeFieldArtifact(file.toString());
+            Pathfinder built = builder.build();
+            Pathfinder loaded = new PathfinderBuilder(Field.REEFSCAPE_2025).setFieldArtifact(file.toString()).build();
+
+            ArrayList<Vertex> builtVertices = built.map.getPathVerticesStatic();
+            ArrayList<Vertex> loadedVertices = loaded.map.getPathVerticesStatic();
+            assertEquals(builtVertices.size(), loadedVertices.size());
+            for (int i = 0; i < builtVertices.size(); i++) {
+                assertEquals(builtVertices.get(i).x, loadedVertices.get(i).x);
+                assertEquals(builtVertices.get(i).y, loadedVertices.get(i).y);
+            }
+            ManualMatchState match = new ManualMatchState();
+            built.setMatchStateSource(match);
+            loaded.setMatchStateSource(match);
+            for (Optional<Alliance> alliance : List.of(Optional.<Alliance>empty(), Optional.of(Alliance.Blue),
+                    Optional.of(Alliance.Red))) {
+                match.set(alliance, false, true, 100);
+                match.update();
+                assertArrayEquals(built.map.getSnapshot().getAdjacency(), loaded.map.getSnapshot().getAdjacency());
+            }
+            Path builtPath = built.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+            Path loadedPath = loaded.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+            assertEquals(builtPath.size(), loadedPath.size());
+            for (int i = 0; i < builtPath.size(); i++) {
+                assertEquals(builtPath.get(i).x, loadedPath.get(i).x, 1e-9);
+                assertEquals(builtPath.get(i).y, loadedPath.get(i).y, 1e-9);
+            }
+
+            // A different robot size or field is a different hash, so the artifact is
+            // ignored
+            byte[] field = FieldArtifact.readField(Field.REEFSCAPE_2025);
+            assertNull(FieldArtifact.load(file.toString(), FieldArtifact.inputHash(field, 0.6, CornerCutting.LINE)));
+            assertNull(FieldArtifact.load(file.toString(),
+                    FieldArtifact.inputHash(FieldArtifact.readField(Field.CHARGED_UP_2023), 0.7 * Math.sqrt(2) / 2,
+                            CornerCutting.LINE)));
+            assertDoesNotThrow(() -> new PathfinderBuilder(Field.REEFSCAPE_2025).setRobotWidth(0.5)
+                    .setFieldArtifact(file.toString()).build());
+
+            // Truncated or missing artifacts fall back to building the map
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length / 2));
+            byte[] hash = FieldArtifact.inputHash(field, 0.7 * Math.sqrt(2) / 2, CornerCutting.LINE);
+            assertNull(FieldArtifact.load(file.toString(), hash));
+            Files.delete(file);
+            assertNull(FieldArtifact.load(file.toString(), hash));
+            assertDoesNotThrow(
+                    () -> new PathfinderBuilder(Field.REEFSCAPE_2025).setFieldArtifact(file.toString()).build());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("Clearance layers share the field with their map")
+    void clearanceLayers() throws ImpossiblePathException {
+        Pathfinder large = new PathfinderBuilder(Field.REEFSCAPE_2025).setRobotWidth(1).setRobotLength(1).build();
+        Pathfinder layered = pathfinder.createPlanner(large.clearance());
+        assertEquals(large.clearance(), layered.clearance());
+        assertSame(layered.map, pathfinder.map.getLayer(large.clearance()));
+        assertSame(layered.map, pathfinder.createPlanner(large.clearance()).map);
+        assertSame(pathfinder.map, pathfinder.map.getLayer(pathfinder.clearance()));
+        assertSame(pathfinder.map.getObstacles().get(0).modifiers, layered.map.getObstacles().get(0).modifiers);
+        assertEquals(large.getFieldSymmetry().getType(), layered.getFieldSymmetry().getType());
+
+        ManualMatchState match = new ManualMatchState();
+        large.setMatchStateSource(match);
+        // Set on the base map, followed by the layer
+        pathfinder.setMatchStateSource(match);
+        assertSame(match, layered.map.getMatchStateSource());
+        for (Optional<Alliance> alliance : List.of(Optional.of(Alliance.Blue), Optional.of(Alliance.Red))) {
+            match.set(alliance, false, true, 100);
+            match.update();
+            ArrayList<Vertex> expected = large.map.getPathVerticesStatic();
+            ArrayList<Vertex> actual = layered.map.getPathVerticesStatic();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).x, actual.get(i).x, 1e-12);
+                assertEquals(expected.get(i).y, actual.get(i).y, 1e-12);
+            }
+            assertArrayEquals(large.map.getSnapshot().getAdjacency(), layered.map.getSnapshot().getAdjacency());
+        }
+
+        Path expected = large.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        Path actual = layered.generatePath(new Vertex(2, 2), new Vertex(14, 6));
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).x, actual.get(i).x, 1e-9);
+            assertEquals(expected.get(i).y, actual.get(i).y, 1e-9);
+        }
+        // The base map keeps its own inflation
+        assertFalse(pathfinder.map.getPathVerticesStatic().get(0).x == layered.map.getPathVerticesStatic().get(0).x
+                && pathfinder.map.getPathVerticesStatic().get(0).y == layered.map.getPathVerticesStatic().get(0).y);
+        assertThrows(IllegalArgumentException.class, () -> pathfinder.createPlanner(-1));
+    }
+
+    @Test
+    @DisplayName("Heading layers fit a long robot through a gap its circle doesn't")
+    void headingPlanner() throws Exception {
+        // A 0.8m gap between two blocks that span the field, along x
+        JSONObject field = new JSONObject().put("formatVersion", 2).put("fieldX", 6).put("fieldY", 4)
+                .put("obstacles", new JSONArray()
+                        .put(new JSONObject().put("id", "Bottom").put("vertices",
+                                new JSONArray("[[2, 0], [2, 1.6], [4, 1.6], [4, 0]]")))
+                        .put(new JSONObject().put("id", "Top").put("vertices",
+                                new JSONArray("[[2, 2.4], [2, 4], [4, 4], [4, 2.4]]"))));
+        java.nio.file.Path file = Files.createTempFile("oxplorer", ".json");
+        try {
+            Files.writeString(file, field.toString());
+            Pathfinder corridor = new PathfinderBuilder(file.toString()).setRobotWidth(0.4).setRobotLength(1)
+                    .setHeadingBins(8).build();
+            HeadingPlanner planner = corridor.getHeadingPlanner();
+            assertEquals(8, planner.getBins());
+            assertNull(pathfinder.getHeadingPlanner());
+            assertThrows(ImpossiblePathException.class,
+                    () -> corridor.generatePath(new Pose2d(1, 2, new Rotation2d()), new Pose2d(5, 2, new Rotation2d())));
+
+            // Facing along the gap the blocks only grow by about half the width,
+            // facing across it by half the length
+            Vertex gap = new Vertex(3, 2);
+            assertTrue(planner.getLayer(new Rotation2d()).getSnapshot().isRobotInObstacle(gap, false).isEmpty());
+            assertFalse(planner.getLayer(Rotation2d.fromDegrees(90)).getSnapshot().isRobotInObstacle(gap, false)
+                    .isEmpty());
+            assertSame(planner.getLayer(Rotation2d.fromDegrees(180)), planner.getLayer(new Rotation2d()));
+            assertSame(planner.getLayer(Rotation2d.fromDegrees(-90)), planner.getLayer(Rotation2d.fromDegrees(90)));
+
+            Path straight = planner.generatePath(new Pose2d(1, 2, new Rotation2d()), new Pose2d(5, 2, new Rotation2d()));
+            assertEquals(5, straight.getTarget().x, 1e-9);
+            assertEquals(2, straight.getRoute().size());
+
+            // Starting sideways, the robot turns where it starts, which is clear for
+            // every heading, before driving through the gap
+            Path turning = planner.generatePath(new Pose2d(1, 2, Rotation2d.fromDegrees(90)),
+                    new Pose2d(5, 2, new Rotation2d()));
+            assertEquals(2, turning.getRoute().size());
+            assertEquals(5, turning.getTarget().x, 1e-9);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     @DisplayName("Diagonal Intersection")
     void diagonalIntersect() {